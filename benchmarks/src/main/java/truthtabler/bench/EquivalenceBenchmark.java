@@ -0,0 +1,55 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler.bench;
+
+import org.openjdk.jmh.annotations.*;
+import truthtabler.EquivalenceIndex;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EquivalenceBenchmark { //Deduplicating a corpus of formulas by truth table signature
+    private static final int CORPUS_SIZE = 10000;
+
+    @Param({"4", "8", "12"})
+    public int propositions;
+
+    @Param({"true", "false"})
+    public boolean exact; //Exact signatures over the corpus variables, or sampled signatures over every letter
+
+    private String[] corpus;
+    private String variables;
+
+    @Setup
+    public void setup() {
+        FormulaGenerator generator = new FormulaGenerator(FormulaGenerator.DEFAULT_SEED, propositions);
+        corpus = new String[CORPUS_SIZE];
+        for (int i=0; i<CORPUS_SIZE; i++) {
+            corpus[i] = generator.expression(propositions + i % 4, FormulaGenerator.Shape.RANDOM); //Small formulas, so that many are equivalent
+        }
+        variables = new String(FormulaGenerator.getPropositions(propositions));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public int index() {
+        EquivalenceIndex index = exact ? new EquivalenceIndex(variables) : new EquivalenceIndex();
+        for (String formula: corpus) {
+            index.add(formula);
+        }
+        return index.getClassCount();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler.bench;
+
+import java.util.Random;
+
+public class FormulaGenerator { //Seeded generator of random well-formed expressions and arguments, so every run benchmarks the same workload
+    public static final long DEFAULT_SEED = 20200101L;
+    private static final char[] OPERATORS = {'v', '&', '>', ':'};
+
+    public enum Shape { //Shape of the operator tree
+        BALANCED, //Operators split evenly between the two operands (nesting depth is about log2 of the size)
+        RANDOM, //Operators split at random between the two operands
+        DEEP //Every operator nests the previous one as its left operand (nesting depth equals the size)
+    }
+
+    private final Random random;
+    private final char[] propositions;
+    private int leaves = 0; //Leaves generated so far, used to cover every proposition
+
+    /**
+     * Construct a new generator
+     *
+     * @param seed Random seed
+     * @param propCount Number of propositions to draw from (at most 51)
+     * @throws IllegalArgumentException If propCount is out of range
+     */
+    public FormulaGenerator(long seed, int propCount) {
+        this.random = new Random(seed);
+        this.propositions = getPropositions(propCount);
+    }
+
+    /**
+     * Get the first propositions letters: A to Z, then a to z (skipping v, which is the OR operator)
+     *
+     * @param propCount Number of propositions (at most 51)
+     * @throws IllegalArgumentException If propCount is out of range
+     * @return Proposition characters
+     */
+    public static char[] getPropositions(int propCount) {
+        if (propCount < 1 || propCount > 51) {
+            throw new IllegalArgumentException("Number of propositions must be between 1 and 51: " + propCount);
+        }
+        char[] res = new char[propCount];
+        char c = 'A';
+        for (int i=0; i<propCount; i++) {
+            res[i] = c;
+            c = c == 'Z' ? 'a' : c == 'u' ? 'w' : (char) (c + 1);
+        }
+        return res;
+    }
+
+    /**
+     * Generate an expression. The first leaves use each proposition once, so an expression with at least
+     * propCount - 1 operators has a truth table over every proposition
+     *
+     * @param operators Number of binary operators
+     * @param shape Shape of the operator tree
+     * @return Expression
+     */
+    public String expression(int operators, Shape shape) {
+        leaves = 0;
+        StringBuilder res = new StringBuilder();
+        if (shape == Shape.DEEP) {
+            StringBuilder groups = new StringBuilder(); //Opening of each group, innermost last
+            for (int i=0; i<operators; i++) {
+                groups.append(negation()).append('(');
+            }
+            res.append(groups).append(leaf());
+            for (int i=0; i<operators; i++) {
+                res.append(operator()).append(leaf()).append(')');
+            }
+        } else {
+            appendTree(res, operators, shape, true);
+        }
+        return res.toString();
+    }
+
+    /**
+     * Generate a random argument
+     *
+     * @param premises Number of premises
+     * @param operators Number of binary operators in each premise and the conclusion
+     * @return Comma separated premises followed by the conclusion
+     */
+    public String argument(int premises, int operators) {
+        StringBuilder res = new StringBuilder();
+        for (int i=0; i<=premises; i++) {
+            if (i > 0) {
+                res.append(',');
+            }
+            res.append(expression(operators, Shape.RANDOM));
+        }
+        return res.toString();
+    }
+
+    /**
+     * Generate a valid chain argument (A>B, B>C, ... therefore A>Z), which no engine can decide early
+     *
+     * @param propCount Number of propositions in the chain (at least 2)
+     * @return Comma separated premises followed by the conclusion
+     */
+    public static String chainArgument(int propCount) {
+        char[] props = getPropositions(propCount);
+        StringBuilder res = new StringBuilder();
+        for (int i=0; i<propCount-1; i++) {
+            res.append(props[i]).append('>').append(props[i+1]).append(',');
+        }
+        return res.append(props[0]).append('>').append(props[propCount-1]).toString();
+    }
+
+    /**
+     * Append an operand tree with a number of operators
+     *
+     * @param res Expression being built
+     * @param operators Number of operators in the tree
+     * @param shape BALANCED or RANDOM
+     * @param top Whether this is the whole expression (which needs no parentheses)
+     */
+    private void appendTree(StringBuilder res, int operators, Shape shape, boolean top) {
+        if (operators == 0) {
+            res.append(leaf());
+            return;
+        }
+        int left = shape == Shape.BALANCED ? (operators - 1) / 2 : random.nextInt(operators);
+        if (!top) {
+            res.append(negation()).append('(');
+        }
+        appendTree(res, left, shape, false);
+        res.append(operator());
+        appendTree(res, operators - 1 - left, shape, false);
+        if (!top) {
+            res.append(')');
+        }
+    }
+
+    /**
+     * Generate a proposition, possibly negated
+     *
+     * @return Leaf operand
+     */
+    private String leaf() {
+        char prop = leaves < propositions.length ? propositions[leaves] : propositions[random.nextInt(propositions.length)];
+        leaves++;
+        return negation() + prop;
+    }
+
+    /**
+     * Generate a negation a quarter of the time
+     *
+     * @return "~" or ""
+     */
+    private String negation() {
+        return random.nextInt(4) == 0 ? "~" : "";
+    }
+
+    /**
+     * Generate a random binary operator
+     *
+     * @return Operator character
+     */
+    private char operator() {
+        return OPERATORS[random.nextInt(OPERATORS.length)];
+    }
+}
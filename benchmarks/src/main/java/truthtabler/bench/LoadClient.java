@@ -0,0 +1,113 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler.bench;
+
+import truthtabler.EvaluationServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadClient { //Load generator for the --serve mode: several connections send requests drawn from a fixed set of formulas and the throughput and latency are reported
+    /**
+     * Run the load test. Usage: LoadClient ADDRESS [CONNECTIONS] [REQUESTS] [FORMULAS] [COMMAND]
+     *
+     * @param args Server port or socket path, connections (default 8), requests per connection (default 10000),
+     *             distinct formulas (default 100), and the command to send (default evaluate)
+     * @throws Exception If a connection fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadClient ADDRESS [CONNECTIONS] [REQUESTS] [FORMULAS] [COMMAND]");
+            System.exit(2);
+        }
+        String address = args[0];
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int formulaCount = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        String command = args.length > 4 ? args[4] : "evaluate";
+
+        String[] formulas = new String[formulaCount];
+        FormulaGenerator generator = new FormulaGenerator(FormulaGenerator.DEFAULT_SEED, 12);
+        for (int i=0; i<formulaCount; i++) {
+            formulas[i] = command.equals("validate") ? generator.argument(3, 8) : generator.expression(24, FormulaGenerator.Shape.RANDOM);
+        }
+
+        long[][] latencies = new long[connections][requests];
+        AtomicLong errors = new AtomicLong();
+        Thread[] threads = new Thread[connections];
+        long start = System.nanoTime();
+        for (int c=0; c<connections; c++) {
+            int connection = c;
+            threads[c] = new Thread(() -> {
+                try {
+                    run(address, command, formulas, new Random(connection), latencies[connection], errors);
+                } catch (IOException e) {
+                    System.err.println("Connection " + connection + " failed: " + e.getMessage());
+                    errors.incrementAndGet();
+                }
+            });
+            threads[c].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = new long[connections * requests];
+        for (int c=0; c<connections; c++) {
+            System.arraycopy(latencies[c], 0, all, c * requests, requests);
+        }
+        Arrays.sort(all);
+        System.out.printf("%d requests on %d connections in %.3f s: %.0f requests/s%n", all.length, connections, elapsed / 1e9, all.length / (elapsed / 1e9));
+        System.out.printf("Latency: p50 %.1f us, p99 %.1f us, max %.1f us%n", all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3, all[all.length - 1] / 1e3);
+        System.out.println("Errors: " + errors.get());
+    }
+
+    /**
+     * Send requests on one connection, one at a time, recording the latency of each
+     *
+     * @param address Server address
+     * @param command Command to send
+     * @param formulas Formulas to draw from
+     * @param random Random source for choosing formulas
+     * @param latencies Latency of each request in nanoseconds (filled in)
+     * @param errors Count of error responses
+     * @throws IOException If the connection fails
+     */
+    private static void run(String address, String command, String[] formulas, Random random, long[] latencies, AtomicLong errors) throws IOException {
+        try (SocketChannel channel = EvaluationServer.connect(address);
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8)) {
+            for (int i=0; i<latencies.length; i++) {
+                long start = System.nanoTime();
+                out.write(command + " " + formulas[random.nextInt(formulas.length)] + "\n");
+                out.flush();
+                String response = in.readLine();
+                latencies[i] = System.nanoTime() - start;
+                if (response == null) {
+                    throw new IOException("Server closed the connection");
+                }
+                if (response.contains("\"error\"")) {
+                    errors.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler.bench;
+
+public class NullAppendable implements Appendable { //Discards everything appended to it, counting the characters so the work can't be optimized away
+    private long length = 0;
+
+    @Override
+    public Appendable append(CharSequence csq) {
+        length += csq.length();
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+        length += end - start;
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+        length++;
+        return this;
+    }
+
+    /**
+     * Get the number of characters appended
+     *
+     * @return Number of characters
+     */
+    public long getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler.bench;
+
+import org.openjdk.jmh.annotations.*;
+import truthtabler.ExpressionParser;
+import truthtabler.LogicNode;
+import truthtabler.NodeFactory;
+import truthtabler.ParsedExpression;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark { //Parse throughput across expression sizes and nesting depths
+    @Param({"16", "256", "4096"})
+    public int operators;
+
+    @Param({"BALANCED", "RANDOM", "DEEP"})
+    public FormulaGenerator.Shape shape;
+
+    private String expression;
+
+    @Setup
+    public void setup() {
+        expression = new FormulaGenerator(FormulaGenerator.DEFAULT_SEED, 16).expression(operators, shape);
+    }
+
+    @Benchmark
+    public LogicNode parse() { //String to tree
+        return ExpressionParser.parse(expression);
+    }
+
+    @Benchmark
+    public LogicNode parseAndIntern() { //String to hash-consed DAG
+        return new NodeFactory().intern(ExpressionParser.parse(expression));
+    }
+
+    @Benchmark
+    public ParsedExpression parseAndCompile() { //String to compiled program, as done on an expression cache miss
+        return ParsedExpression.parse(expression, false);
+    }
+}
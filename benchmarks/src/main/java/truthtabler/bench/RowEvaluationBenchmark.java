@@ -0,0 +1,100 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler.bench;
+
+import org.openjdk.jmh.annotations.*;
+import truthtabler.BitSlicedEvaluator;
+import truthtabler.CompiledExpression;
+import truthtabler.LogicNode;
+import truthtabler.ParsedExpression;
+import truthtabler.TruthTabler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowEvaluationBenchmark { //Cost of evaluating one truth table row with each evaluation engine
+    @Param({"10", "16", "24"})
+    public int propositions;
+
+    @Param({"64"})
+    public int operators;
+
+    private char[] props;
+    private LogicNode tree;
+    private Map<Character, Boolean> values;
+    private CompiledExpression program;
+    private CompiledExpression generatedProgram;
+    private boolean[] registers;
+    private BitSlicedEvaluator evaluator;
+    private BitSlicedEvaluator generatedEvaluator;
+    private long rowCount;
+    private long row = 0;
+
+    @Setup
+    public void setup() {
+        String expression = new FormulaGenerator(FormulaGenerator.DEFAULT_SEED, propositions).expression(Math.max(operators, propositions - 1), FormulaGenerator.Shape.RANDOM);
+        ParsedExpression parsed = ParsedExpression.parse(expression, false);
+        props = parsed.getPropositions();
+        tree = TruthTabler.buildTree(expression);
+        values = new HashMap<>();
+        program = parsed.getProgram().withGenerationThreshold(-1); //Always interpreted
+        generatedProgram = parsed.getProgram().withGenerationThreshold(0);
+        generatedProgram.generate();
+        registers = program.newRegisters();
+        evaluator = new BitSlicedEvaluator(program);
+        generatedEvaluator = new BitSlicedEvaluator(generatedProgram);
+        rowCount = 1L << props.length;
+    }
+
+    @Benchmark
+    public boolean tree() { //Recursive tree walk with a map of proposition values
+        long r = row++ & (rowCount - 1);
+        for (int i=0; i<props.length; i++) {
+            values.put(props[i], (r >>> (props.length - 1 - i) & 1L) == 0);
+        }
+        return tree.evaluate(values);
+    }
+
+    @Benchmark
+    public boolean compiled() { //Register program over one packed assignment
+        return program.evaluate(row++ & (rowCount - 1), registers);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BitSlicedEvaluator.DEFAULT_WIDTH * 64)
+    public long bitSliced() { //Register program over a pass of 64 rows per word
+        long word = row & (BitSlicedEvaluator.getWordCount(props.length) - 1);
+        row += BitSlicedEvaluator.DEFAULT_WIDTH;
+        evaluator.evaluate(word);
+        return evaluator.getResultWord(0, 0);
+    }
+
+    @Benchmark
+    public boolean generated() { //Program translated to bytecode over one packed assignment
+        return generatedProgram.evaluate(row++ & (rowCount - 1), registers);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BitSlicedEvaluator.DEFAULT_WIDTH * 64)
+    public long generatedBitSliced() { //Program translated to bytecode over a pass of 64 rows per word
+        long word = row & (BitSlicedEvaluator.getWordCount(props.length) - 1);
+        row += BitSlicedEvaluator.DEFAULT_WIDTH;
+        generatedEvaluator.evaluate(word);
+        return generatedEvaluator.getResultWord(0, 0);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler.bench;
+
+import org.openjdk.jmh.annotations.*;
+import truthtabler.BitSlicedEvaluator;
+import truthtabler.Bdd;
+import truthtabler.ExpressionQuery;
+import truthtabler.ParallelEvaluator;
+import truthtabler.ParsedExpression;
+import truthtabler.TruthTabler;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class TableBenchmark { //Full truth table generation, counting satisfying rows over the whole table, and queries that skip the table
+    @Param({"8", "12", "16", "20", "24"})
+    public int propositions;
+
+    @Param({"32"})
+    public int operators;
+
+    private String expression;
+    private ParsedExpression parsed;
+
+    @Setup
+    public void setup() {
+        expression = new FormulaGenerator(FormulaGenerator.DEFAULT_SEED, propositions).expression(Math.max(operators, propositions - 1), FormulaGenerator.Shape.RANDOM);
+        parsed = ParsedExpression.parse(expression, false);
+    }
+
+    @Benchmark
+    public long render() throws IOException { //Formatted table, as printed by -e
+        NullAppendable out = new NullAppendable();
+        TruthTabler.writeExpressionTable(expression, out);
+        return out.getLength();
+    }
+
+    @Benchmark
+    public long countBitSliced() {
+        return new BitSlicedEvaluator(parsed.getProgram()).countSatisfying(0);
+    }
+
+    @Benchmark
+    public long countParallel() {
+        return new ParallelEvaluator(parsed.getProgram()).countSatisfying(0);
+    }
+
+    @Benchmark
+    public long countBdd() {
+        Bdd bdd = new Bdd(parsed.getPropositions());
+        return bdd.satCount(bdd.build(parsed.getRoot(0)));
+    }
+
+    @Benchmark
+    public long countQuery() { //Count as answered by -q count
+        return new ExpressionQuery(parsed).count();
+    }
+
+    @Benchmark
+    public boolean satisfiableQuery() { //Stops at the first satisfying row
+        return new ExpressionQuery(parsed).isSatisfiable();
+    }
+}
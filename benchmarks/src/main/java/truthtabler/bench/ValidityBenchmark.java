@@ -0,0 +1,78 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler.bench;
+
+import org.openjdk.jmh.annotations.*;
+import truthtabler.BitSlicedEvaluator;
+import truthtabler.Bdd;
+import truthtabler.LogicNode;
+import truthtabler.ParallelEvaluator;
+import truthtabler.ParsedExpression;
+import truthtabler.ValidityChecker;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidityBenchmark { //Argument validity checks with each engine on the same arguments
+    public enum Engine {
+        SAT,
+        BDD,
+        TABLE,
+        PARALLEL
+    }
+
+    public enum Kind {
+        RANDOM, //Random premises and conclusion (usually invalid, so enumeration can stop early)
+        CHAIN //Valid chain of conditionals (every row has to be ruled out)
+    }
+
+    @Param({"8", "16", "24"})
+    public int propositions;
+
+    @Param({"RANDOM", "CHAIN"})
+    public Kind kind;
+
+    @Param({"SAT", "BDD", "TABLE", "PARALLEL"})
+    public Engine engine;
+
+    private ParsedExpression parsed;
+    private LogicNode[] premises;
+    private LogicNode conclusion;
+
+    @Setup
+    public void setup() {
+        String argument = kind == Kind.CHAIN ? FormulaGenerator.chainArgument(propositions) : new FormulaGenerator(FormulaGenerator.DEFAULT_SEED, propositions).argument(3, Math.max(8, propositions - 1));
+        parsed = ParsedExpression.parse(argument, true);
+        LogicNode[] roots = parsed.getRoots();
+        premises = Arrays.copyOf(roots, roots.length - 1);
+        conclusion = roots[roots.length - 1];
+    }
+
+    @Benchmark
+    public boolean check() {
+        switch (engine) {
+            case SAT:
+                return ValidityChecker.checkArgument(premises, conclusion, parsed.getPropositions()).isValid();
+            case BDD:
+                return new Bdd(parsed.getPropositions()).isValid(premises, conclusion);
+            case TABLE:
+                return new BitSlicedEvaluator(parsed.getProgram()).isValid();
+            default: //PARALLEL
+                return new ParallelEvaluator(parsed.getProgram()).isValid();
+        }
+    }
+}
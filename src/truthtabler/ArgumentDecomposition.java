@@ -0,0 +1,267 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ArgumentDecomposition { //Splits an argument into groups of constraints that share no propositions, so that validity is decided per group over 2^n_i rows instead of over all 2^n
+    private final char[] propositions;
+    private final List<char[]> componentPropositions = new ArrayList<>(); //Propositions of each component, in index order
+    private final List<LogicNode[]> componentPremises = new ArrayList<>(); //Constraints of each component that must be true in a counterexample
+    private final List<LogicNode> componentConclusions = new ArrayList<>(); //Disjunction of the constraints of each component that must be false in a counterexample
+    private final NodeFactory factory = new NodeFactory(); //Builds the disjunctions of the conclusions
+    private boolean contradictory = false; //Whether some constraint can never hold (so the argument is valid)
+
+    public interface Checker { //Decides the validity of one component
+        /**
+         * Check the validity of the argument of a component
+         *
+         * @param premises Root nodes of the premises (may be empty)
+         * @param conclusion Root node of the conclusion
+         * @param propositions Propositions of the component, in index order
+         * @return Validity result over propositions
+         */
+        ValidityResult check(LogicNode[] premises, LogicNode conclusion, char[] propositions);
+    }
+
+    /**
+     * Decompose an argument. A counterexample makes every premise true and the conclusion false; premises that are
+     * conjunctions and conclusions that are disjunctions or conditionals are split into those constraints first,
+     * then constraints are grouped by the propositions they share (with a union-find over the propositions)
+     *
+     * @param premises Root nodes of the premises
+     * @param conclusion Root node of the conclusion
+     * @param propositions Proposition characters in index order
+     */
+    public ArgumentDecomposition(LogicNode[] premises, LogicNode conclusion, char[] propositions) {
+        this.propositions = propositions.clone();
+        List<LogicNode> constraints = new ArrayList<>();
+        List<Boolean> values = new ArrayList<>();
+        for (LogicNode premise: premises) {
+            split(premise, true, constraints, values);
+        }
+        split(conclusion, false, constraints, values);
+
+        int[] parent = new int[propositions.length]; //Union-find over proposition indices
+        for (int i=0; i<parent.length; i++) {
+            parent[i] = i;
+        }
+        Map<Character, Integer> index = new HashMap<>();
+        for (int i=0; i<propositions.length; i++) {
+            index.put(propositions[i], i);
+        }
+        List<char[]> used = new ArrayList<>();
+        for (int c=0; c<constraints.size(); c++) {
+            char[] props = ParsedExpression.getUsedPropositions(new LogicNode[]{constraints.get(c)}, propositions);
+            used.add(props);
+            for (int i=1; i<props.length; i++) {
+                union(parent, index.get(props[0]), index.get(props[i]));
+            }
+        }
+
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>(); //Constraints of each component, by the component's root proposition
+        for (int c=0; c<constraints.size(); c++) {
+            if (used.get(c).length == 0) { //Constant that simplification left in place
+                if (constraints.get(c).evaluate(new HashMap<>()) != values.get(c)) {
+                    contradictory = true;
+                }
+                continue;
+            }
+            groups.computeIfAbsent(find(parent, index.get(used.get(c)[0])), k -> new ArrayList<>()).add(c);
+        }
+        List<List<Integer>> ordered = new ArrayList<>(groups.values());
+        Map<List<Integer>, char[]> groupPropositions = new HashMap<>();
+        for (List<Integer> group: ordered) {
+            StringBuilder props = new StringBuilder();
+            for (int c: group) {
+                props.append(used.get(c));
+            }
+            groupPropositions.put(group, inOrder(props.toString()));
+        }
+        ordered.sort(Comparator.comparingInt(group -> groupPropositions.get(group).length)); //Smallest components first, so that a valid one ends the check early
+        for (List<Integer> group: ordered) {
+            List<LogicNode> premiseList = new ArrayList<>();
+            LogicNode disjunction = null;
+            for (int c: group) {
+                if (values.get(c)) {
+                    premiseList.add(constraints.get(c));
+                } else {
+                    LogicNode constraint = factory.intern(constraints.get(c));
+                    disjunction = disjunction == null ? constraint : factory.operator('v', disjunction, constraint, false);
+                }
+            }
+            componentPremises.add(premiseList.toArray(new LogicNode[0]));
+            componentConclusions.add(disjunction == null ? factory.constant(false) : disjunction);
+            componentPropositions.add(groupPropositions.get(group));
+        }
+    }
+
+    /**
+     * Split a constraint into smaller constraints that must all hold: a true conjunction, a false disjunction or
+     * a false conditional. Constraints that always hold are dropped
+     *
+     * @param node Root node of the constraint
+     * @param value Truth value the node must have
+     * @param constraints Constraints found (added to)
+     * @param values Truth value of each constraint (added to)
+     */
+    private void split(LogicNode node, boolean value, List<LogicNode> constraints, List<Boolean> values) {
+        ArrayDeque<LogicNode> nodes = new ArrayDeque<>(); //Explicit stack of (node, value) pairs so that deep trees can't overflow the call stack
+        ArrayDeque<Boolean> nodeValues = new ArrayDeque<>();
+        nodes.push(node);
+        nodeValues.push(value);
+        while (!nodes.isEmpty()) {
+            node = nodes.pop();
+            value = nodeValues.pop();
+            if (node.type == NodeType.OPERATOR) {
+                boolean operatorValue = value != node.inverted; //Value of the operator without the node's negation
+                boolean leftValue;
+                if (node.val == '&' && operatorValue) {
+                    leftValue = true;
+                } else if (node.val == 'v' && !operatorValue) {
+                    leftValue = false;
+                } else if ((node.val == '>' || node.val == '⊃') && !operatorValue) {
+                    leftValue = true;
+                } else {
+                    constraints.add(node);
+                    values.add(value);
+                    continue;
+                }
+                nodes.push(node.right); //Right first, so that the left side's constraints come first
+                nodeValues.push(node.val == '&');
+                nodes.push(node.left);
+                nodeValues.push(leftValue);
+            } else if (node.type == NodeType.CONSTANT) {
+                contradictory |= node.inverted == value;
+            } else {
+                constraints.add(node);
+                values.add(value);
+            }
+        }
+    }
+
+    /**
+     * Get the number of components
+     *
+     * @return Number of groups of constraints sharing no propositions
+     */
+    public int getComponentCount() {
+        return componentPremises.size();
+    }
+
+    /**
+     * Get the propositions of a component
+     *
+     * @param component Index of the component (smallest first)
+     * @return Propositions in index order
+     */
+    public char[] getPropositions(int component) {
+        return componentPropositions.get(component).clone();
+    }
+
+    /**
+     * Get the constraints of a component that must be true in a counterexample
+     *
+     * @param component Index of the component
+     * @return Root nodes (shared with the argument, and must not be modified)
+     */
+    public LogicNode[] getPremises(int component) {
+        return componentPremises.get(component).clone();
+    }
+
+    /**
+     * Get the disjunction of the constraints of a component that must be false in a counterexample
+     *
+     * @param component Index of the component
+     * @return Root node (⊥ if the component only constrains premises)
+     */
+    public LogicNode getConclusion(int component) {
+        return componentConclusions.get(component);
+    }
+
+    /**
+     * Get the number of rows enumerating every component separately takes
+     *
+     * @return Sum of 2^n_i over the components (Long.MAX_VALUE if that overflows)
+     */
+    public long getRowCount() {
+        long res = 0;
+        for (char[] props: componentPropositions) {
+            res = props.length >= 63 || res + (1L << props.length) < 0 ? Long.MAX_VALUE : res + (1L << props.length);
+        }
+        return res;
+    }
+
+    /**
+     * Decide the validity of the argument. It is valid if some component has no row where its constraints hold;
+     * otherwise the counterexamples of the components together are one of the whole argument (propositions no
+     * constraint uses are set to true)
+     *
+     * @param checker Validity check run on each component, smallest first, until one is valid
+     * @return Validity result over every proposition of the argument
+     */
+    public ValidityResult check(Checker checker) {
+        if (contradictory) {
+            return new ValidityResult(propositions, null);
+        }
+        boolean[] counterexample = new boolean[propositions.length];
+        Arrays.fill(counterexample, true);
+        for (int i=0; i<getComponentCount(); i++) {
+            char[] props = componentPropositions.get(i);
+            ValidityResult result = checker.check(getPremises(i), getConclusion(i), props);
+            if (result.isValid()) {
+                return new ValidityResult(propositions, null);
+            }
+            boolean[] values = result.getCounterexample();
+            for (int j=0, k=0; j<propositions.length && k<props.length; j++) {
+                if (propositions[j] == props[k]) {
+                    counterexample[j] = values[k++];
+                }
+            }
+        }
+        return new ValidityResult(propositions, counterexample);
+    }
+
+    /**
+     * Get the propositions of a string that are in the argument, in index order
+     *
+     * @param props Proposition characters (may repeat)
+     * @return Distinct propositions in index order
+     */
+    private char[] inOrder(String props) {
+        StringBuilder res = new StringBuilder();
+        for (char prop: propositions) {
+            if (props.indexOf(prop) >= 0) {
+                res.append(prop);
+            }
+        }
+        return res.toString().toCharArray();
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]]; //Path halving
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+}
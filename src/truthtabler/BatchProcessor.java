@@ -0,0 +1,216 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchProcessor { //Evaluates a stream of expressions and arguments (one per line) on a worker pool, writing one JSON result per line in input order
+    public static final int DEFAULT_WINDOW_PER_THREAD = 64; //Lines in flight per worker thread
+    static final long CACHE_WEIGHT = 1 << 16; //Weight of the cache of parsed lines, kept small since batch inputs are mostly distinct
+    static final int MIN_BDD_CACHE_SIZE = 1 << 10; //ITE cache entries of the BDD built for a small line (a large cache costs more to allocate than it saves)
+    static final int MAX_BDD_CACHE_SIZE = 1 << 16; //ITE cache entries of the BDD built for a large line
+    static final long BDD_STEP_LIMIT = 1 << 20; //ITE steps the satisfying row count of a line may take (a few hundred milliseconds) before it is reported as null
+
+    private final int threads;
+    private final int window; //Maximum number of lines read but not yet written
+    private final ExpressionCache cache = new ExpressionCache(CACHE_WEIGHT); //Parsed repeated lines, separate from the shared cache so a large batch doesn't evict or bloat it
+
+    /**
+     * Construct a new batch processor
+     *
+     * @param threads Number of worker threads
+     * @param window Maximum number of lines in flight (read but not yet written)
+     * @throws IllegalArgumentException If threads or window is less than 1
+     */
+    public BatchProcessor(int threads, int window) {
+        if (threads < 1 || window < 1) {
+            throw new IllegalArgumentException("Threads and window must be positive");
+        }
+        this.threads = threads;
+        this.window = window;
+    }
+
+    /**
+     * Construct a new batch processor with the default window
+     *
+     * @param threads Number of worker threads
+     * @throws IllegalArgumentException If threads is less than 1
+     */
+    public BatchProcessor(int threads) {
+        this(threads, threads * DEFAULT_WINDOW_PER_THREAD);
+    }
+
+    /**
+     * Evaluate every line of in and write the results to out as JSON Lines, in input order. Lines containing a comma
+     * are arguments (premises then the conclusion), other lines are expressions, and blank lines are skipped. Once
+     * the window is full, reading waits for the oldest line to be written, so memory use does not grow with the input
+     *
+     * @param in Input with one expression or argument per line
+     * @param out Output to write the results to
+     * @throws IOException If reading in or writing out fails
+     * @return Number of results written
+     */
+    public long process(BufferedReader in, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>(); //Results not yet written, oldest first
+        long lineNumber = 0;
+        long written = 0;
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String expr = line.trim();
+                if (expr.isEmpty()) {
+                    continue;
+                }
+                long number = lineNumber;
+                pending.add(pool.submit(() -> evaluateLine(number, expr, cache)));
+                while (pending.size() >= window) { //Backpressure - write the oldest result before reading more
+                    writeResult(pending.poll(), out);
+                    written++;
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeResult(pending.poll(), out);
+                written++;
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        return written;
+    }
+
+    /**
+     * Wait for a result and write it as one line
+     *
+     * @param result Pending result
+     * @param out Output to write to
+     * @throws IOException If writing fails or the wait is interrupted
+     */
+    private static void writeResult(Future<String> result, Writer out) throws IOException {
+        try {
+            out.append(result.get()).append('\n');
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a result");
+        } catch (ExecutionException e) { //Not thrown by evaluateLine, which reports errors in the result
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Evaluate one expression or argument. Validity (or for an expression, whether it is a tautology) and the
+     * counterexample come from the SAT solver, and the number of rows where every part is true comes from a BDD
+     *
+     * @param lineNumber Line number in the input (starting at 1)
+     * @param expr Expression, or comma separated argument
+     * @param cache Cache to parse expr through
+     * @return JSON object on one line
+     */
+    public static String evaluateLine(long lineNumber, String expr, ExpressionCache cache) {
+        StringBuilder res = new StringBuilder("{\"line\":").append(lineNumber).append(',');
+        appendResult(res, expr, cache);
+        return res.append('}').toString();
+    }
+
+    /**
+     * Evaluate one expression or argument and append the fields of its result (from "input" to "micros") to a
+     * JSON object
+     *
+     * @param res JSON object being built
+     * @param expr Expression, or comma separated argument
+     * @param cache Cache to parse expr through
+     */
+    static void appendResult(StringBuilder res, String expr, ExpressionCache cache) {
+        long start = System.nanoTime();
+        boolean argument = expr.indexOf(',') >= 0;
+        res.append("\"input\":");
+        appendString(res, expr);
+        res.append(",\"type\":\"").append(argument ? "argument" : "expression").append('"');
+        try {
+            ParsedExpression parsed = argument ? cache.getArgument(expr) : cache.getExpression(expr);
+            char[] propositions = parsed.getPropositions();
+            LogicNode[] roots = parsed.getRoots();
+            LogicNode[] premises = Arrays.copyOf(roots, roots.length-1); //No premises for an expression
+            long validityStart = System.nanoTime();
+            ValidityResult validity = ValidityChecker.checkArgument(premises, roots[roots.length-1], propositions);
+            RuntimeStats.record(RuntimeStats.Phase.VALIDITY, validityStart);
+
+            res.append(",\"propositions\":");
+            appendString(res, new String(propositions));
+            res.append(",\"valid\":").append(validity.isValid()).append(",\"counterexample\":");
+            boolean[] counterexample = validity.getCounterexample();
+            if (counterexample == null) {
+                res.append("null");
+            } else {
+                res.append('{');
+                for (int i=0; i<propositions.length; i++) {
+                    res.append(i > 0 ? ",\"" : "\"").append(propositions[i]).append("\":").append(counterexample[i]);
+                }
+                res.append('}');
+            }
+            res.append(",\"satisfying\":");
+            if (propositions.length <= 62) { //Count rows where every premise and the conclusion are true
+                long cacheSize = 4L * parsed.getProgram().size() * propositions.length; //Diagrams (and the ITE steps building them) grow with both
+                Bdd bdd = new Bdd(propositions, (int) Math.max(MIN_BDD_CACHE_SIZE, Math.min(MAX_BDD_CACHE_SIZE, cacheSize)));
+                bdd.setStepLimit(BDD_STEP_LIMIT);
+                try {
+                    int all = Bdd.TRUE;
+                    for (LogicNode root: roots) {
+                        all = bdd.and(all, bdd.build(root));
+                    }
+                    res.append(bdd.satCount(all));
+                } catch (Bdd.LimitExceededException e) { //Too large to count quickly, so that one line can't hold up the lines after it
+                    res.append("null");
+                }
+                res.append(",\"rows\":").append(1L << propositions.length);
+            } else { //Too many rows to count in a long
+                res.append("null,\"rows\":null");
+            }
+        } catch (Exception e) {
+            String message = e.getMessage() == null ? e.toString() : e.getMessage();
+            res.append(",\"error\":");
+            appendString(res, message.startsWith("Error: ") ? message.substring(7) : message);
+        }
+        res.append(",\"micros\":").append((System.nanoTime() - start) / 1000);
+    }
+
+    /**
+     * Append a string to a JSON document as a quoted, escaped string
+     *
+     * @param res JSON being built
+     * @param s String to append
+     */
+    static void appendString(StringBuilder res, String s) {
+        res.append('"');
+        for (int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                res.append('\\').append(c);
+            } else if (c < 0x20) { //Control characters
+                res.append(String.format("\\u%04x", (int) c));
+            } else {
+                res.append(c);
+            }
+        }
+        res.append('"');
+    }
+}
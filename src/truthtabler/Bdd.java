@@ -0,0 +1,511 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class Bdd { //Reduced ordered binary decision diagram manager. Nodes are int handles and are never freed
+    public static final int FALSE = 0; //Terminal node for false
+    public static final int TRUE = 1; //Terminal node for true
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16; //Default number of ITE cache entries
+
+    private final char[] order; //Proposition characters by level (level 0 is tested first)
+    private int[] levels; //Level of each node (the number of variables for terminals)
+    private int[] lows; //Node for the variable being false
+    private int[] highs; //Node for the variable being true
+    private int size = 2; //Number of nodes
+    private int[] unique; //Open addressing unique table of node index + 1 (0 for empty)
+    private final int[] cacheF; //ITE cache operands and results, direct mapped so that new entries evict old ones
+    private final int[] cacheG;
+    private final int[] cacheH;
+    private final int[] cacheResults;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+    private long stepLimit = Long.MAX_VALUE; //Most ITE cache misses before operations give up
+    private long deadline = 0; //System.nanoTime() to give up at
+    private boolean timed = false; //Whether there is a deadline
+
+    public static class LimitExceededException extends RuntimeException { //Thrown by operations once the step limit is used up
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Construct a new limit exception
+         *
+         * @param limit Step limit that was reached
+         */
+        public LimitExceededException(long limit) {
+            super("Error: BDD step limit of " + limit + " reached");
+        }
+    }
+
+    /**
+     * Construct a new BDD manager
+     *
+     * @param order Proposition characters in variable order (the first is tested at the root)
+     * @param cacheSize Number of ITE cache entries (rounded up to a power of two)
+     */
+    public Bdd(char[] order, int cacheSize) {
+        this.order = order.clone();
+        int capacity = 1024;
+        levels = new int[capacity];
+        lows = new int[capacity];
+        highs = new int[capacity];
+        levels[FALSE] = order.length;
+        levels[TRUE] = order.length;
+        unique = new int[capacity * 2];
+        int cache = Integer.highestOneBit(Math.max(cacheSize - 1, 1)) << 1;
+        cacheF = new int[cache];
+        cacheG = new int[cache];
+        cacheH = new int[cache];
+        cacheResults = new int[cache];
+        Arrays.fill(cacheF, -1);
+    }
+
+    /**
+     * Construct a new BDD manager with the default cache size
+     *
+     * @param order Proposition characters in variable order (the first is tested at the root)
+     */
+    public Bdd(char[] order) {
+        this(order, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Limit the work of every later operation together. Each ITE cache miss is one step, and only a miss can create
+     * a node, so the limit bounds both the time spent and the number of nodes
+     *
+     * @param steps Most ITE cache misses (counted since the manager was constructed)
+     */
+    public void setStepLimit(long steps) {
+        this.stepLimit = steps;
+    }
+
+    /**
+     * Make every later operation give up at a deadline, checked once every 1024 ITE cache misses
+     *
+     * @param deadline System.nanoTime() value to give up at
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        this.timed = true;
+    }
+
+    /**
+     * Get the node for a single proposition
+     *
+     * @param prop Proposition character
+     * @throws IllegalArgumentException If the proposition is not in the variable order
+     * @return Node that is true exactly when prop is true
+     */
+    public int variable(char prop) {
+        return makeNode(CompiledExpression.indexOf(order, prop), FALSE, TRUE);
+    }
+
+    /**
+     * If-then-else: the node for (f AND g) OR (NOT f AND h)
+     *
+     * @param f Condition node
+     * @param g Node when f is true
+     * @param h Node when f is false
+     * @return Result node
+     */
+    public int ite(int f, int g, int h) {
+        if (f == TRUE) { //Terminal cases
+            return g;
+        } else if (f == FALSE) {
+            return h;
+        } else if (g == h) {
+            return g;
+        } else if (g == TRUE && h == FALSE) {
+            return f;
+        }
+        int slot = (int) (((f * 0x9E3779B97F4A7C15L) ^ (g * 0xC2B2AE3D27D4EB4FL) ^ (h * 0x165667B19E3779F9L)) >>> 40) & (cacheF.length - 1);
+        if (cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h) {
+            cacheHits++;
+            return cacheResults[slot];
+        }
+        if (++cacheMisses > stepLimit) {
+            throw new LimitExceededException(stepLimit);
+        }
+        if (timed && (cacheMisses & 1023) == 0) {
+            TimeLimitExceededException.check(deadline);
+        }
+        int level = Math.min(levels[f], Math.min(levels[g], levels[h])); //Split on the top variable
+        int low = ite(cofactor(f, level, false), cofactor(g, level, false), cofactor(h, level, false));
+        int high = ite(cofactor(f, level, true), cofactor(g, level, true), cofactor(h, level, true));
+        int res = makeNode(level, low, high);
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheH[slot] = h;
+        cacheResults[slot] = res;
+        return res;
+    }
+
+    /**
+     * Get the negation of a node
+     *
+     * @param f Node
+     * @return NOT f
+     */
+    public int not(int f) {
+        return ite(f, FALSE, TRUE);
+    }
+
+    /**
+     * Get the conjunction of two nodes
+     *
+     * @param f Left node
+     * @param g Right node
+     * @return f AND g
+     */
+    public int and(int f, int g) {
+        return ite(f, g, FALSE);
+    }
+
+    /**
+     * Get the disjunction of two nodes
+     *
+     * @param f Left node
+     * @param g Right node
+     * @return f OR g
+     */
+    public int or(int f, int g) {
+        return ite(f, TRUE, g);
+    }
+
+    /**
+     * Get the conditional of two nodes
+     *
+     * @param f Antecedent node
+     * @param g Consequent node
+     * @return f ⊃ g
+     */
+    public int implies(int f, int g) {
+        return ite(f, g, TRUE);
+    }
+
+    /**
+     * Get the biconditional of two nodes
+     *
+     * @param f Left node
+     * @param g Right node
+     * @return f ≡ g
+     */
+    public int iff(int f, int g) {
+        return ite(f, g, not(g));
+    }
+
+    /**
+     * Build the node for a tree
+     *
+     * @param root Root node of the tree
+     * @throws IllegalArgumentException If the tree uses a proposition not in the variable order
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return BDD node
+     */
+    public int build(LogicNode root) {
+        Map<LogicNode, Integer> nodes = new IdentityHashMap<>(); //BDD node of each tree node (shared nodes are built once)
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>(); //Explicit post-order stack so that deep trees can't overflow the call stack
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            LogicNode node = stack.peek();
+            if (nodes.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            if (node.type == NodeType.OPERATOR && (!nodes.containsKey(node.left) || !nodes.containsKey(node.right))) { //Build children first
+                if (!nodes.containsKey(node.right)) {
+                    stack.push(node.right);
+                }
+                if (!nodes.containsKey(node.left)) {
+                    stack.push(node.left);
+                }
+                continue;
+            }
+            stack.pop();
+            int res;
+            if (node.type == NodeType.OPERATOR) {
+                int a = nodes.get(node.left);
+                int b = nodes.get(node.right);
+                switch (CompiledExpression.getOpcode(node.val)) {
+                    case CompiledExpression.OR:
+                        res = or(a, b);
+                        break;
+                    case CompiledExpression.AND:
+                        res = and(a, b);
+                        break;
+                    case CompiledExpression.IMPLIES:
+                        res = implies(a, b);
+                        break;
+                    default: //IFF
+                        res = iff(a, b);
+                        break;
+                }
+            } else if (node.type == NodeType.CONSTANT) {
+                res = TRUE;
+            } else {
+                res = variable(node.val);
+            }
+            nodes.put(node, node.inverted ? not(res) : res);
+        }
+        return nodes.get(root);
+    }
+
+    /**
+     * Determine whether an argument is valid: the conjunction of the premises implies the conclusion in every row
+     *
+     * @param premises Root nodes of the premises
+     * @param conclusion Root node of the conclusion
+     * @return True if valid
+     */
+    public boolean isValid(LogicNode[] premises, LogicNode conclusion) {
+        int premise = TRUE;
+        for (LogicNode node: premises) {
+            premise = and(premise, build(node));
+        }
+        return implies(premise, build(conclusion)) == TRUE;
+    }
+
+    /**
+     * Determine whether two trees are logically equivalent
+     *
+     * @param a Root node of the first tree
+     * @param b Root node of the second tree
+     * @return True if both are true in exactly the same rows
+     */
+    public boolean isEquivalent(LogicNode a, LogicNode b) {
+        return build(a) == build(b); //Reduced ordered BDDs are canonical
+    }
+
+    /**
+     * Count the assignments of all variables in the order that satisfy a node
+     *
+     * @param f Node
+     * @throws ArithmeticException If there are more than 62 variables
+     * @return Number of satisfying assignments
+     */
+    public long satCount(int f) {
+        if (order.length > 62) {
+            throw new ArithmeticException("Too many variables to count in a long: " + order.length);
+        }
+        long[] counts = new long[size];
+        Arrays.fill(counts, -1);
+        return countBelow(f, counts) << levels[f];
+    }
+
+    /**
+     * Count the satisfying assignments of the variables at or below a node's level
+     *
+     * @param f Node
+     * @param counts Memo of counts by node (-1 for not yet counted)
+     * @return Number of satisfying assignments
+     */
+    private long countBelow(int f, long[] counts) {
+        if (f <= TRUE) {
+            return f;
+        }
+        if (counts[f] < 0) {
+            int low = lows[f];
+            int high = highs[f];
+            counts[f] = (countBelow(low, counts) << (levels[low] - levels[f] - 1)) + (countBelow(high, counts) << (levels[high] - levels[f] - 1));
+        }
+        return counts[f];
+    }
+
+    /**
+     * Find one satisfying assignment of a node
+     *
+     * @param f Node
+     * @return Truth value of each proposition in the variable order (unconstrained ones are false), or null if f is false
+     */
+    public boolean[] anySat(int f) {
+        if (f == FALSE) {
+            return null;
+        }
+        boolean[] res = new boolean[order.length];
+        while (f != TRUE) {
+            if (lows[f] != FALSE) {
+                f = lows[f];
+            } else {
+                res[levels[f]] = true;
+                f = highs[f];
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Find the first satisfying assignment of a node in truth table order (the first row is all true)
+     *
+     * @param f Node
+     * @return Truth value of each proposition in the variable order, or null if f is false
+     */
+    public boolean[] firstSat(int f) {
+        if (f == FALSE) {
+            return null;
+        }
+        boolean[] res = new boolean[order.length];
+        Arrays.fill(res, true); //Unconstrained variables stay true
+        while (f != TRUE) { //Every node other than FALSE has a satisfying path, so take true whenever it leads to one
+            if (highs[f] != FALSE) {
+                f = highs[f];
+            } else {
+                res[levels[f]] = false;
+                f = lows[f];
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get the number of nodes reachable from a node (including terminals)
+     *
+     * @param f Node
+     * @return Size of the BDD rooted at f
+     */
+    public int nodeCount(int f) {
+        boolean[] seen = new boolean[size];
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(f);
+        int res = 0;
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            if (!seen[node]) {
+                seen[node] = true;
+                res++;
+                if (node > TRUE) {
+                    stack.push(lows[node]);
+                    stack.push(highs[node]);
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get the total number of nodes in the manager
+     *
+     * @return Number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the proposition characters in variable order
+     *
+     * @return Copy of the variable order
+     */
+    public char[] getOrder() {
+        return order.clone();
+    }
+
+    /**
+     * Get the number of ITE cache hits
+     *
+     * @return Cache hits
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Get the number of ITE cache misses
+     *
+     * @return Cache misses
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Get the cofactor of a node with the variable at a level fixed
+     *
+     * @param f Node
+     * @param level Level of the variable (at or above f's level)
+     * @param value Value of the variable
+     * @return Cofactor node
+     */
+    private int cofactor(int f, int level, boolean value) {
+        if (levels[f] != level) {
+            return f;
+        }
+        return value ? highs[f] : lows[f];
+    }
+
+    /**
+     * Get the unique node for a level and children, creating it if needed
+     *
+     * @param level Variable level
+     * @param low Node when the variable is false
+     * @param high Node when the variable is true
+     * @return Node
+     */
+    private int makeNode(int level, int low, int high) {
+        if (low == high) { //Redundant test
+            return low;
+        }
+        int mask = unique.length - 1;
+        int slot = hash(level, low, high) & mask;
+        while (unique[slot] != 0) {
+            int node = unique[slot] - 1;
+            if (levels[node] == level && lows[node] == low && highs[node] == high) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == levels.length) { //Grow the node arrays
+            levels = Arrays.copyOf(levels, size * 2);
+            lows = Arrays.copyOf(lows, size * 2);
+            highs = Arrays.copyOf(highs, size * 2);
+        }
+        int node = size++;
+        levels[node] = level;
+        lows[node] = low;
+        highs[node] = high;
+        unique[slot] = node + 1;
+        if (size * 2 > unique.length) { //Keep the unique table at most half full
+            rehash();
+        }
+        return node;
+    }
+
+    /**
+     * Double the unique table and reinsert every node
+     */
+    private void rehash() {
+        unique = new int[unique.length * 2];
+        int mask = unique.length - 1;
+        for (int node=2; node<size; node++) {
+            int slot = hash(levels[node], lows[node], highs[node]) & mask;
+            while (unique[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            unique[slot] = node + 1;
+        }
+    }
+
+    /**
+     * Hash a node for the unique table
+     *
+     * @param level Variable level
+     * @param low Low child
+     * @param high High child
+     * @return Hash code
+     */
+    private static int hash(int level, int low, int high) {
+        long h = level * 0x9E3779B97F4A7C15L + low * 0xC2B2AE3D27D4EB4FL + high * 0x165667B19E3779F9L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
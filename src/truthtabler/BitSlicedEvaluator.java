@@ -0,0 +1,297 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+public class BitSlicedEvaluator { //Evaluates a compiled program over truth table rows, 64 rows per word
+    public static final int DEFAULT_WIDTH = 16; //Words evaluated per pass over the program
+    private static final long[] LOW_PATTERNS = { //Column words for the propositions that change within a word (bit t set when row t is true)
+            0x5555555555555555L,
+            0x3333333333333333L,
+            0x0F0F0F0F0F0F0F0FL,
+            0x00FF00FF00FF00FFL,
+            0x0000FFFF0000FFFFL,
+            0x00000000FFFFFFFFL
+    };
+
+    private final CompiledExpression program;
+    private final int propCount; //Number of propositions
+    private final int width; //Words per pass
+    private final long wordCount; //Total words in the table
+    private final long[] columns;
+    private final long[] registers;
+
+    /**
+     * Construct a new evaluator for a program. Instances hold scratch space and are not thread-safe
+     *
+     * @param program Compiled program
+     * @param width Number of words evaluated per pass over the program
+     */
+    public BitSlicedEvaluator(CompiledExpression program, int width) {
+        this.program = program;
+        this.propCount = program.propositions.length;
+        this.wordCount = getWordCount(propCount);
+        this.width = (int) Math.min(width, wordCount);
+        this.columns = new long[propCount * this.width];
+        this.registers = program.newWordRegisters(this.width);
+    }
+
+    /**
+     * Construct a new evaluator for a program with the default width
+     *
+     * @param program Compiled program
+     */
+    public BitSlicedEvaluator(CompiledExpression program) {
+        this(program, DEFAULT_WIDTH);
+    }
+
+    /**
+     * Get the number of words needed to hold every row of a truth table
+     *
+     * @param propCount Number of propositions
+     * @return Number of words
+     */
+    public static long getWordCount(int propCount) {
+        return propCount > 6 ? 1L << (propCount - 6) : 1;
+    }
+
+    /**
+     * Get the mask of bits in a word that are rows of the table (all bits unless there are fewer than 64 rows)
+     *
+     * @param propCount Number of propositions
+     * @return Mask of valid row bits
+     */
+    public static long getWordMask(int propCount) {
+        return propCount >= 6 ? -1L : (1L << (1 << propCount)) - 1;
+    }
+
+    /**
+     * Get the column word of a proposition in truth table order (the first row is all true and the last
+     * proposition alternates fastest)
+     *
+     * @param propCount Number of propositions
+     * @param prop Index of the proposition
+     * @param word Index of the word (rows word*64 to word*64 + 63)
+     * @return Truth values of the proposition, one bit per row
+     */
+    public static long getColumnWord(int propCount, int prop, long word) {
+        int shift = propCount - 1 - prop; //Bit of the row index that drives this proposition
+        if (shift < 6) {
+            return LOW_PATTERNS[shift];
+        }
+        return (word >>> (shift - 6) & 1L) == 0 ? -1L : 0L;
+    }
+
+    /**
+     * Evaluate a pass of words starting at firstWord
+     *
+     * @param firstWord Index of the first word
+     * @return Number of words evaluated (less than the width at the end of the table)
+     */
+    public int evaluate(long firstWord) {
+        int count = (int) Math.min(width, wordCount - firstWord);
+        for (int p=0; p<propCount; p++) {
+            for (int w=0; w<count; w++) {
+                columns[p*width + w] = getColumnWord(propCount, p, firstWord + w);
+            }
+        }
+        program.runWords(columns, registers, width);
+        return count;
+    }
+
+    /**
+     * Get the result word of a root from the last pass
+     *
+     * @param root Index of the root
+     * @param word Index of the word within the pass
+     * @return Result bits of the root
+     */
+    public long getResultWord(int root, int word) {
+        return program.resultWord(root, registers, width, word);
+    }
+
+    /**
+     * Get the counterexample word of an argument from the last pass. The last root is the conclusion and all
+     * others are premises; a set bit is a row where every premise is true and the conclusion is false
+     *
+     * @param word Index of the word within the pass
+     * @return Counterexample bits (masked to valid rows)
+     */
+    public long getCounterexampleWord(int word) {
+        int conclusion = program.getRootCount() - 1;
+        long res = ~getResultWord(conclusion, word);
+        for (int i=0; i<conclusion; i++) {
+            res &= getResultWord(i, word);
+        }
+        return res & getWordMask(propCount);
+    }
+
+    /**
+     * Find the first counterexample row of an argument
+     *
+     * @return Row index of the first counterexample, or -1 if the argument is valid
+     */
+    public long findCounterexample() {
+        long start = System.nanoTime();
+        long evaluated = 0; //Words evaluated, for the statistics
+        try {
+            for (long word=0; word<wordCount; word+=width) {
+                int count = evaluate(word);
+                evaluated += count;
+                for (int w=0; w<count; w++) {
+                    long bits = getCounterexampleWord(w);
+                    if (bits != 0) {
+                        return ((word + w) << 6) + Long.numberOfTrailingZeros(bits);
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            recordStats(evaluated, start);
+        }
+    }
+
+    /**
+     * Find the first row where a root is true
+     *
+     * @param root Index of the root
+     * @return Row index of the first satisfying row, or -1 if there is none
+     */
+    public long findSatisfying(int root) {
+        long start = System.nanoTime();
+        long evaluated = 0; //Words evaluated, for the statistics
+        long mask = getWordMask(propCount);
+        try {
+            for (long word=0; word<wordCount; word+=width) {
+                int count = evaluate(word);
+                evaluated += count;
+                for (int w=0; w<count; w++) {
+                    long bits = getResultWord(root, w) & mask;
+                    if (bits != 0) {
+                        return ((word + w) << 6) + Long.numberOfTrailingZeros(bits);
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            recordStats(evaluated, start);
+        }
+    }
+
+    /**
+     * Determine whether an argument is valid
+     *
+     * @return True if no row has all premises true and the conclusion false
+     */
+    public boolean isValid() {
+        return findCounterexample() < 0;
+    }
+
+    /**
+     * Count the rows where a root is true
+     *
+     * @param root Index of the root
+     * @return Number of satisfying rows
+     */
+    public long countSatisfying(int root) {
+        long start = System.nanoTime();
+        long res = 0;
+        long mask = getWordMask(propCount);
+        for (long word=0; word<wordCount; word+=width) {
+            int count = evaluate(word);
+            for (int w=0; w<count; w++) {
+                res += Long.bitCount(getResultWord(root, w) & mask);
+            }
+        }
+        recordStats(wordCount, start);
+        return res;
+    }
+
+    /**
+     * Store the rows where a root is true
+     *
+     * @param root Index of the root
+     * @param rows Row set to fill, with one row per truth table row
+     * @throws IllegalArgumentException If rows has the wrong number of rows
+     */
+    public void collectSatisfying(int root, PackedRowSet rows) {
+        checkRows(rows);
+        long start = System.nanoTime();
+        for (long word=0; word<wordCount; word+=width) {
+            int count = evaluate(word);
+            for (int w=0; w<count; w++) {
+                rows.setWord(word + w, getResultWord(root, w));
+            }
+        }
+        recordStats(wordCount, start);
+    }
+
+    /**
+     * Store the counterexample rows of an argument (the last root is the conclusion)
+     *
+     * @param rows Row set to fill, with one row per truth table row
+     * @throws IllegalArgumentException If rows has the wrong number of rows
+     */
+    public void collectCounterexamples(PackedRowSet rows) {
+        checkRows(rows);
+        long start = System.nanoTime();
+        for (long word=0; word<wordCount; word+=width) {
+            int count = evaluate(word);
+            for (int w=0; w<count; w++) {
+                rows.setWord(word + w, getCounterexampleWord(w));
+            }
+        }
+        recordStats(wordCount, start);
+    }
+
+    /**
+     * Check that a row set has one row per truth table row
+     *
+     * @param rows Row set
+     * @throws IllegalArgumentException If rows has the wrong number of rows
+     */
+    static void checkRows(PackedRowSet rows, int propCount) {
+        if (propCount > 62 || rows.getRowCount() != 1L << propCount) {
+            throw new IllegalArgumentException("Row set of " + rows.getRowCount() + " rows does not match a table of " + propCount + " propositions");
+        }
+    }
+
+    /**
+     * Check that a row set has one row per truth table row
+     *
+     * @param rows Row set
+     * @throws IllegalArgumentException If rows has the wrong number of rows
+     */
+    private void checkRows(PackedRowSet rows) {
+        checkRows(rows, propCount);
+    }
+
+    /**
+     * Record an evaluation of the first words of the table in RuntimeStats
+     *
+     * @param words Number of words evaluated
+     * @param start Value of System.nanoTime() at the start of the evaluation
+     */
+    private void recordStats(long words, long start) {
+        RuntimeStats.addRows(getRowCount(propCount, words), program.size());
+        RuntimeStats.record(RuntimeStats.Phase.EVALUATION, start);
+    }
+
+    /**
+     * Get the number of rows in the first words of a table
+     *
+     * @param propCount Number of propositions
+     * @param words Number of words
+     * @return Number of rows
+     */
+    static long getRowCount(int propCount, long words) {
+        return propCount < 6 ? 1L << propCount : words << 6;
+    }
+}
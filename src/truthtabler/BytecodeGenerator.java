@@ -0,0 +1,341 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BytecodeGenerator { //Writes the class file of a GeneratedEvaluator for a compiled program
+    static final String CLASS_NAME = "truthtabler/GeneratedProgram";
+    private static final String SUPER_NAME = "truthtabler/GeneratedEvaluator";
+    private static final int SEGMENT_SIZE = 150; //Instructions per generated method, which keeps each method under the size the JIT compiles (8000 bytes)
+
+    //JVM opcodes used by the generated code
+    private static final int ICONST_0 = 0x03, ICONST_1 = 0x04, LCONST_0 = 0x09, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13, LDC2_W = 0x14;
+    private static final int ILOAD = 0x15, LLOAD = 0x16, ALOAD = 0x19, LALOAD = 0x2f, BALOAD = 0x33, LSTORE = 0x37, LASTORE = 0x50, BASTORE = 0x54;
+    private static final int IADD = 0x60, IMUL = 0x68, LNEG = 0x75, LSHL = 0x79, LSHR = 0x7b, IAND = 0x7e, LAND = 0x7f, LOR = 0x81, LXOR = 0x83;
+    private static final int I2L = 0x85, L2I = 0x88, IRETURN = 0xac, RETURN = 0xb1, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, WIDE = 0xc4;
+
+    private final CompiledExpression program;
+    private final int[] lastSegment; //Last segment that reads each register (or stores it as a root)
+    private final List<byte[]> pool = new ArrayList<>(); //Constant pool entries (index 1 first)
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolSize = 1; //Next constant pool index (longs take two)
+
+    /**
+     * Construct a new generator
+     *
+     * @param program Compiled program
+     */
+    public BytecodeGenerator(CompiledExpression program) {
+        this.program = program;
+        this.lastSegment = new int[program.size()];
+        for (int i=0; i<program.size(); i++) {
+            lastSegment[i] = i / SEGMENT_SIZE;
+        }
+        for (int i=0; i<program.size(); i++) {
+            byte op = program.opcodes[i];
+            if (op != CompiledExpression.LOAD && op != CompiledExpression.CONST) {
+                lastSegment[program.left[i]] = Math.max(lastSegment[program.left[i]], i / SEGMENT_SIZE);
+                lastSegment[program.right[i]] = Math.max(lastSegment[program.right[i]], i / SEGMENT_SIZE);
+            }
+        }
+        for (int root: program.roots) {
+            lastSegment[root] = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Generate the class file. Each segment of the program is a pair of static methods (one per form of
+     * evaluation) keeping results in local variables; only roots and results read by a later segment are
+     * stored to the register file
+     *
+     * @return Class file bytes
+     */
+    public byte[] generate() {
+        int segments = (program.size() + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+        List<byte[]> methods = new ArrayList<>();
+        int thisClass = classRef(CLASS_NAME);
+        int superClass = classRef(SUPER_NAME);
+
+        Code init = new Code(); //Constructor
+        init.op(ALOAD).u1(0).op(INVOKESPECIAL).u2(methodRef(SUPER_NAME, "<init>", "()V")).op(RETURN);
+        methods.add(method(0x0001, "<init>", "()V", init, 1, 1));
+
+        Code evaluate = new Code(); //boolean evaluate(long, boolean[]): run every scalar segment then return the first root
+        Code runWord = new Code(); //void runWord(long[], long[], int, int): run every word segment
+        for (int s=0; s<segments; s++) {
+            evaluate.op(LLOAD).u1(1).op(ALOAD).u1(3).op(INVOKESTATIC).u2(methodRef(CLASS_NAME, "s" + s, "(J[Z)V"));
+            runWord.op(ALOAD).u1(1).op(ALOAD).u1(2).op(ILOAD).u1(3).op(ILOAD).u1(4).op(INVOKESTATIC).u2(methodRef(CLASS_NAME, "w" + s, "([J[JII)V"));
+            methods.add(segment(s, false));
+            methods.add(segment(s, true));
+        }
+        evaluate.op(ALOAD).u1(3).pushInt(this, program.roots[0]).op(BALOAD).op(IRETURN);
+        runWord.op(RETURN);
+        methods.add(method(0x0001, "evaluate", "(J[Z)Z", evaluate, 4, 4));
+        methods.add(method(0x0001, "runWord", "([J[JII)V", runWord, 5, 5));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0); //Minor version
+            out.writeShort(52); //Java 8, which needs no stack map frames for code without branches
+            out.writeShort(poolSize);
+            for (byte[] entry: pool) {
+                out.write(entry);
+            }
+            out.writeShort(0x0031); //ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); //Interfaces
+            out.writeShort(0); //Fields
+            out.writeShort(methods.size());
+            for (byte[] method: methods) {
+                out.write(method);
+            }
+            out.writeShort(0); //Attributes
+        } catch (IOException e) { //Not thrown by a ByteArrayOutputStream
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Generate the method evaluating one segment. Scalar segments take (long assignment, boolean[] registers)
+     * and hold each truth value as 0 or -1, so that both forms share the same operator code; word segments take
+     * (long[] columns, long[] registers, int width, int word)
+     *
+     * @param s Index of the segment
+     * @param words Whether to generate the bit-sliced form
+     * @return Method bytes
+     */
+    private byte[] segment(int s, boolean words) {
+        int from = s * SEGMENT_SIZE;
+        int to = Math.min(program.size(), from + SEGMENT_SIZE);
+        int firstLocal = words ? 4 : 3; //After the parameters
+        Map<Integer, Integer> locals = new HashMap<>(); //Local variable slot holding each register used in the segment
+        Code code = new Code();
+        for (int i=from; i<to; i++) {
+            byte op = program.opcodes[i];
+            boolean invert = program.inverted[i];
+            switch (op) {
+                case CompiledExpression.LOAD:
+                    int prop = program.left[i];
+                    if (words) { //columns[prop * width + word]
+                        code.op(ALOAD).u1(0).op(ILOAD).u1(2).pushInt(this, prop).op(IMUL).op(ILOAD).u1(3).op(IADD).op(LALOAD);
+                    } else { //Bit prop of the assignment, spread to 0 or -1
+                        code.op(LLOAD).u1(0).op(BIPUSH).u1(63 - prop).op(LSHL).op(BIPUSH).u1(63).op(LSHR);
+                    }
+                    break;
+                case CompiledExpression.CONST:
+                    if (invert) {
+                        code.op(LCONST_0);
+                    } else {
+                        code.op(LDC2_W).u2(longConstant(-1L));
+                    }
+                    invert = false;
+                    break;
+                case CompiledExpression.OR:
+                case CompiledExpression.AND:
+                    load(code, program.left[i], from, locals, firstLocal, words);
+                    load(code, program.right[i], from, locals, firstLocal, words);
+                    code.op(op == CompiledExpression.OR ? LOR : LAND);
+                    break;
+                case CompiledExpression.IMPLIES: //~a | b
+                    load(code, program.left[i], from, locals, firstLocal, words);
+                    code.op(LDC2_W).u2(longConstant(-1L)).op(LXOR);
+                    load(code, program.right[i], from, locals, firstLocal, words);
+                    code.op(LOR);
+                    break;
+                default: //IFF: ~(a ^ b)
+                    load(code, program.left[i], from, locals, firstLocal, words);
+                    load(code, program.right[i], from, locals, firstLocal, words);
+                    code.op(LXOR);
+                    invert = !invert; //Folded into the inversion
+                    break;
+            }
+            if (invert) {
+                code.op(LDC2_W).u2(longConstant(-1L)).op(LXOR);
+            }
+            int slot = firstLocal + 2 * locals.size();
+            locals.put(i, slot);
+            code.wideOp(LSTORE, slot);
+            if (lastSegment[i] > s) { //Needed by a later segment or as a root
+                store(code, i, slot, words);
+            }
+        }
+        code.op(RETURN);
+        return method(0x000A, (words ? "w" : "s") + s, words ? "([J[JII)V" : "(J[Z)V", code, 8, firstLocal + 2 * locals.size()); //ACC_PRIVATE | ACC_STATIC
+    }
+
+    /**
+     * Emit code pushing the value of a register, loading it from the register file the first time a segment
+     * uses a register computed by an earlier one
+     */
+    private void load(Code code, int register, int from, Map<Integer, Integer> locals, int firstLocal, boolean words) {
+        Integer slot = locals.get(register);
+        if (slot == null) { //Computed by an earlier segment
+            slot = firstLocal + 2 * locals.size();
+            locals.put(register, slot);
+            if (words) { //registers[register * width + word]
+                code.op(ALOAD).u1(1).op(ILOAD).u1(2).pushInt(this, register).op(IMUL).op(ILOAD).u1(3).op(IADD).op(LALOAD);
+            } else { //registers[register], spread to 0 or -1
+                code.op(ALOAD).u1(2).pushInt(this, register).op(BALOAD).op(I2L).op(LNEG);
+            }
+            code.wideOp(LSTORE, slot);
+        }
+        code.wideOp(LLOAD, slot);
+    }
+
+    /**
+     * Emit code storing a result to the register file
+     */
+    private void store(Code code, int register, int slot, boolean words) {
+        if (words) { //registers[register * width + word] = value
+            code.op(ALOAD).u1(1).op(ILOAD).u1(2).pushInt(this, register).op(IMUL).op(ILOAD).u1(3).op(IADD).wideOp(LLOAD, slot).op(LASTORE);
+        } else { //registers[register] = value != 0
+            code.op(ALOAD).u1(2).pushInt(this, register).wideOp(LLOAD, slot).op(L2I).op(ICONST_1).op(IAND).op(BASTORE);
+        }
+    }
+
+    /**
+     * Build a method_info structure with a Code attribute
+     */
+    private byte[] method(int access, String name, String descriptor, Code code, int maxStack, int maxLocals) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1); //Attributes
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + code.size());
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.size());
+            code.writeTo(out);
+            out.writeShort(0); //Exception table
+            out.writeShort(0); //Attributes
+        } catch (IOException e) { //Not thrown by a ByteArrayOutputStream
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Add a constant pool entry unless an identical one exists
+     *
+     * @param key Key identifying the entry
+     * @param entry Entry bytes
+     * @param slots Pool slots taken (2 for longs)
+     * @return Pool index
+     */
+    private int constant(String key, byte[] entry, int slots) {
+        Integer index = poolIndex.get(key);
+        if (index == null) {
+            index = poolSize;
+            poolIndex.put(key, index);
+            pool.add(entry);
+            poolSize += slots;
+        }
+        return index;
+    }
+
+    private int utf8(String s) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(1); //CONSTANT_Utf8
+            out.writeUTF(s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return constant("U" + s, bytes.toByteArray(), 1);
+    }
+
+    private int classRef(String name) {
+        int nameIndex = utf8(name);
+        return constant("C" + name, new byte[]{7, (byte) (nameIndex >>> 8), (byte) nameIndex}, 1); //CONSTANT_Class
+    }
+
+    private int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + descriptor, new byte[]{12, (byte) (nameIndex >>> 8), (byte) nameIndex, //CONSTANT_NameAndType
+                (byte) (descriptorIndex >>> 8), (byte) descriptorIndex}, 1);
+        return constant("M" + owner + "." + name + descriptor, new byte[]{10, (byte) (ownerIndex >>> 8), (byte) ownerIndex, //CONSTANT_Methodref
+                (byte) (nameAndType >>> 8), (byte) nameAndType}, 1);
+    }
+
+    private int intConstant(int value) {
+        return constant("I" + value, new byte[]{3, (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value}, 1); //CONSTANT_Integer
+    }
+
+    private int longConstant(long value) {
+        byte[] entry = new byte[9];
+        entry[0] = 5; //CONSTANT_Long
+        for (int i=0; i<8; i++) {
+            entry[1+i] = (byte) (value >>> (56 - 8*i));
+        }
+        return constant("J" + value, entry, 2);
+    }
+
+    private static class Code { //Growable buffer of bytecode
+        private byte[] bytes = new byte[256];
+        private int size = 0;
+
+        Code u1(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+            return this;
+        }
+
+        Code u2(int s) {
+            return u1(s >>> 8).u1(s);
+        }
+
+        Code op(int opcode) {
+            return u1(opcode);
+        }
+
+        Code wideOp(int opcode, int slot) { //Local variable instruction, with the wide prefix for slots above 255
+            return slot > 255 ? op(WIDE).op(opcode).u2(slot) : op(opcode).u1(slot);
+        }
+
+        Code pushInt(BytecodeGenerator generator, int value) {
+            if (value >= -1 && value <= 5) {
+                return op(ICONST_0 + value);
+            } else if (value == (byte) value) {
+                return op(BIPUSH).u1(value);
+            } else if (value == (short) value) {
+                return op(SIPUSH).u2(value);
+            }
+            return op(LDC_W).u2(generator.intConstant(value));
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+    }
+}
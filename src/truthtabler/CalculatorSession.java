@@ -0,0 +1,251 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class CalculatorSession { //State of the expression calculator: proposition values plus watched expressions, kept compiled together so that an assignment only re-evaluates what depends on it
+    private final Map<Character, Boolean> propMap = new HashMap<>(); //Value of every defined proposition
+    private final NodeFactory factory = new NodeFactory(); //Shares sub-expressions between watched expressions, so each is evaluated once
+    private final Simplifier simplifier = new Simplifier(factory);
+    private final List<String> watched = new ArrayList<>(); //Watched expressions as typed
+    private final List<LogicNode> roots = new ArrayList<>(); //Simplified root of each watched expression
+    private final List<char[]> rootPropositions = new ArrayList<>(); //Propositions each watched expression uses as typed
+    private char[] propositions = new char[0]; //Propositions of the compiled program
+    private IncrementalEvaluator evaluator; //Evaluator of the compiled program, or null if nothing is watched
+    private Boolean[] results = new Boolean[0]; //Last reported value of each watched expression (null if a proposition is undefined)
+
+    /**
+     * Run a calculator command:
+     *   P=T or P=F sets a proposition and reports every watched expression whose value changed,
+     *   +EXPR watches an expression, -EXPR stops watching it, ? lists the watched expressions,
+     *   and anything else is evaluated once
+     *
+     * @param command Command
+     * @return Message to print (empty if there is nothing to report)
+     */
+    public String run(String command) {
+        if (command.length() == 3 && command.charAt(1) == '=') { //Set propositions if "=" used
+            char value = Character.toLowerCase(command.charAt(2));
+            if (value != 't' && value != 'f') { //Ensure that value is either t or f
+                return "Error: propositions must be either true or false (T/F)";
+            }
+            return describe(set(command.charAt(0), value == 't'));
+        } else if (command.startsWith("+")) { //Watch
+            String expr = command.substring(1);
+            try {
+                int i = watch(expr);
+                Boolean res = results[i];
+                return "Watching " + expr + (res == null ? " (not all propositions are defined)" : ": " + res);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        } else if (command.startsWith("-")) { //Stop watching
+            String expr = command.substring(1);
+            return unwatch(expr) ? "Stopped watching " + expr : "Error: " + expr + " is not watched";
+        } else if (command.equals("?")) { //List
+            List<Integer> all = new ArrayList<>();
+            for (int i=0; i<watched.size(); i++) {
+                all.add(i);
+            }
+            return watched.isEmpty() ? "No watched expressions" : describe(all);
+        }
+        int i = watched.indexOf(command);
+        if (i >= 0 && results[i] != null) { //Already up to date
+            return "Expression evaluation: " + results[i];
+        }
+        return TruthTabler.runExpressionCalculator(command, propMap);
+    }
+
+    /**
+     * Set the value of a proposition, re-evaluating only the parts of the watched expressions that use it
+     *
+     * @param prop Proposition character
+     * @param value Truth value
+     * @return Indices of the watched expressions whose value changed (or became known)
+     */
+    public List<Integer> set(char prop, boolean value) {
+        propMap.put(prop, value);
+        if (evaluator != null) {
+            for (int p=0; p<propositions.length; p++) {
+                if (propositions[p] == prop) {
+                    long nodes = evaluator.getNodesVisited();
+                    evaluator.set(p, value);
+                    RuntimeStats.addEvaluatedRows(1, evaluator.getNodesVisited() - nodes);
+                    break;
+                }
+            }
+        }
+        return update();
+    }
+
+    /**
+     * Get the value of a proposition
+     *
+     * @param prop Proposition character
+     * @return Truth value, or null if undefined
+     */
+    public Boolean getValue(char prop) {
+        return propMap.get(prop);
+    }
+
+    /**
+     * Watch an expression. Its value is kept up to date as propositions are set
+     *
+     * @param expr Expression
+     * @throws IllegalArgumentException If the expression can't be parsed, with a user-facing "Error: ..." message
+     * @return Index of the watched expression
+     */
+    public int watch(String expr) {
+        int i = watched.indexOf(expr);
+        if (i >= 0) {
+            return i;
+        }
+        if (!TruthTabler.isExpression(expr)) {
+            throw new IllegalArgumentException("Command/expression not recognized. Please check the syntax or use $h for help.");
+        }
+        LogicNode root;
+        try {
+            root = TruthTabler.buildTree(expr);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error: " + e.getMessage(), e);
+        }
+        if (root == null) {
+            throw new IllegalArgumentException("Error: invalid expression. Please try again.");
+        }
+        watched.add(expr);
+        roots.add(simplifier.simplify(factory.intern(root)));
+        rootPropositions.add(TruthTabler.getPropositions(expr));
+        rebuild();
+        return watched.size() - 1;
+    }
+
+    /**
+     * Stop watching an expression
+     *
+     * @param expr Expression as given to watch
+     * @return True if it was watched
+     */
+    public boolean unwatch(String expr) {
+        int i = watched.indexOf(expr);
+        if (i < 0) {
+            return false;
+        }
+        watched.remove(i);
+        roots.remove(i);
+        rootPropositions.remove(i);
+        rebuild();
+        return true;
+    }
+
+    /**
+     * Get the watched expressions
+     *
+     * @return Expressions in the order they were watched
+     */
+    public List<String> getWatched() {
+        return new ArrayList<>(watched);
+    }
+
+    /**
+     * Get the current value of a watched expression
+     *
+     * @param i Index of the watched expression
+     * @return Truth value, or null if one of its propositions is undefined
+     */
+    public Boolean getResult(int i) {
+        return results[i];
+    }
+
+    /**
+     * Compile the watched expressions into one program and evaluate it with the current proposition values
+     */
+    private void rebuild() {
+        Set<Character> props = new LinkedHashSet<>();
+        for (char[] rootProps: rootPropositions) {
+            for (char c: rootProps) {
+                props.add(c);
+            }
+        }
+        propositions = new char[props.size()];
+        int k = 0;
+        for (char c: props) {
+            propositions[k++] = c;
+        }
+        results = new Boolean[watched.size()];
+        if (watched.isEmpty()) {
+            evaluator = null;
+            return;
+        }
+        evaluator = new IncrementalEvaluator(CompiledExpression.compile(roots.toArray(new LogicNode[0]), propositions));
+        for (int p=0; p<propositions.length; p++) {
+            Boolean value = propMap.get(propositions[p]);
+            if (value != null) {
+                evaluator.set(p, value);
+            }
+        }
+        update();
+    }
+
+    /**
+     * Refresh the reported value of every watched expression
+     *
+     * @return Indices of the watched expressions whose value changed
+     */
+    private List<Integer> update() {
+        List<Integer> changed = new ArrayList<>();
+        for (int i=0; i<results.length; i++) {
+            Boolean res = results[i] != null || isDefined(rootPropositions.get(i)) ? evaluator.getResult(i) : null; //Propositions can't become undefined again
+            if (res != null && !res.equals(results[i])) {
+                changed.add(i);
+            }
+            results[i] = res;
+        }
+        return changed;
+    }
+
+    /**
+     * Check that every proposition of an expression has a value
+     *
+     * @param props Propositions of the expression
+     * @return True if all are defined
+     */
+    private boolean isDefined(char[] props) {
+        for (char c: props) {
+            if (!propMap.containsKey(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Describe the values of watched expressions, one per line
+     *
+     * @param indices Indices of the watched expressions
+     * @return Message (empty if there are none)
+     */
+    private String describe(List<Integer> indices) {
+        StringBuilder res = new StringBuilder();
+        for (int i: indices) {
+            if (res.length() > 0) {
+                res.append('\n');
+            }
+            res.append("Watch ").append(watched.get(i)).append(": ").append(results[i] == null ? "undefined" : results[i].toString());
+        }
+        return res.toString();
+    }
+}
@@ -0,0 +1,453 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CompiledExpression { //Flat register program compiled from one or more LogicNode trees
+    static final byte LOAD = 0; //Load a proposition value (left holds the proposition index)
+    static final byte OR = 1;
+    static final byte AND = 2;
+    static final byte IMPLIES = 3;
+    static final byte IFF = 4;
+    static final byte CONST = 5; //Load true (false when inverted)
+    public static final int GENERATION_THRESHOLD = 1 << 10; //Evaluations or passes of a program before it is translated to bytecode
+
+    final byte[] opcodes; //Opcode of each instruction
+    final int[] left; //Left operand register, or proposition index for LOAD (unused for CONST)
+    final int[] right; //Right operand register (unused for LOAD and CONST)
+    final boolean[] inverted; //Whether the result of each instruction is negated
+    final int[] roots; //Register holding the result of each root
+    final char[] propositions; //Proposition characters in index order
+    private final int generationThreshold; //Runs interpreted before translating to bytecode (negative: never)
+    private int runs = 0; //Interpreted runs so far (updated without synchronization, as only its rough size matters)
+    private volatile boolean generationAttempted = false;
+    private final AtomicBoolean generationClaimed = new AtomicBoolean(); //Set by the first run to reach the threshold, which translates the program
+    private volatile GeneratedEvaluator generated; //Bytecode form of this program, once translated
+
+    private CompiledExpression(byte[] opcodes, int[] left, int[] right, boolean[] inverted, int[] roots, char[] propositions, int generationThreshold) {
+        this.opcodes = opcodes;
+        this.left = left;
+        this.right = right;
+        this.inverted = inverted;
+        this.roots = roots;
+        this.propositions = propositions;
+        this.generationThreshold = generationThreshold;
+    }
+
+    /**
+     * Compile a single tree into a register program
+     *
+     * @param root Root node of the tree
+     * @param propositions Proposition characters, in the order they are indexed by assignments
+     * @throws IllegalArgumentException If the tree uses a proposition not in propositions
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Compiled program
+     */
+    public static CompiledExpression compile(LogicNode root, char[] propositions) {
+        return compile(new LogicNode[]{root}, propositions);
+    }
+
+    /**
+     * Compile several trees into one register program. Each instruction is emitted once per distinct node object,
+     * so sub-trees that are shared between roots are only evaluated once per row
+     *
+     * @param rootNodes Root nodes of the trees
+     * @param propositions Proposition characters, in the order they are indexed by assignments
+     * @throws IllegalArgumentException If a tree uses a proposition not in propositions
+     * @throws UnsupportedOperationException If a tree uses an unsupported operator
+     * @return Compiled program
+     */
+    public static CompiledExpression compile(LogicNode[] rootNodes, char[] propositions) {
+        Map<LogicNode, Integer> registers = new IdentityHashMap<>(); //Register assigned to each compiled node
+        byte[] opcodes = new byte[16];
+        int[] left = new int[16];
+        int[] right = new int[16];
+        boolean[] inverted = new boolean[16];
+        int size = 0;
+        int[] roots = new int[rootNodes.length];
+
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>(); //Explicit post-order stack so that deep trees can't overflow the call stack
+        for (int r=0; r<rootNodes.length; r++) {
+            stack.push(rootNodes[r]);
+            while (!stack.isEmpty()) {
+                LogicNode node = stack.peek();
+                if (registers.containsKey(node)) { //Already compiled (shared node)
+                    stack.pop();
+                    continue;
+                }
+                if (node.type == NodeType.OPERATOR && (!registers.containsKey(node.left) || !registers.containsKey(node.right))) { //Compile children first
+                    if (!registers.containsKey(node.right)) {
+                        stack.push(node.right);
+                    }
+                    if (!registers.containsKey(node.left)) {
+                        stack.push(node.left);
+                    }
+                    continue;
+                }
+                stack.pop();
+                if (size == opcodes.length) { //Grow the instruction arrays
+                    opcodes = Arrays.copyOf(opcodes, size * 2);
+                    left = Arrays.copyOf(left, size * 2);
+                    right = Arrays.copyOf(right, size * 2);
+                    inverted = Arrays.copyOf(inverted, size * 2);
+                }
+                if (node.type == NodeType.OPERATOR) {
+                    opcodes[size] = getOpcode(node.val);
+                    left[size] = registers.get(node.left);
+                    right[size] = registers.get(node.right);
+                } else if (node.type == NodeType.CONSTANT) {
+                    opcodes[size] = CONST;
+                } else {
+                    opcodes[size] = LOAD;
+                    left[size] = indexOf(propositions, node.val);
+                }
+                inverted[size] = node.inverted;
+                registers.put(node, size);
+                size++;
+            }
+            roots[r] = registers.get(rootNodes[r]);
+        }
+        return new CompiledExpression(Arrays.copyOf(opcodes, size), Arrays.copyOf(left, size), Arrays.copyOf(right, size),
+                Arrays.copyOf(inverted, size), roots, propositions.clone(), GENERATION_THRESHOLD);
+    }
+
+    /**
+     * Get this program with a different number of runs before it is translated to bytecode. The instructions
+     * are shared
+     *
+     * @param threshold Evaluations or passes before translating (0 to translate on the first run, negative to
+     *                  always interpret)
+     * @return Program with the threshold
+     */
+    public CompiledExpression withGenerationThreshold(int threshold) {
+        return new CompiledExpression(opcodes, left, right, inverted, roots, propositions, threshold);
+    }
+
+    /**
+     * Translate this program to bytecode now, unless already attempted. Later calls to evaluate(long, boolean[])
+     * and runWords run the generated code
+     *
+     * @return Generated evaluator, or null if the program can't be translated
+     */
+    public GeneratedEvaluator generate() {
+        synchronized (this) {
+            if (!generationAttempted) {
+                generated = GeneratedEvaluator.generate(this);
+                generationAttempted = true;
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * Get the generated evaluator to run, translating the program once it has run often enough. Only the first
+     * thread to reach the threshold translates it; other threads don't wait and keep interpreting meanwhile
+     *
+     * @return Generated evaluator, or null to interpret
+     */
+    private GeneratedEvaluator getGenerated() {
+        GeneratedEvaluator res = generated;
+        if (res == null && !generationAttempted && generationThreshold >= 0 && runs++ >= generationThreshold && generationClaimed.compareAndSet(false, true)) {
+            res = generate();
+        }
+        return res;
+    }
+
+    /**
+     * Get the index of a proposition
+     *
+     * @param propositions Proposition characters
+     * @param prop Proposition to find
+     * @throws IllegalArgumentException If the proposition is not defined
+     * @return Index of prop in propositions
+     */
+    static int indexOf(char[] propositions, char prop) {
+        for (int i=0; i<propositions.length; i++) {
+            if (propositions[i] == prop) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Proposition " + prop + " is not defined");
+    }
+
+    /**
+     * Get the opcode for an operator character
+     *
+     * @param op Operator character
+     * @throws UnsupportedOperationException If the operator is not supported
+     * @return Opcode
+     */
+    static byte getOpcode(char op) {
+        switch (op) {
+            case 'v': //Logical OR (inclusive)
+                return OR;
+            case '&': //Logical AND
+                return AND;
+            case '>': //Alternate THEN
+            case '⊃': //Logical THEN (conditional)
+                return IMPLIES;
+            case ':': //Alternate EQUALS
+            case '≡': //Logical EQUALS (biconditional)
+                return IFF;
+            default:
+                throw new UnsupportedOperationException("Logical operator " + op + " is not supported");
+        }
+    }
+
+    /**
+     * Allocate a register file for use with the evaluate methods. Each thread evaluating the program needs its own
+     *
+     * @return Register file
+     */
+    public boolean[] newRegisters() {
+        return new boolean[opcodes.length];
+    }
+
+    /**
+     * Run the program for one assignment, storing every instruction result in registers
+     *
+     * @param values Truth value of each proposition by index
+     * @param registers Register file from newRegisters()
+     */
+    public void run(boolean[] values, boolean[] registers) {
+        for (int i=0; i<opcodes.length; i++) {
+            boolean res;
+            switch (opcodes[i]) {
+                case LOAD:
+                    res = values[left[i]];
+                    break;
+                case CONST:
+                    res = true;
+                    break;
+                case OR:
+                    res = registers[left[i]] || registers[right[i]];
+                    break;
+                case AND:
+                    res = registers[left[i]] && registers[right[i]];
+                    break;
+                case IMPLIES:
+                    res = !registers[left[i]] || registers[right[i]];
+                    break;
+                default: //IFF
+                    res = registers[left[i]] == registers[right[i]];
+                    break;
+            }
+            registers[i] = res != inverted[i];
+        }
+    }
+
+    /**
+     * Compute the result of one instruction from the current proposition values and registers, without storing it
+     *
+     * @param i Index of the instruction
+     * @param values Truth value of each proposition by index
+     * @param registers Register file holding the results of the instruction's operands
+     * @return Result of the instruction
+     */
+    boolean compute(int i, boolean[] values, boolean[] registers) {
+        boolean res;
+        switch (opcodes[i]) {
+            case LOAD:
+                res = values[left[i]];
+                break;
+            case CONST:
+                res = true;
+                break;
+            case OR:
+                res = registers[left[i]] || registers[right[i]];
+                break;
+            case AND:
+                res = registers[left[i]] && registers[right[i]];
+                break;
+            case IMPLIES:
+                res = !registers[left[i]] || registers[right[i]];
+                break;
+            default: //IFF
+                res = registers[left[i]] == registers[right[i]];
+                break;
+        }
+        return res != inverted[i];
+    }
+
+    /**
+     * Evaluate the first root for one assignment
+     *
+     * @param values Truth value of each proposition by index
+     * @param registers Register file from newRegisters()
+     * @return Truth value of the first root
+     */
+    public boolean evaluate(boolean[] values, boolean[] registers) {
+        run(values, registers);
+        return registers[roots[0]];
+    }
+
+    /**
+     * Evaluate the first root for one assignment packed into a long (bit i is the value of proposition i).
+     * Hot programs run as generated bytecode, which stores only the results of the roots in registers
+     *
+     * @param assignment Packed assignment
+     * @param registers Register file from newRegisters()
+     * @return Truth value of the first root
+     */
+    public boolean evaluate(long assignment, boolean[] registers) {
+        GeneratedEvaluator generated = getGenerated();
+        if (generated != null) {
+            return generated.evaluate(assignment, registers);
+        }
+        for (int i=0; i<opcodes.length; i++) {
+            boolean res;
+            switch (opcodes[i]) {
+                case LOAD:
+                    res = (assignment >>> left[i] & 1L) != 0;
+                    break;
+                case CONST:
+                    res = true;
+                    break;
+                case OR:
+                    res = registers[left[i]] || registers[right[i]];
+                    break;
+                case AND:
+                    res = registers[left[i]] && registers[right[i]];
+                    break;
+                case IMPLIES:
+                    res = !registers[left[i]] || registers[right[i]];
+                    break;
+                default: //IFF
+                    res = registers[left[i]] == registers[right[i]];
+                    break;
+            }
+            registers[i] = res != inverted[i];
+        }
+        return registers[roots[0]];
+    }
+
+    /**
+     * Allocate a register file for use with runWords. Each thread evaluating the program needs its own
+     *
+     * @param width Number of 64-row words evaluated per instruction
+     * @return Register file
+     */
+    public long[] newWordRegisters(int width) {
+        return new long[opcodes.length * width];
+    }
+
+    /**
+     * Run the program bit-sliced: each bit of a word is a separate row, so one pass evaluates 64 * width rows.
+     * Proposition i occupies columns[i*width] to columns[i*width + width-1], and the result of instruction k is
+     * stored in registers[k*width] to registers[k*width + width-1]. Hot programs run as generated bytecode, which
+     * stores only the results of the roots (read them with resultWord)
+     *
+     * @param columns Truth values of each proposition, one bit per row
+     * @param registers Register file from newWordRegisters(width)
+     * @param width Number of words per proposition and register
+     */
+    public void runWords(long[] columns, long[] registers, int width) {
+        GeneratedEvaluator generated = getGenerated();
+        if (generated != null) {
+            generated.runWords(columns, registers, width);
+            return;
+        }
+        for (int i=0; i<opcodes.length; i++) {
+            int out = i * width;
+            int a = left[i] * width;
+            int b = right[i] * width;
+            long invert = inverted[i] ? -1L : 0L; //XOR mask for inversion
+            switch (opcodes[i]) {
+                case LOAD:
+                    for (int w=0; w<width; w++) {
+                        registers[out+w] = columns[a+w] ^ invert;
+                    }
+                    break;
+                case CONST:
+                    for (int w=0; w<width; w++) {
+                        registers[out+w] = ~invert;
+                    }
+                    break;
+                case OR:
+                    for (int w=0; w<width; w++) {
+                        registers[out+w] = (registers[a+w] | registers[b+w]) ^ invert;
+                    }
+                    break;
+                case AND:
+                    for (int w=0; w<width; w++) {
+                        registers[out+w] = (registers[a+w] & registers[b+w]) ^ invert;
+                    }
+                    break;
+                case IMPLIES:
+                    for (int w=0; w<width; w++) {
+                        registers[out+w] = (~registers[a+w] | registers[b+w]) ^ invert;
+                    }
+                    break;
+                default: //IFF
+                    for (int w=0; w<width; w++) {
+                        registers[out+w] = ~(registers[a+w] ^ registers[b+w]) ^ invert;
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Get the result word of a root after runWords()
+     *
+     * @param root Index of the root (in the order given to compile)
+     * @param registers Register file the program was run with
+     * @param width Number of words per register
+     * @param word Index of the word within the register
+     * @return Result bits of the root
+     */
+    public long resultWord(int root, long[] registers, int width, int word) {
+        return registers[roots[root] * width + word];
+    }
+
+    /**
+     * Get the result of a root after run() or evaluate()
+     *
+     * @param root Index of the root (in the order given to compile)
+     * @param registers Register file the program was run with
+     * @return Truth value of the root
+     */
+    public boolean result(int root, boolean[] registers) {
+        return registers[roots[root]];
+    }
+
+    /**
+     * Get the number of roots compiled into this program
+     *
+     * @return Number of roots
+     */
+    public int getRootCount() {
+        return roots.length;
+    }
+
+    /**
+     * Get the number of instructions in this program
+     *
+     * @return Number of instructions
+     */
+    public int size() {
+        return opcodes.length;
+    }
+
+    /**
+     * Get the proposition characters in index order
+     *
+     * @return Copy of the propositions
+     */
+    public char[] getPropositions() {
+        return propositions.clone();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+public class EquivalenceChecker { //Decides whether formulas are equivalent, or whether premises entail a conclusion, by comparing truth table signatures (or with the SAT solver for wide formulas)
+    public static final int EXACT_LIMIT = 20; //Most propositions compared by exact signature; wider formulas are checked with the SAT solver
+
+    /**
+     * Determine whether two formulas are equivalent (true in exactly the same rows)
+     *
+     * @param a First formula
+     * @param b Second formula
+     * @throws IllegalArgumentException If a formula is invalid, with a user-facing "Error: ..." message
+     * @return True if equivalent
+     */
+    public static boolean areEquivalent(String a, String b) {
+        return findDifference(a, b) == null;
+    }
+
+    /**
+     * Find the first row, over the propositions of both formulas in order of first appearance, where two formulas
+     * have different values. Up to EXACT_LIMIT propositions, both signatures are computed and compared bitwise;
+     * beyond that, the SAT solver looks for a row where a ≡ b is false
+     *
+     * @param a First formula
+     * @param b Second formula
+     * @throws IllegalArgumentException If a formula is invalid, with a user-facing "Error: ..." message
+     * @return Truth value of each proposition of getPropositions(a + b) by index, or null if equivalent
+     */
+    public static boolean[] findDifference(String a, String b) {
+        LogicNode rootA = parse(a);
+        LogicNode rootB = parse(b);
+        char[] variables = TruthTabler.getPropositions(a + b);
+        long start = System.nanoTime();
+        try {
+            if (variables.length <= EXACT_LIMIT) {
+                long row = TruthTableSignature.exact(rootA, variables).firstDifference(TruthTableSignature.exact(rootB, variables));
+                return row < 0 ? null : getAssignment(row, variables.length);
+            }
+            return ValidityChecker.findModel(new LogicNode('≡', rootA, rootB, NodeType.OPERATOR, false), false, variables);
+        } finally {
+            RuntimeStats.record(RuntimeStats.Phase.QUERY, start);
+        }
+    }
+
+    /**
+     * Determine whether premises entail a conclusion (every row where all premises are true makes the
+     * conclusion true). Up to EXACT_LIMIT propositions, the signatures are combined bitwise; beyond that, the
+     * SAT solver decides it
+     *
+     * @param premises Premises (may be empty)
+     * @param conclusion Conclusion
+     * @throws IllegalArgumentException If a formula is invalid, with a user-facing "Error: ..." message
+     * @return True if entailed
+     */
+    public static boolean entails(String[] premises, String conclusion) {
+        LogicNode[] premiseRoots = new LogicNode[premises.length];
+        StringBuilder all = new StringBuilder();
+        for (int i=0; i<premises.length; i++) {
+            premiseRoots[i] = parse(premises[i]);
+            all.append(premises[i]);
+        }
+        LogicNode conclusionRoot = parse(conclusion);
+        char[] variables = TruthTabler.getPropositions(all + conclusion);
+        long start = System.nanoTime();
+        try {
+            if (variables.length <= EXACT_LIMIT) {
+                TruthTableSignature[] premiseSignatures = new TruthTableSignature[premises.length];
+                for (int i=0; i<premises.length; i++) {
+                    premiseSignatures[i] = TruthTableSignature.exact(premiseRoots[i], variables);
+                }
+                return TruthTableSignature.firstCounterexample(premiseSignatures, TruthTableSignature.exact(conclusionRoot, variables)) < 0;
+            }
+            return ValidityChecker.checkArgument(premiseRoots, conclusionRoot, variables).isValid();
+        } finally {
+            RuntimeStats.record(RuntimeStats.Phase.QUERY, start);
+        }
+    }
+
+    /**
+     * Describe whether two formulas are equivalent, with a row that tells them apart if not
+     *
+     * @param a First formula
+     * @param b Second formula
+     * @return Human-readable answer (or an error message)
+     */
+    public static String describe(String a, String b) {
+        if (!TruthTabler.isExpression(a) || !TruthTabler.isExpression(b)) {
+            return "Command/expression not recognized. Please check the syntax or use $h for help.";
+        }
+        boolean[] difference;
+        try {
+            difference = findDifference(a, b);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (difference == null) {
+            return "Equivalent: true";
+        }
+        char[] variables = TruthTabler.getPropositions(a + b);
+        StringBuilder res = new StringBuilder("Equivalent: false (they differ at");
+        for (int i=0; i<variables.length; i++) {
+            res.append(" ").append(variables[i]).append("=").append(difference[i] ? "T" : "F");
+        }
+        return res.append(")").toString();
+    }
+
+    /**
+     * Parse a formula into its simplified root (reused from the shared cache)
+     *
+     * @param expr Formula
+     * @throws IllegalArgumentException If the formula is invalid, with a user-facing "Error: ..." message
+     * @return Root node
+     */
+    private static LogicNode parse(String expr) {
+        return ExpressionCache.getShared().getExpression(expr).getRoot(0);
+    }
+
+    /**
+     * Get the truth value of each proposition in a row
+     *
+     * @param row Row index
+     * @param propCount Number of propositions
+     * @return Truth value of each proposition by index (true where the row bit is 0)
+     */
+    static boolean[] getAssignment(long row, int propCount) {
+        boolean[] res = new boolean[propCount];
+        for (int i=0; i<propCount; i++) {
+            res[i] = (row >>> (propCount - 1 - i) & 1L) == 0;
+        }
+        return res;
+    }
+}
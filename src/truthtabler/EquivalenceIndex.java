@@ -0,0 +1,191 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class EquivalenceIndex { //Groups a corpus of formulas into classes of equivalent formulas by hashing their truth table signatures, so deduplication costs one signature per formula instead of pairwise comparison
+    public static final int EXACT_LIMIT = 12; //Most variables for exact signatures (64 words per formula); wider orders use sampled signatures confirmed with the SAT solver
+    public static final String ALL_VARIABLES = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuwxyz"; //Every proposition letter
+
+    private final char[] variables; //Shared variable order
+    private final String order; //Shared variable order as a string
+    private final boolean exact; //Whether signatures are full truth tables (no confirmation needed)
+    private final Map<TruthTableSignature, List<Integer>> buckets = new HashMap<>(); //Classes with each signature (one unless sampled signatures collide)
+    private final List<LogicNode> representatives = new ArrayList<>(); //Root of the first formula of each class
+    private final List<List<String>> classes = new ArrayList<>(); //Formulas of each class, in the order added
+    private int size = 0;
+    private long symbolicChecks = 0; //SAT checks confirming sampled matches
+
+    /**
+     * Construct a new index over a shared variable order
+     *
+     * @param variables Every proposition the formulas may use
+     */
+    public EquivalenceIndex(String variables) {
+        this.variables = TruthTabler.getPropositions(variables);
+        this.order = new String(this.variables);
+        this.exact = this.variables.length <= EXACT_LIMIT;
+    }
+
+    /**
+     * Construct a new index accepting formulas over any propositions (with sampled signatures)
+     */
+    public EquivalenceIndex() {
+        this(ALL_VARIABLES);
+    }
+
+    /**
+     * Add a formula, joining the class of an equivalent formula already in the index or starting a new class.
+     * The signature is computed before the index is locked, so formulas can be added from several threads
+     *
+     * @param formula Formula
+     * @throws IllegalArgumentException If the formula is invalid or uses a proposition outside the variable order,
+     *                                  with a user-facing "Error: ..." message
+     * @return Index of the formula's class
+     */
+    public int add(String formula) {
+        LogicNode root = parse(formula);
+        TruthTableSignature signature = signature(root);
+        synchronized (this) {
+            size++;
+            int id = find(root, signature);
+            if (id < 0) {
+                id = classes.size();
+                representatives.add(root);
+                classes.add(new ArrayList<>());
+                buckets.computeIfAbsent(signature, k -> new ArrayList<>(1)).add(id);
+            }
+            classes.get(id).add(formula);
+            return id;
+        }
+    }
+
+    /**
+     * Find the class of formulas equivalent to a formula
+     *
+     * @param formula Formula
+     * @throws IllegalArgumentException If the formula is invalid or uses a proposition outside the variable order,
+     *                                  with a user-facing "Error: ..." message
+     * @return Index of the class, or -1 if no formula in the index is equivalent
+     */
+    public int find(String formula) {
+        LogicNode root = parse(formula);
+        TruthTableSignature signature = signature(root);
+        synchronized (this) {
+            return find(root, signature);
+        }
+    }
+
+    /**
+     * Get the formulas of a class
+     *
+     * @param id Index of the class
+     * @return Formulas in the order added
+     */
+    public synchronized List<String> getClass(int id) {
+        return Collections.unmodifiableList(new ArrayList<>(classes.get(id)));
+    }
+
+    /**
+     * Get the number of classes of equivalent formulas
+     *
+     * @return Number of classes
+     */
+    public synchronized int getClassCount() {
+        return classes.size();
+    }
+
+    /**
+     * Get the number of formulas added
+     *
+     * @return Number of formulas
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of SAT checks run to confirm that formulas with equal sampled signatures are equivalent
+     *
+     * @return Number of checks
+     */
+    public synchronized long getSymbolicChecks() {
+        return symbolicChecks;
+    }
+
+    /**
+     * Determine whether signatures are full truth tables
+     *
+     * @return True if the variable order has at most EXACT_LIMIT propositions
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Find the class equivalent to a formula, with the lock held
+     *
+     * @param root Root node of the formula
+     * @param signature Signature of the formula
+     * @return Index of the class, or -1
+     */
+    private int find(LogicNode root, TruthTableSignature signature) {
+        List<Integer> bucket = buckets.get(signature);
+        if (bucket == null) {
+            return -1;
+        }
+        if (exact) { //Equal truth tables
+            return bucket.get(0);
+        }
+        for (int id: bucket) { //Equal on the sampled rows - confirm on every row
+            symbolicChecks++;
+            LogicNode iff = new LogicNode('≡', root, representatives.get(id), NodeType.OPERATOR, false);
+            if (ValidityChecker.findModel(iff, false, ParsedExpression.getUsedPropositions(new LogicNode[]{iff}, variables)) == null) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compute the signature of a formula over the variable order
+     *
+     * @param root Root node of the formula
+     * @return Exact or sampled signature
+     */
+    private TruthTableSignature signature(LogicNode root) {
+        return exact ? TruthTableSignature.exact(root, variables) : TruthTableSignature.sampled(root, variables);
+    }
+
+    /**
+     * Parse a formula into its simplified root and check its propositions
+     *
+     * @param formula Formula
+     * @throws IllegalArgumentException If the formula is invalid or uses a proposition outside the variable order
+     * @return Root node
+     */
+    private LogicNode parse(String formula) {
+        if (!TruthTabler.isExpression(formula)) {
+            throw new IllegalArgumentException("Error: invalid expression: " + formula);
+        }
+        for (char prop: TruthTabler.getPropositions(formula)) {
+            if (order.indexOf(prop) < 0) {
+                throw new IllegalArgumentException("Error: proposition " + prop + " is not in the variable order " + order);
+            }
+        }
+        return ParsedExpression.parse(formula, false).getRoot(0);
+    }
+}
@@ -0,0 +1,420 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+public class EvaluationJob { //Enumerates the rows of a table or argument in blocks, checking a deadline and a cancellation flag between blocks, so that a long enumeration can be bounded, stopped, watched and resumed
+    public static final int BLOCK_ROWS = 1 << 12; //Rows enumerated between checks of the deadline and cancellation flag (a multiple of 64)
+
+    public enum Status {
+        COMPLETE, //Every row was enumerated, or a counterexample was found
+        CANCELLED, //Stopped by cancel()
+        TIMED_OUT //Stopped at the deadline
+    }
+
+    private final CompiledExpression program; //Program with one root per expression
+    private final String[] expressions; //Expression column headers
+    private final boolean argument; //Whether the last expression is a conclusion
+    private final long rowCount;
+    private volatile boolean cancelled = false;
+    private long deadline = 0; //System.nanoTime() to stop at
+    private boolean timed = false; //Whether there is a deadline
+    private Consumer<EvaluationJob> progressListener; //Called at block boundaries, at most once per progressInterval
+    private long progressInterval;
+    private long lastReport; //System.nanoTime() of the last progress report (or the start of the run)
+    private volatile long rowsDone = 0; //Rows enumerated by the current or last run
+    private volatile long runStart = 0; //System.nanoTime() when the current or last run started
+    private volatile long runTime = 0; //Nanoseconds the last run took (or 0 while running)
+
+    /**
+     * Construct a new job. Nothing is evaluated until it is run
+     *
+     * @param parsed Parsed expression or argument
+     * @param expressions Expression strings used as column headers, one per root
+     * @param argument Whether the expressions are premises followed by a conclusion
+     * @throws IllegalArgumentException If there are more than LazyTruthTable.MAX_PROPOSITIONS propositions
+     */
+    public EvaluationJob(ParsedExpression parsed, String[] expressions, boolean argument) {
+        this.program = parsed.getProgram();
+        this.expressions = expressions.clone();
+        this.argument = argument;
+        if (program.propositions.length > LazyTruthTable.MAX_PROPOSITIONS) {
+            throw new IllegalArgumentException("Error: tables are limited to " + LazyTruthTable.MAX_PROPOSITIONS + " propositions");
+        }
+        this.rowCount = 1L << program.propositions.length;
+    }
+
+    /**
+     * Get a job over the table of an expression (parsed once and then reused from the shared cache)
+     *
+     * @param expr Expression
+     * @throws IllegalArgumentException If the expression is invalid, with a user-facing message
+     * @return Job
+     */
+    public static EvaluationJob ofExpression(String expr) {
+        if (!TruthTabler.isExpression(expr)) {
+            throw new IllegalArgumentException("Command/expression not recognized. Please check the syntax or use $h for help.");
+        }
+        return new EvaluationJob(ExpressionCache.getShared().getExpression(expr), new String[]{expr}, false);
+    }
+
+    /**
+     * Get a job over the table of an argument (parsed once and then reused from the shared cache)
+     *
+     * @param expr Comma separated premises followed by the conclusion
+     * @throws IllegalArgumentException If the argument is invalid, with a user-facing message
+     * @return Job
+     */
+    public static EvaluationJob ofArgument(String expr) {
+        if (!TruthTabler.isArgument(expr)) {
+            throw new IllegalArgumentException("Command/expression not recognized. Please check the syntax or use $h for help. Note that the premises and the conclusion must each be separated by commas and the conclusion is the last item.");
+        }
+        return new EvaluationJob(ExpressionCache.getShared().getArgument(expr), expr.split(","), true);
+    }
+
+    /**
+     * Stop runs once a time limit from now has passed (checked at block boundaries)
+     *
+     * @param millis Time limit in milliseconds
+     * @return This job
+     */
+    public EvaluationJob setTimeLimit(long millis) {
+        this.deadline = System.nanoTime() + millis * 1000000L;
+        this.timed = true;
+        return this;
+    }
+
+    /**
+     * Report progress while running
+     *
+     * @param listener Called from the running thread at block boundaries, at most once per interval
+     * @param intervalMillis Least time between calls, in milliseconds
+     * @return This job
+     */
+    public EvaluationJob setProgressListener(Consumer<EvaluationJob> listener, long intervalMillis) {
+        this.progressListener = listener;
+        this.progressInterval = intervalMillis * 1000000L;
+        return this;
+    }
+
+    /**
+     * Stop the run in progress (or the next one) at the next block boundary. Safe to call from any thread
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Determine whether the job has been cancelled
+     *
+     * @return True if cancel() was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Get the number of rows in the table
+     *
+     * @return 2^n for n propositions
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the number of rows the current or last run has enumerated. Safe to call from any thread
+     *
+     * @return Number of rows
+     */
+    public long getRowsDone() {
+        return rowsDone;
+    }
+
+    /**
+     * Get the enumeration rate of the current or last run. Safe to call from any thread
+     *
+     * @return Rows per second
+     */
+    public double getRowsPerSecond() {
+        long elapsed = runTime > 0 ? runTime : System.nanoTime() - runStart;
+        return elapsed <= 0 ? 0 : rowsDone * 1e9 / elapsed;
+    }
+
+    /**
+     * Describe the progress of the current or last run
+     *
+     * @return Rows done out of the table, with the rate
+     */
+    public String getProgress() {
+        long done = rowsDone;
+        return String.format("%d of %d rows (%.1f%%), %.0f rows/s", done, rowCount, done * 100.0 / rowCount, getRowsPerSecond());
+    }
+
+    /**
+     * Search the rows of an argument for a counterexample, from a row onwards, 64 rows at a time. At least one
+     * block is checked before the deadline and cancellation are
+     *
+     * @param fromRow Index of the first row to check (0, or the next row of an earlier result to resume it)
+     * @throws IllegalStateException If this is not the job of an argument
+     * @throws IndexOutOfBoundsException If fromRow is not in the table
+     * @return Result: the first counterexample at or after fromRow if one was found, and where to resume otherwise
+     */
+    public Result findCounterexample(long fromRow) {
+        if (!argument) {
+            throw new IllegalStateException("Only arguments have counterexamples");
+        }
+        checkRow(fromRow);
+        long start = begin();
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(program);
+        long mask = BitSlicedEvaluator.getWordMask(program.propositions.length);
+        long row = fromRow;
+        try {
+            while (row < rowCount) {
+                Status stop = row == fromRow ? null : checkStop(); //Always check the first block, so that resuming makes progress
+                if (stop != null) {
+                    return new Result(stop, fromRow, row, -1);
+                }
+                long end = Math.min(rowCount, (row / BLOCK_ROWS + 1) * BLOCK_ROWS);
+                for (long word = row >>> 6; word < (end + 63) >>> 6; ) {
+                    int count = (int) Math.min(evaluator.evaluate(word), ((end + 63) >>> 6) - word);
+                    for (int w=0; w<count; w++) {
+                        long bits = evaluator.getCounterexampleWord(w) & mask;
+                        if (word + w == row >>> 6) { //Skip rows before the first one in its word
+                            bits &= -1L << (row & 63);
+                        }
+                        if (bits != 0) {
+                            long counterexample = ((word + w) << 6) + Long.numberOfTrailingZeros(bits);
+                            rowsDone = counterexample + 1 - fromRow;
+                            RuntimeStats.addRows(counterexample + 1 - row, program.size());
+                            return new Result(Status.COMPLETE, fromRow, counterexample + 1, counterexample);
+                        }
+                    }
+                    word += count;
+                }
+                RuntimeStats.addRows(end - row, program.size());
+                rowsDone += end - row;
+                row = end;
+            }
+            return new Result(Status.COMPLETE, fromRow, rowCount, -1);
+        } finally {
+            end(start);
+            RuntimeStats.record(RuntimeStats.Phase.VALIDITY, start);
+        }
+    }
+
+    /**
+     * Write the table from a row onwards, block by block, stopping at the deadline or on cancellation with the
+     * table closed after the last row written. At least one block is written before the deadline and cancellation
+     * are checked. For arguments, a validity line follows: "Valid" or "Invalid" once
+     * decided, or how far the search got
+     *
+     * @param out Output to write to
+     * @param fromRow Index of the first row to write (0, or the next row of an earlier result to resume it)
+     * @throws IOException If writing to out fails
+     * @throws IndexOutOfBoundsException If fromRow is not in the table
+     * @return Result: the first counterexample written (for arguments), and where to resume
+     */
+    public Result render(Appendable out, long fromRow) throws IOException {
+        checkRow(fromRow);
+        long start = begin();
+        TableRenderer renderer = new TableRenderer(program, expressions, argument);
+        renderer.writeHeader(out);
+        long counterexample = -1;
+        long row = fromRow;
+        Status status = Status.COMPLETE;
+        try {
+            while (row < rowCount) {
+                status = row == fromRow ? null : checkStop(); //Always write the first block, so that resuming makes progress
+                if (status != null) {
+                    break;
+                }
+                status = Status.COMPLETE;
+                long end = Math.min(rowCount, (row / BLOCK_ROWS + 1) * BLOCK_ROWS);
+                if (row > fromRow) {
+                    renderer.writeDivider(out, false);
+                }
+                boolean valid = renderer.writeRows(out, row, end, false);
+                if (!valid && counterexample < 0) {
+                    counterexample = findInBlock(row, end);
+                }
+                rowsDone += end - row;
+                row = end;
+            }
+            renderer.writeDivider(out, true);
+            if (argument) {
+                out.append("Validity: ");
+                if (counterexample >= 0) {
+                    out.append("Invalid");
+                } else if (row == rowCount) {
+                    out.append(fromRow == 0 ? "Valid" : "no counterexample in rows " + (fromRow + 1) + " to " + rowCount);
+                } else {
+                    out.append("unknown (no counterexample in rows ").append(String.valueOf(fromRow + 1)).append(" to ").append(String.valueOf(row)).append(" of ").append(String.valueOf(rowCount)).append(")");
+                }
+                out.append("\n");
+            }
+            return new Result(status, fromRow, row, counterexample);
+        } finally {
+            end(start);
+            RuntimeStats.record(RuntimeStats.Phase.RENDER, start);
+        }
+    }
+
+    /**
+     * Find the first counterexample in a block that the renderer found one in
+     *
+     * @param from Index of the first row of the block
+     * @param to Index after the last row of the block
+     * @return Row index of the counterexample
+     */
+    private long findInBlock(long from, long to) {
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(program, 1);
+        long mask = BitSlicedEvaluator.getWordMask(program.propositions.length);
+        for (long word = from >>> 6; word < (to + 63) >>> 6; word++) {
+            evaluator.evaluate(word);
+            long bits = evaluator.getCounterexampleWord(0) & mask;
+            if (word == from >>> 6) {
+                bits &= -1L << (from & 63);
+            }
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Start a run
+     *
+     * @return Start time
+     */
+    private long begin() {
+        long start = System.nanoTime();
+        rowsDone = 0;
+        runTime = 0;
+        runStart = start;
+        lastReport = start;
+        return start;
+    }
+
+    /**
+     * Finish a run
+     *
+     * @param start Start time
+     */
+    private void end(long start) {
+        runTime = Math.max(1, System.nanoTime() - start);
+    }
+
+    /**
+     * Check the cancellation flag and the deadline at a block boundary, reporting progress if it is due
+     *
+     * @return Status to stop with, or null to go on
+     */
+    private Status checkStop() {
+        long now = System.nanoTime();
+        if (progressListener != null && now - lastReport >= progressInterval) {
+            lastReport = now;
+            progressListener.accept(this);
+        }
+        if (cancelled) {
+            return Status.CANCELLED;
+        }
+        if (timed && now - deadline >= 0) {
+            return Status.TIMED_OUT;
+        }
+        return null;
+    }
+
+    /**
+     * Check that a row is in the table
+     *
+     * @param row Row index
+     * @throws IndexOutOfBoundsException If it isn't
+     */
+    private void checkRow(long row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " is not in a table of " + rowCount + " rows");
+        }
+    }
+
+    public class Result { //Outcome of a run: why it stopped, how far it got and any counterexample found
+        private final Status status;
+        private final long fromRow;
+        private final long nextRow;
+        private final long counterexample;
+
+        private Result(Status status, long fromRow, long nextRow, long counterexample) {
+            this.status = status;
+            this.fromRow = fromRow;
+            this.nextRow = nextRow;
+            this.counterexample = counterexample;
+        }
+
+        /**
+         * Get why the run stopped
+         *
+         * @return COMPLETE if it reached the end of the table or found a counterexample, otherwise CANCELLED or
+         *         TIMED_OUT
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Get the row to resume from
+         *
+         * @return Index of the first row not enumerated (the row count if the run reached the end of the table)
+         */
+        public long getNextRow() {
+            return nextRow;
+        }
+
+        /**
+         * Get the first counterexample found
+         *
+         * @return Row index, or -1 if none was found in the rows enumerated
+         */
+        public long getCounterexample() {
+            return counterexample;
+        }
+
+        /**
+         * Determine whether the run reached the end of the table
+         *
+         * @return True if every row from the first row of the run was enumerated
+         */
+        public boolean isFinished() {
+            return nextRow == rowCount;
+        }
+
+        /**
+         * Describe the result of a counterexample search
+         *
+         * @return Validity with the counterexample if one was found, or how far the search got
+         */
+        @Override
+        public String toString() {
+            if (counterexample >= 0) {
+                return ValidityResult.fromRow(program.propositions, counterexample).toString();
+            } else if (nextRow == rowCount && fromRow == 0) {
+                return "Validity: Valid";
+            }
+            String range = "rows " + (fromRow + 1) + " to " + nextRow + " of " + rowCount;
+            if (nextRow == rowCount) {
+                return "Validity: no counterexample in " + range;
+            }
+            return "Validity: unknown (no counterexample in " + range + "; " + (status == Status.CANCELLED ? "cancelled" : "stopped at the time limit") + ")";
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+public class EvaluationServer implements Closeable { //Long-running server answering line-delimited requests over a local socket, so clients skip JVM startup and share warm caches
+    public static final int MAX_TABLE_PROPOSITIONS = 16; //Largest table returned by the table command (65536 rows)
+    public static final long TABLE_TIME_LIMIT = 10000; //Milliseconds a table request may take before the rows written so far are returned
+    private static final String UNKNOWN_COMMAND = "Unknown command (use evaluate, validate or table)";
+
+    private final ServerSocketChannel server;
+    private final ExecutorService connections; //Runs each connection on its own (virtual, when available) thread
+    private final ExpressionCache cache = ExpressionCache.getShared();
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>(); //Result of each request being computed, shared by identical concurrent requests
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batched = new LongAdder(); //Requests answered by joining an identical one in flight
+    private final Set<EvaluationJob> jobs = ConcurrentHashMap.newKeySet(); //Table requests being enumerated, cancelled on close
+    private final Thread acceptor;
+
+    /**
+     * Construct a new server and start accepting connections
+     *
+     * @param address Address to listen on, as parsed by parseAddress
+     * @throws IOException If the socket can't be opened
+     * @throws UnsupportedOperationException If address is a Unix domain socket and the JVM doesn't support them
+     */
+    public EvaluationServer(String address) throws IOException {
+        SocketAddress socketAddress = parseAddress(address);
+        if (socketAddress instanceof InetSocketAddress) {
+            server = ServerSocketChannel.open();
+        } else {
+            Files.deleteIfExists(Paths.get(address)); //Left over from a server that didn't shut down cleanly
+            server = (ServerSocketChannel) open(ServerSocketChannel.class);
+        }
+        server.bind(socketAddress);
+        connections = newConnectionExecutor();
+        acceptor = new Thread(this::acceptConnections, "TruthTabler server");
+        acceptor.start();
+    }
+
+    /**
+     * Parse a server address: a port number listens on the loopback interface, anything else is the path of a Unix
+     * domain socket
+     *
+     * @param address Port number or socket path
+     * @throws UnsupportedOperationException If address is a path and the JVM doesn't support Unix domain sockets
+     * @return Socket address
+     */
+    public static SocketAddress parseAddress(String address) {
+        if (address.matches("\\d+")) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        }
+        try { //UnixDomainSocketAddress needs Java 16, so it is looked up at runtime
+            return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class).invoke(null, address);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Unix domain sockets need Java 16 or later; use a port number instead", e);
+        }
+    }
+
+    /**
+     * Connect to a server
+     *
+     * @param address Port number or socket path, as given to the server
+     * @throws IOException If the connection fails
+     * @return Connected channel
+     */
+    public static SocketChannel connect(String address) throws IOException {
+        SocketAddress socketAddress = parseAddress(address);
+        SocketChannel channel = socketAddress instanceof InetSocketAddress ? SocketChannel.open() : (SocketChannel) open(SocketChannel.class);
+        channel.connect(socketAddress);
+        return channel;
+    }
+
+    /**
+     * Get the address the server is listening on
+     *
+     * @throws IOException If the server is closed
+     * @return Socket address (with the actual port if port 0 was requested)
+     */
+    public SocketAddress getAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    /**
+     * Get the number of requests answered
+     *
+     * @return Number of requests
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Get the number of requests answered by sharing the result of an identical request already in flight
+     *
+     * @return Number of requests
+     */
+    public long getBatchedRequests() {
+        return batched.sum();
+    }
+
+    /**
+     * Answer one request line. Requests are "evaluate EXPR" (a JSON result as in batch mode), "validate ARGUMENT"
+     * and "table EXPR_OR_ARGUMENT". Concurrent identical requests are evaluated once
+     *
+     * @param number Number of the request on its connection (starting at 1)
+     * @param line Request line
+     * @return JSON object on one line
+     */
+    public String handle(long number, String line) {
+        requests.increment();
+        StringBuilder res = new StringBuilder("{\"request\":").append(number).append(',');
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(line, mine);
+        if (running != null) { //Same request already being evaluated - wait for its result
+            batched.increment();
+            try {
+                return res.append(running.join()).append('}').toString();
+            } catch (CompletionException | CancellationException e) { //The evaluation ran out of memory
+                return res.append(getErrorBody(e.getCause() == null ? e : e.getCause())).append('}').toString();
+            }
+        }
+        try {
+            String body;
+            try {
+                body = evaluate(line);
+            } catch (OutOfMemoryError e) { //Not specific to this request, so let it reach the thread
+                throw e;
+            } catch (RuntimeException | Error e) { //Such as a StackOverflowError from a deeply nested request. Reply with the error, so that the connection (and requests sharing this one) carry on
+                body = getErrorBody(e);
+            }
+            mine.complete(body);
+            return res.append(body).append('}').toString();
+        } catch (Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(line, mine);
+        }
+    }
+
+    /**
+     * Describe an exception thrown while evaluating a request
+     *
+     * @param e Exception
+     * @return Error field of the JSON result
+     */
+    private static String getErrorBody(Throwable e) {
+        String message;
+        if (e instanceof StackOverflowError) {
+            message = "The request is nested too deeply to evaluate";
+        } else {
+            message = e.getMessage() == null ? e.toString() : e.getMessage();
+        }
+        StringBuilder res = new StringBuilder("\"error\":");
+        BatchProcessor.appendString(res, message.startsWith("Error: ") ? message.substring(7) : message);
+        return res.toString();
+    }
+
+    /**
+     * Wait until the server is closed
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stop accepting connections and close the socket. Tables being enumerated stop at their next block, and
+     * connections already open are closed as they finish
+     */
+    @Override
+    public void close() throws IOException {
+        SocketAddress address = server.getLocalAddress();
+        server.close();
+        connections.shutdown();
+        for (EvaluationJob job: jobs) {
+            job.cancel();
+        }
+        if (!(address instanceof InetSocketAddress) && address != null) { //Remove the socket file
+            Files.deleteIfExists(Paths.get(address.toString()));
+        }
+    }
+
+    /**
+     * Accept connections until the server is closed
+     */
+    private void acceptConnections() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                connections.execute(() -> serve(channel));
+            } catch (ClosedChannelException e) { //Closed by close()
+                break;
+            } catch (IOException e) {
+                System.err.println("Error: accepting a connection failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Answer requests from one connection until it is closed
+     *
+     * @param channel Connected channel
+     */
+    private void serve(SocketChannel channel) {
+        try (SocketChannel c = channel;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(c), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(c), StandardCharsets.UTF_8), 1 << 16)) {
+            long number = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                number++;
+                out.append(handle(number, line)).append('\n');
+                if (!in.ready()) { //Flush once all pipelined requests are answered
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) { //Client disconnected
+        }
+    }
+
+    /**
+     * Evaluate a request
+     *
+     * @param line Request line
+     * @return Fields of the JSON result
+     */
+    private String evaluate(String line) {
+        int space = line.indexOf(' ');
+        String command = space < 0 ? line : line.substring(0, space);
+        String expr = space < 0 ? "" : line.substring(space + 1).trim();
+        StringBuilder res = new StringBuilder("\"command\":");
+        BatchProcessor.appendString(res, command);
+        res.append(',');
+        switch (command) {
+            case "evaluate":
+                BatchProcessor.appendResult(res, expr, cache);
+                break;
+            case "validate":
+                res.append("\"input\":");
+                BatchProcessor.appendString(res, expr);
+                res.append(",\"result\":");
+                BatchProcessor.appendString(res, TruthTabler.runArgumentValidity(expr));
+                break;
+            case "table":
+                res.append("\"input\":");
+                BatchProcessor.appendString(res, expr);
+                if (TruthTabler.getPropositions(expr).length > MAX_TABLE_PROPOSITIONS) {
+                    res.append(",\"error\":");
+                    BatchProcessor.appendString(res, "Tables are limited to " + MAX_TABLE_PROPOSITIONS + " propositions");
+                } else {
+                    appendTable(res, expr);
+                }
+                break;
+            default:
+                res.append("\"error\":");
+                BatchProcessor.appendString(res, UNKNOWN_COMMAND);
+                break;
+        }
+        return res.toString();
+    }
+
+    /**
+     * Append the table of an expression or argument, enumerated for at most TABLE_TIME_LIMIT so that one large
+     * request can't hold a connection's thread for long. A partial table is marked with the first row it is missing
+     *
+     * @param res JSON fields to append to
+     * @param expr Expression or comma separated argument
+     */
+    private void appendTable(StringBuilder res, String expr) {
+        EvaluationJob job;
+        try {
+            job = expr.indexOf(',') >= 0 ? EvaluationJob.ofArgument(expr) : EvaluationJob.ofExpression(expr);
+        } catch (IllegalArgumentException e) {
+            res.append(",\"table\":");
+            BatchProcessor.appendString(res, e.getMessage());
+            return;
+        }
+        StringBuilder table = new StringBuilder();
+        EvaluationJob.Result result;
+        jobs.add(job);
+        try {
+            result = job.setTimeLimit(TABLE_TIME_LIMIT).render(table, 0);
+        } catch (IOException e) { //Not thrown by StringBuilder
+            throw new UncheckedIOException(e);
+        } finally {
+            jobs.remove(job);
+        }
+        res.append(",\"table\":");
+        BatchProcessor.appendString(res, table.toString());
+        if (!result.isFinished()) {
+            res.append(",\"complete\":false,\"nextRow\":").append(result.getNextRow());
+        }
+    }
+
+    /**
+     * Get an executor that runs each task on a new virtual thread (Java 21 or later), or else on a pool of daemon
+     * platform threads
+     *
+     * @return Executor
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) { //Before Java 21
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "TruthTabler connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Open a Unix domain socket channel (Java 16 or later)
+     *
+     * @param type ServerSocketChannel or SocketChannel
+     * @throws IOException If the channel can't be opened
+     * @throws UnsupportedOperationException If the JVM doesn't support Unix domain sockets
+     * @return Unbound, unconnected channel
+     */
+    private static Object open(Class<?> type) throws IOException {
+        try {
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            return type.getMethod("open", ProtocolFamily.class).invoke(null, unix);
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new UnsupportedOperationException("Unix domain sockets need Java 16 or later; use a port number instead", e);
+        }
+    }
+}
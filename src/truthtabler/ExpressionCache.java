@@ -0,0 +1,176 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ExpressionCache { //Thread-safe, weight-bounded LRU cache of parsed and compiled expressions
+    public static final long DEFAULT_MAX_WEIGHT = 1 << 22; //Default total weight (compiled instructions) kept
+    private static final ExpressionCache SHARED = new ExpressionCache(DEFAULT_MAX_WEIGHT);
+
+    private final long maxWeight;
+    private long weight = 0; //Total weight of the entries (guarded by this)
+    private final LinkedHashMap<String, ParsedExpression> entries = new LinkedHashMap<>(16, 0.75f, true); //Access order for LRU eviction (guarded by this)
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Construct a new cache
+     *
+     * @param maxWeight Maximum total weight of the cached expressions
+     */
+    public ExpressionCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Get the process-wide cache
+     *
+     * @return Shared cache
+     */
+    public static ExpressionCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the parsed form of an expression, parsing and compiling it on a miss
+     *
+     * @param expr Expression
+     * @throws IllegalArgumentException If the expression can't be parsed or compiled, with a user-facing "Error: ..." message
+     * @return Parsed expression
+     */
+    public ParsedExpression getExpression(String expr) {
+        return get(expr, false);
+    }
+
+    /**
+     * Get the parsed form of a comma separated argument, parsing and compiling it on a miss
+     *
+     * @param expr Argument (premises followed by the conclusion)
+     * @throws IllegalArgumentException If the argument can't be parsed or compiled, with a user-facing "Error: ..." message
+     * @return Parsed argument
+     */
+    public ParsedExpression getArgument(String expr) {
+        return get(expr, true);
+    }
+
+    /**
+     * Get an entry, parsing it outside the lock on a miss
+     *
+     * @param expr Expression or argument
+     * @param argument Whether expr is an argument
+     * @return Parsed expression
+     */
+    private ParsedExpression get(String expr, boolean argument) {
+        String key = normalize(expr);
+        synchronized (this) {
+            ParsedExpression res = entries.get(key);
+            if (res != null) {
+                hits.increment();
+                return res;
+            }
+        }
+        misses.increment();
+        ParsedExpression res = ParsedExpression.parse(expr, argument);
+        synchronized (this) {
+            ParsedExpression old = entries.put(key, res);
+            if (old != null) { //Parsed concurrently by another thread
+                weight -= old.getWeight();
+            }
+            weight += res.getWeight();
+            Iterator<Map.Entry<String, ParsedExpression>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeight && entries.size() > 1) { //Evict least recently used entries, keeping the new one
+                ParsedExpression evicted = eldest.next().getValue();
+                eldest.remove();
+                weight -= evicted.getWeight();
+                evictions.increment();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Normalize an expression to its cache key: alternate operator symbols are replaced so that spellings of the
+     * same expression share an entry
+     *
+     * @param expr Expression or argument
+     * @return Cache key
+     */
+    static String normalize(String expr) {
+        return expr.replace(':', '≡').replace('>', '⊃');
+    }
+
+    /**
+     * Remove every entry (the counters are kept)
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Get the number of cached expressions
+     *
+     * @return Number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the total weight of the cached expressions
+     *
+     * @return Total weight
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Get the maximum total weight before entries are evicted
+     *
+     * @return Maximum weight
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Get the number of lookups that found a cached expression
+     *
+     * @return Hit count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that had to parse the expression
+     *
+     * @return Miss count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of entries evicted to stay within the maximum weight
+     *
+     * @return Eviction count
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
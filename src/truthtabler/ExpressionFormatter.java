@@ -0,0 +1,73 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+
+public class ExpressionFormatter { //Writes LogicNode trees back out in the input syntax
+    public static final char TRUE_SYMBOL = '⊤'; //Constants have no input syntax, so they are written with these
+    public static final char FALSE_SYMBOL = '⊥';
+
+    /**
+     * Format a tree as an expression, with parentheses around every operand that is an operator so that the
+     * result can be parsed again (unless it contains a constant). Shared nodes are written out in full
+     *
+     * @param root Root node of the tree
+     * @return Expression
+     */
+    public static String format(LogicNode root) {
+        StringBuilder res = new StringBuilder();
+        ArrayDeque<Object> stack = new ArrayDeque<>(); //Nodes still to write, and the text between them (explicit stack so that deep trees can't overflow the call stack)
+        stack.push(root);
+        boolean top = true;
+        while (!stack.isEmpty()) {
+            Object item = stack.pop();
+            if (!(item instanceof LogicNode)) {
+                res.append(item);
+                continue;
+            }
+            LogicNode node = (LogicNode) item;
+            if (node.type == NodeType.CONSTANT) {
+                res.append(node.inverted ? FALSE_SYMBOL : TRUE_SYMBOL);
+            } else if (node.type == NodeType.PROPOSITION) {
+                res.append(node.inverted ? "~" : "").append(node.val);
+            } else {
+                boolean group = !top || node.inverted;
+                if (group) {
+                    res.append(node.inverted ? "~(" : "(");
+                    stack.push(')');
+                }
+                stack.push(node.right);
+                stack.push(node.val);
+                stack.push(node.left);
+            }
+            top = false;
+        }
+        return res.toString();
+    }
+
+    /**
+     * Format several trees as a comma separated list (an argument when the last tree is the conclusion)
+     *
+     * @param roots Root nodes
+     * @return Comma separated expressions
+     */
+    public static String format(LogicNode[] roots) {
+        StringBuilder res = new StringBuilder();
+        for (int i=0; i<roots.length; i++) {
+            if (i > 0) {
+                res.append(',');
+            }
+            res.append(format(roots[i]));
+        }
+        return res.toString();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+
+public class ExpressionParser { //Single pass parser from an expression string to a NodeArena or a LogicNode tree
+    private final String raw;
+    private int pos = 0; //Cursor into raw
+
+    /**
+     * Construct a new parser for an expression
+     *
+     * @param raw Raw input string
+     */
+    public ExpressionParser(String raw) {
+        this.raw = raw;
+    }
+
+    /**
+     * Parse an expression into a tree
+     *
+     * @param raw Raw input string
+     * @throws ExpressionSyntaxException If the expression is not valid
+     * @return Root node of the tree, or null if raw is empty
+     */
+    public static LogicNode parse(String raw) {
+        return new ExpressionParser(raw).parse();
+    }
+
+    /**
+     * Parse an expression into an arena
+     *
+     * @param raw Raw input string
+     * @param arena Arena to add the nodes to
+     * @throws ExpressionSyntaxException If the expression is not valid
+     * @return Handle of the root node, or -1 if raw is empty
+     */
+    public static int parse(String raw, NodeArena arena) {
+        return new ExpressionParser(raw).parse(arena);
+    }
+
+    /**
+     * Parse the expression into a tree. Each operator takes exactly two operands, and any chain of operators must
+     * be grouped. Groups are kept on an explicit stack, so the parse is linear in the length of the input and deep
+     * nesting can't overflow the call stack
+     *
+     * @throws ExpressionSyntaxException If the expression is not valid
+     * @return Root node of the tree, or null if the expression is empty
+     */
+    public LogicNode parse() {
+        if (raw.isEmpty()) { //Base case - no node to return
+            return null;
+        }
+        ArrayDeque<Group> groups = new ArrayDeque<>();
+        groups.push(new Group(false, -1)); //Top level (not parenthesized)
+        while (true) {
+            //Parse an operand: any number of negations then a proposition or group
+            boolean inverted = false;
+            while (pos < raw.length() && raw.charAt(pos) == '~') {
+                inverted = !inverted;
+                pos++;
+            }
+            if (pos >= raw.length()) {
+                throw error("Expected a proposition or group");
+            }
+            char c = raw.charAt(pos);
+            if (c == '(') { //Start of group - operands go into the new group until it closes
+                groups.push(new Group(inverted, pos));
+                pos++;
+                continue;
+            } else if (!isProposition(c)) {
+                throw error("Expected a proposition or group but found '" + c + "'");
+            }
+            pos++;
+            LogicNode operand = new LogicNode(c, null, null, NodeType.PROPOSITION, inverted);
+
+            //Attach the operand, closing as many groups as end here
+            while (true) {
+                Group group = groups.peek();
+                if (group.left == null) {
+                    group.left = operand;
+                } else {
+                    group.left = new LogicNode(group.op, group.left, operand, NodeType.OPERATOR, false);
+                    group.complete = true;
+                }
+                if (pos < raw.length() && raw.charAt(pos) == ')') {
+                    if (groups.size() == 1) {
+                        throw error("Unmatched ')'");
+                    }
+                    groups.pop();
+                    pos++;
+                    operand = group.left;
+                    operand.inverted = group.inverted != operand.inverted;
+                    continue;
+                }
+                break;
+            }
+
+            Group group = groups.peek();
+            if (pos >= raw.length()) { //End of the expression
+                if (groups.size() > 1) {
+                    pos = group.start;
+                    throw error("Unmatched '('");
+                }
+                return group.left;
+            }
+            c = raw.charAt(pos);
+            if (!isOperator(c)) {
+                throw error("Expected an operator but found '" + c + "'");
+            } else if (group.complete) {
+                throw error("Operators must have exactly two operands, group the expression with ( and ) before '" + c + "'");
+            }
+            group.op = c;
+            pos++;
+        }
+    }
+
+    /**
+     * Parse the expression into an arena, with the same syntax and errors as parse()
+     *
+     * @param arena Arena to add the nodes to
+     * @throws ExpressionSyntaxException If the expression is not valid
+     * @return Handle of the root node, or -1 if the expression is empty
+     */
+    public int parse(NodeArena arena) {
+        if (raw.isEmpty()) { //Base case - no node to return
+            return -1;
+        }
+        ArrayDeque<Group> groups = new ArrayDeque<>();
+        groups.push(new Group(false, -1)); //Top level (not parenthesized)
+        while (true) {
+            //Parse an operand: any number of negations then a proposition or group
+            boolean inverted = false;
+            while (pos < raw.length() && raw.charAt(pos) == '~') {
+                inverted = !inverted;
+                pos++;
+            }
+            if (pos >= raw.length()) {
+                throw error("Expected a proposition or group");
+            }
+            char c = raw.charAt(pos);
+            if (c == '(') { //Start of group - operands go into the new group until it closes
+                groups.push(new Group(inverted, pos));
+                pos++;
+                continue;
+            } else if (!isProposition(c)) {
+                throw error("Expected a proposition or group but found '" + c + "'");
+            }
+            pos++;
+            int operand = arena.proposition(c, inverted);
+
+            //Attach the operand, closing as many groups as end here
+            while (true) {
+                Group group = groups.peek();
+                if (group.handle < 0) {
+                    group.handle = operand;
+                } else {
+                    group.handle = arena.operator(group.op, group.handle, operand, false);
+                    group.complete = true;
+                }
+                if (pos < raw.length() && raw.charAt(pos) == ')') {
+                    if (groups.size() == 1) {
+                        throw error("Unmatched ')'");
+                    }
+                    groups.pop();
+                    pos++;
+                    operand = group.handle;
+                    if (group.inverted) { //The group's node was just added, so nothing else refers to it
+                        arena.invert(operand);
+                    }
+                    continue;
+                }
+                break;
+            }
+
+            Group group = groups.peek();
+            if (pos >= raw.length()) { //End of the expression
+                if (groups.size() > 1) {
+                    pos = group.start;
+                    throw error("Unmatched '('");
+                }
+                return group.handle;
+            }
+            c = raw.charAt(pos);
+            if (!isOperator(c)) {
+                throw error("Expected an operator but found '" + c + "'");
+            } else if (group.complete) {
+                throw error("Operators must have exactly two operands, group the expression with ( and ) before '" + c + "'");
+            }
+            group.op = c;
+            pos++;
+        }
+    }
+
+    /**
+     * Get whether a character is a proposition letter
+     *
+     * @param c Character
+     * @return True if c is a letter other than v
+     */
+    public static boolean isProposition(char c) {
+        return ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) && c != 'v';
+    }
+
+    /**
+     * Get whether a character is a binary operator
+     *
+     * @param c Character
+     * @return True if c is v, &, ⊃, >, ≡ or :
+     */
+    public static boolean isOperator(char c) {
+        return c == 'v' || c == '&' || c == '⊃' || c == '>' || c == '≡' || c == ':';
+    }
+
+    /**
+     * Create a syntax error at the cursor
+     *
+     * @param message Error message
+     * @return Exception to throw
+     */
+    private ExpressionSyntaxException error(String message) {
+        return new ExpressionSyntaxException(message + " at position " + (pos + 1) + ". Please check your syntax.", pos);
+    }
+
+    private static class Group { //Partially parsed group (or the top level)
+        final boolean inverted; //Whether the group is negated
+        final int start; //Position of the opening parenthesis
+        LogicNode left; //Left operand, or the whole group once it has two operands
+        int handle = -1; //Same as left when parsing into an arena (-1 before the first operand)
+        char op; //Operator between the operands
+        boolean complete = false; //Whether both operands have been parsed
+
+        Group(boolean inverted, int start) {
+            this.inverted = inverted;
+            this.start = start;
+        }
+    }
+}
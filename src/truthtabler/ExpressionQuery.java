@@ -0,0 +1,199 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+public class ExpressionQuery { //Answers questions about the truth table of an expression (model count, tautology, satisfiability, first model) without rendering it
+    public static final int ENUMERATION_LIMIT = 16; //Most propositions decided by enumerating rows bit-sliced; larger expressions use the SAT solver or a BDD
+
+    public enum Query {
+        COUNT, //Number of rows where the expression is true
+        TAUTOLOGY, //Whether the expression is true in every row
+        CONTRADICTION, //Whether the expression is false in every row
+        SATISFIABLE, //Whether the expression is true in some row
+        MODEL //First row where the expression is true
+    }
+
+    private final LogicNode root; //Simplified root of the expression
+    private final char[] propositions; //Every proposition of the expression
+    private final CompiledExpression reduced; //Program over the propositions left after simplification
+    private final char[] used; //Propositions of the reduced program
+
+    /**
+     * Construct a new query over the first expression of a parsed expression
+     *
+     * @param parsed Parsed expression
+     */
+    public ExpressionQuery(ParsedExpression parsed) {
+        this.root = parsed.getRoot(0);
+        this.propositions = parsed.getPropositions();
+        this.reduced = parsed.getReducedProgram();
+        this.used = reduced.getPropositions();
+    }
+
+    /**
+     * Count the rows where the expression is true. Small tables are counted bit-sliced, larger ones by building
+     * a BDD, whose size depends on the structure of the expression rather than the number of rows. Propositions
+     * removed by simplification double the count without being enumerated
+     *
+     * @throws ArithmeticException If there are more than 62 propositions
+     * @return Number of satisfying rows
+     */
+    public long count() {
+        if (propositions.length > 62) {
+            throw new ArithmeticException("Too many propositions to count in a long: " + propositions.length);
+        }
+        long start = System.nanoTime();
+        try {
+            long res;
+            if (Simplifier.isConstant(root, false)) {
+                res = 0;
+            } else if (Simplifier.isConstant(root, true)) {
+                res = 1;
+            } else if (used.length <= ENUMERATION_LIMIT) {
+                res = new BitSlicedEvaluator(reduced).countSatisfying(0);
+            } else {
+                Bdd bdd = new Bdd(used);
+                res = bdd.satCount(bdd.build(root));
+            }
+            return res << (propositions.length - used.length);
+        } finally {
+            RuntimeStats.record(RuntimeStats.Phase.QUERY, start);
+        }
+    }
+
+    /**
+     * Determine whether the expression is true in every row, stopping at the first row where it is false
+     *
+     * @return True if a tautology
+     */
+    public boolean isTautology() {
+        return !hasValue(false);
+    }
+
+    /**
+     * Determine whether the expression is false in every row, stopping at the first row where it is true
+     *
+     * @return True if a contradiction
+     */
+    public boolean isContradiction() {
+        return !hasValue(true);
+    }
+
+    /**
+     * Determine whether the expression is true in some row, stopping at the first row where it is true
+     *
+     * @return True if satisfiable
+     */
+    public boolean isSatisfiable() {
+        return hasValue(true);
+    }
+
+    /**
+     * Find the first row (in truth table order) where the expression is true
+     *
+     * @return Truth value of each proposition by index, or null if the expression is a contradiction
+     */
+    public boolean[] findFirstModel() {
+        long start = System.nanoTime();
+        try {
+            boolean[] values;
+            if (Simplifier.isConstant(root, false)) {
+                return null;
+            } else if (used.length <= ENUMERATION_LIMIT) {
+                long row = new BitSlicedEvaluator(reduced).findSatisfying(0);
+                if (row < 0) {
+                    return null;
+                }
+                values = new boolean[used.length];
+                for (int i=0; i<used.length; i++) {
+                    values[i] = (row >>> (used.length - 1 - i) & 1L) == 0;
+                }
+            } else {
+                if (ValidityChecker.findModel(root, true, used) == null) { //Rule out contradictions with the SAT solver before building a BDD
+                    return null;
+                }
+                Bdd bdd = new Bdd(used);
+                values = bdd.firstSat(bdd.build(root));
+            }
+            boolean[] res = new boolean[propositions.length];
+            for (int i=0, j=0; i<propositions.length; i++) { //Propositions removed by simplification stay true, which keeps the row first
+                if (j < used.length && used[j] == propositions[i]) {
+                    res[i] = values[j++];
+                } else {
+                    res[i] = true;
+                }
+            }
+            return res;
+        } finally {
+            RuntimeStats.record(RuntimeStats.Phase.QUERY, start);
+        }
+    }
+
+    /**
+     * Run a query and describe the answer
+     *
+     * @param query Query
+     * @return Human-readable answer
+     */
+    public String run(Query query) {
+        switch (query) {
+            case COUNT:
+                if (propositions.length > 62) {
+                    return "Error: too many propositions to count (" + propositions.length + ")";
+                }
+                return "Satisfying rows: " + count() + " of " + (1L << propositions.length);
+            case TAUTOLOGY:
+                return "Tautology: " + isTautology();
+            case CONTRADICTION:
+                return "Contradiction: " + isContradiction();
+            case SATISFIABLE:
+                return "Satisfiable: " + isSatisfiable();
+            default: //MODEL
+                boolean[] model = findFirstModel();
+                if (model == null) {
+                    return "Model: none (contradiction)";
+                }
+                StringBuilder res = new StringBuilder("Model:");
+                long row = 0;
+                for (int i=0; i<propositions.length; i++) {
+                    res.append(" ").append(propositions[i]).append("=").append(model[i] ? "T" : "F");
+                    if (!model[i] && propositions.length < 63) {
+                        row |= 1L << (propositions.length - 1 - i);
+                    }
+                }
+                if (propositions.length < 63) {
+                    res.append(" (row ").append(row + 1).append(")");
+                }
+                return res.toString();
+        }
+    }
+
+    /**
+     * Determine whether the expression has a value in some row, stopping as soon as one is found
+     *
+     * @param value Truth value to look for
+     * @return True if some row has the value
+     */
+    private boolean hasValue(boolean value) {
+        long start = System.nanoTime();
+        try {
+            if (root.type == NodeType.CONSTANT) {
+                return Simplifier.isConstant(root, value);
+            } else if (used.length <= ENUMERATION_LIMIT) {
+                BitSlicedEvaluator evaluator = new BitSlicedEvaluator(reduced);
+                return value ? evaluator.findSatisfying(0) >= 0 : evaluator.findCounterexample() >= 0; //With one root, a counterexample is a row where it is false
+            }
+            return ValidityChecker.findModel(root, value, used) != null;
+        } finally {
+            RuntimeStats.record(RuntimeStats.Phase.QUERY, start);
+        }
+    }
+}
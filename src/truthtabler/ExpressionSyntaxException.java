@@ -0,0 +1,36 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+public class ExpressionSyntaxException extends IllegalStateException { //Expression that could not be parsed, with the position of the error
+    private static final long serialVersionUID = 1L;
+    private final int position; //Index of the character the error was found at
+
+    /**
+     * Construct a new syntax exception
+     *
+     * @param message Error message
+     * @param position Index of the character the error was found at
+     */
+    public ExpressionSyntaxException(String message, int position) {
+        super(message);
+        this.position = position;
+    }
+
+    /**
+     * Get the position of the error
+     *
+     * @return Index of the character the error was found at
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+
+public abstract class GeneratedEvaluator { //A compiled program translated to JVM bytecode: every instruction becomes straight-line code with no dispatch, which the JIT compiles like hand-written Java
+    public static final int MAX_SIZE = 1 << 14; //Largest program translated (larger ones stay interpreted)
+
+    /**
+     * Construct a new evaluator (only called by generated subclasses)
+     */
+    protected GeneratedEvaluator() {
+    }
+
+    /**
+     * Translate a program to bytecode and load it
+     *
+     * @param program Compiled program
+     * @return Evaluator, or null if the program is too large or the class can't be defined
+     */
+    public static GeneratedEvaluator generate(CompiledExpression program) {
+        if (program.size() > MAX_SIZE) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            Class<?> type = define(new BytecodeGenerator(program).generate());
+            return (GeneratedEvaluator) type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) { //Rejected by the JVM - keep interpreting
+            return null;
+        } finally {
+            RuntimeStats.record(RuntimeStats.Phase.GENERATION, start);
+        }
+    }
+
+    /**
+     * Evaluate the program for one assignment packed into a long (bit i is the value of proposition i). The
+     * result of every root is stored in registers as by CompiledExpression.evaluate; other registers are scratch
+     *
+     * @param assignment Packed assignment
+     * @param registers Register file from CompiledExpression.newRegisters()
+     * @return Truth value of the first root
+     */
+    public abstract boolean evaluate(long assignment, boolean[] registers);
+
+    /**
+     * Evaluate one word of a bit-sliced pass, laid out as by CompiledExpression.runWords
+     *
+     * @param columns Truth values of each proposition, one bit per row
+     * @param registers Register file from CompiledExpression.newWordRegisters(width)
+     * @param width Number of words per proposition and register
+     * @param word Index of the word to evaluate
+     */
+    public abstract void runWord(long[] columns, long[] registers, int width, int word);
+
+    /**
+     * Evaluate a bit-sliced pass of width words. The result of every root is stored in registers as by
+     * CompiledExpression.runWords; other registers are scratch
+     *
+     * @param columns Truth values of each proposition, one bit per row
+     * @param registers Register file from CompiledExpression.newWordRegisters(width)
+     * @param width Number of words per proposition and register
+     */
+    public void runWords(long[] columns, long[] registers, int width) {
+        for (int w=0; w<width; w++) {
+            runWord(columns, registers, width, w);
+        }
+    }
+
+    /**
+     * Define a generated class: as a hidden class (Java 15 or later), which is unloaded with its evaluator, or
+     * else in a class loader of its own
+     *
+     * @param bytes Class file
+     * @throws ReflectiveOperationException If the class can't be defined
+     * @return Defined class
+     */
+    private static Class<?> define(byte[] bytes) throws ReflectiveOperationException {
+        Method defineHidden;
+        Object options;
+        try { //Looked up at runtime, as the build targets Java 8
+            Class<?> optionType = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            options = Array.newInstance(optionType, 0);
+            defineHidden = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, options.getClass());
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return new Loader(GeneratedEvaluator.class.getClassLoader()).define(bytes);
+        }
+        MethodHandles.Lookup lookup = (MethodHandles.Lookup) defineHidden.invoke(MethodHandles.lookup(), bytes, true, options);
+        return lookup.lookupClass();
+    }
+
+    private static class Loader extends ClassLoader { //Loads one generated class, so that it can be unloaded when no longer used
+        Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(byte[] bytes) {
+            return defineClass(BytecodeGenerator.CLASS_NAME.replace('/', '.'), bytes, 0, bytes.length);
+        }
+    }
+}
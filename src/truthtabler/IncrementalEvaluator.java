@@ -0,0 +1,378 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+public class IncrementalEvaluator { //Keeps the value of every instruction of a program and, when a proposition changes, re-evaluates only the instructions on paths from it to the roots
+    private final CompiledExpression program;
+    private final int propCount;
+    private final long rowCount; //Rows in the table (0 if there are too many to enumerate)
+    private final boolean[] values; //Current truth value of each proposition
+    private final boolean[] registers; //Last value of each instruction
+    private final int[] loadStart; //Instructions loading proposition p are loads[loadStart[p]] to loads[loadStart[p+1]-1]
+    private final int[] loads;
+    private final int[] parentStart; //Instructions reading register i are parents[parentStart[i]] to parents[parentStart[i+1]-1]
+    private final int[] parents;
+    private final int[] rootStart; //Roots held in register i are rootsOf[rootStart[i]] to rootsOf[rootStart[i+1]-1]
+    private final int[] rootsOf;
+    private final int[] queue; //Min-heap of dirty instructions, so each is recomputed after all of its dirty operands
+    private final boolean[] queued;
+    private int queueSize = 0;
+    private int falsePremises = 0; //Number of premise roots (all but the last) that are false
+    private long step = 0; //Gray code steps taken (the current row is grayCode(step))
+    private long nodesVisited = 0; //Instructions computed since construction
+    private long deadline = 0; //System.nanoTime() for findCounterexample to give up at
+    private boolean timed = false; //Whether there is a deadline
+
+    /**
+     * Construct a new incremental evaluator positioned at the first row (every proposition true). Instances are not
+     * thread-safe
+     *
+     * @param program Compiled program
+     */
+    public IncrementalEvaluator(CompiledExpression program) {
+        this.program = program;
+        this.propCount = program.propositions.length;
+        this.rowCount = propCount < 63 ? 1L << propCount : 0;
+        int size = program.size();
+        this.values = new boolean[propCount];
+        this.registers = program.newRegisters();
+
+        //Count the readers of each proposition and register, then fill the compressed lists
+        loadStart = new int[propCount + 1];
+        parentStart = new int[size + 1];
+        rootStart = new int[size + 1];
+        for (int i=0; i<size; i++) {
+            if (program.opcodes[i] == CompiledExpression.LOAD) {
+                loadStart[program.left[i] + 1]++;
+            } else if (program.opcodes[i] != CompiledExpression.CONST) {
+                parentStart[program.left[i] + 1]++;
+                if (program.right[i] != program.left[i]) {
+                    parentStart[program.right[i] + 1]++;
+                }
+            }
+        }
+        for (int root: program.roots) {
+            rootStart[root + 1]++;
+        }
+        for (int p=0; p<propCount; p++) {
+            loadStart[p + 1] += loadStart[p];
+        }
+        for (int i=0; i<size; i++) {
+            parentStart[i + 1] += parentStart[i];
+            rootStart[i + 1] += rootStart[i];
+        }
+        loads = new int[loadStart[propCount]];
+        parents = new int[parentStart[size]];
+        rootsOf = new int[rootStart[size]];
+        int[] loadFill = loadStart.clone();
+        int[] parentFill = parentStart.clone();
+        int[] rootFill = rootStart.clone();
+        for (int i=0; i<size; i++) {
+            if (program.opcodes[i] == CompiledExpression.LOAD) {
+                loads[loadFill[program.left[i]]++] = i;
+            } else if (program.opcodes[i] != CompiledExpression.CONST) {
+                parents[parentFill[program.left[i]]++] = i;
+                if (program.right[i] != program.left[i]) {
+                    parents[parentFill[program.right[i]]++] = i;
+                }
+            }
+        }
+        for (int r=0; r<program.roots.length; r++) {
+            rootsOf[rootFill[program.roots[r]]++] = r;
+        }
+
+        queue = new int[size];
+        queued = new boolean[size];
+        reset(0);
+    }
+
+    /**
+     * Get the Gray code of a step: consecutive steps differ in exactly one bit
+     *
+     * @param step Step index
+     * @return Row index
+     */
+    public static long grayCode(long step) {
+        return step ^ (step >>> 1);
+    }
+
+    /**
+     * Get the step whose Gray code is a row
+     *
+     * @param row Row index
+     * @return Step index
+     */
+    public static long inverseGrayCode(long row) {
+        long res = row;
+        for (int shift=1; shift<64; shift<<=1) {
+            res ^= res >>> shift;
+        }
+        return res;
+    }
+
+    /**
+     * Evaluate a row from scratch
+     *
+     * @param row Row index (the first row is all true and the last proposition alternates fastest)
+     */
+    public void reset(long row) {
+        for (int p=0; p<propCount; p++) {
+            values[p] = p < propCount - 63 || (row >>> (propCount - 1 - p) & 1L) == 0;
+        }
+        program.run(values, registers);
+        nodesVisited += program.size();
+        falsePremises = 0;
+        for (int r=0; r<program.roots.length-1; r++) {
+            if (!registers[program.roots[r]]) {
+                falsePremises++;
+            }
+        }
+        step = inverseGrayCode(row);
+    }
+
+    /**
+     * Set the value of a proposition, re-evaluating only the instructions that depend on it
+     *
+     * @param prop Index of the proposition
+     * @param value New truth value
+     */
+    public void set(int prop, boolean value) {
+        if (values[prop] != value) {
+            flip(prop);
+        }
+    }
+
+    /**
+     * Negate the value of a proposition, re-evaluating only the instructions that depend on it. Propagation stops
+     * along any path where an instruction's value doesn't change
+     *
+     * @param prop Index of the proposition
+     */
+    public void flip(int prop) {
+        values[prop] = !values[prop];
+        for (int k=loadStart[prop]; k<loadStart[prop+1]; k++) {
+            push(loads[k]);
+        }
+        while (queueSize > 0) {
+            int i = pop();
+            boolean res = program.compute(i, values, registers);
+            nodesVisited++;
+            if (res != registers[i]) {
+                registers[i] = res;
+                for (int k=rootStart[i]; k<rootStart[i+1]; k++) {
+                    if (rootsOf[k] < program.roots.length - 1) { //Premise changed
+                        falsePremises += res ? -1 : 1;
+                    }
+                }
+                for (int k=parentStart[i]; k<parentStart[i+1]; k++) {
+                    push(parents[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move to the next row in Gray code order, which flips exactly one proposition
+     *
+     * @return False if every row has been visited (the evaluator is left at the last row)
+     */
+    public boolean next() {
+        if (step + 1 >= rowCount) {
+            return false;
+        }
+        step++;
+        flip(propCount - 1 - Long.numberOfTrailingZeros(step)); //Bit b of the row drives proposition n-1-b
+        return true;
+    }
+
+    /**
+     * Get the current row index
+     *
+     * @return Row index (the first row is all true)
+     */
+    public long getRow() {
+        return grayCode(step);
+    }
+
+    /**
+     * Get the current value of a proposition
+     *
+     * @param prop Index of the proposition
+     * @return Truth value
+     */
+    public boolean getValue(int prop) {
+        return values[prop];
+    }
+
+    /**
+     * Get the current value of a root
+     *
+     * @param root Index of the root
+     * @return Truth value
+     */
+    public boolean getResult(int root) {
+        return registers[program.roots[root]];
+    }
+
+    /**
+     * Get whether the current row is a counterexample of an argument (the last root is the conclusion)
+     *
+     * @return True if every premise is true and the conclusion is false
+     */
+    public boolean isCounterexample() {
+        return falsePremises == 0 && !registers[program.roots[program.roots.length-1]];
+    }
+
+    /**
+     * Make later searches for a counterexample give up at a deadline, checked once every 4096 rows
+     *
+     * @param deadline System.nanoTime() value to give up at
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        this.timed = true;
+    }
+
+    /**
+     * Find a counterexample of an argument, visiting the rows in Gray code order from the first row. This is not
+     * necessarily the lowest counterexample row
+     *
+     * @throws ArithmeticException If there are more than 62 propositions
+     * @throws TimeLimitExceededException If the deadline passes first
+     * @return Row index of a counterexample, or -1 if the argument is valid
+     */
+    public long findCounterexample() {
+        checkRowCount();
+        long start = System.nanoTime();
+        long nodes = nodesVisited;
+        reset(0);
+        long rows = 1;
+        try {
+            do {
+                if (isCounterexample()) {
+                    return getRow();
+                }
+                if (timed && (rows & 4095) == 0) {
+                    TimeLimitExceededException.check(deadline);
+                }
+                rows++;
+            } while (next());
+            rows--;
+            return -1;
+        } finally {
+            RuntimeStats.addEvaluatedRows(rows, nodesVisited - nodes);
+            RuntimeStats.record(RuntimeStats.Phase.EVALUATION, start);
+        }
+    }
+
+    /**
+     * Determine whether an argument is valid
+     *
+     * @throws ArithmeticException If there are more than 62 propositions
+     * @return True if no row has all premises true and the conclusion false
+     */
+    public boolean isValid() {
+        return findCounterexample() < 0;
+    }
+
+    /**
+     * Count the rows where a root is true
+     *
+     * @param root Index of the root
+     * @throws ArithmeticException If there are more than 62 propositions
+     * @return Number of satisfying rows
+     */
+    public long countSatisfying(int root) {
+        checkRowCount();
+        long start = System.nanoTime();
+        long nodes = nodesVisited;
+        reset(0);
+        long res = 0;
+        do {
+            if (getResult(root)) {
+                res++;
+            }
+        } while (next());
+        RuntimeStats.addEvaluatedRows(rowCount, nodesVisited - nodes);
+        RuntimeStats.record(RuntimeStats.Phase.EVALUATION, start);
+        return res;
+    }
+
+    /**
+     * Get the number of instructions computed so far, including full evaluations by reset
+     *
+     * @return Number of instructions
+     */
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * Check that the rows can be enumerated
+     *
+     * @throws ArithmeticException If there are more than 62 propositions
+     */
+    private void checkRowCount() {
+        if (rowCount == 0) {
+            throw new ArithmeticException("Too many propositions to enumerate: " + propCount);
+        }
+    }
+
+    /**
+     * Add a dirty instruction to the queue (once)
+     *
+     * @param i Index of the instruction
+     */
+    private void push(int i) {
+        if (queued[i]) {
+            return;
+        }
+        queued[i] = true;
+        int k = queueSize++;
+        while (k > 0) { //Sift up
+            int parent = (k - 1) >>> 1;
+            if (queue[parent] <= i) {
+                break;
+            }
+            queue[k] = queue[parent];
+            k = parent;
+        }
+        queue[k] = i;
+    }
+
+    /**
+     * Remove the lowest dirty instruction from the queue
+     *
+     * @return Index of the instruction
+     */
+    private int pop() {
+        int res = queue[0];
+        queued[res] = false;
+        int last = queue[--queueSize];
+        int k = 0;
+        while (true) { //Sift down
+            int child = 2*k + 1;
+            if (child >= queueSize) {
+                break;
+            }
+            if (child + 1 < queueSize && queue[child + 1] < queue[child]) {
+                child++;
+            }
+            if (queue[child] >= last) {
+                break;
+            }
+            queue[k] = queue[child];
+            k = child;
+        }
+        queue[k] = last;
+        return res;
+    }
+}
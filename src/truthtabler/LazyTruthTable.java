@@ -0,0 +1,294 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class LazyTruthTable implements Iterable<boolean[]> { //Truth table whose rows are computed from their index on demand, so a page of a large table costs only the rows on it
+    public static final int MAX_PROPOSITIONS = 62; //Most propositions whose row count fits in a long
+
+    private final CompiledExpression program; //Program with one root per expression
+    private final String[] expressions; //Expression column headers
+    private final boolean argument; //Whether the last expression is a conclusion
+    private final int propCount;
+    private final long rowCount;
+
+    /**
+     * Construct a new table. Nothing is evaluated until rows are requested
+     *
+     * @param parsed Parsed expression or argument
+     * @param expressions Expression strings used as column headers, one per root
+     * @param argument Whether the expressions are premises followed by a conclusion
+     * @throws IllegalArgumentException If there are more than MAX_PROPOSITIONS propositions
+     */
+    public LazyTruthTable(ParsedExpression parsed, String[] expressions, boolean argument) {
+        this.program = parsed.getProgram();
+        this.expressions = expressions.clone();
+        this.argument = argument;
+        this.propCount = program.propositions.length;
+        if (propCount > MAX_PROPOSITIONS) {
+            throw new IllegalArgumentException("Error: tables are limited to " + MAX_PROPOSITIONS + " propositions");
+        }
+        this.rowCount = 1L << propCount;
+    }
+
+    /**
+     * Get the table of an expression (parsed once and then reused from the shared cache)
+     *
+     * @param expr Expression
+     * @throws IllegalArgumentException If the expression is invalid, with a user-facing message
+     * @return Table
+     */
+    public static LazyTruthTable ofExpression(String expr) {
+        if (!TruthTabler.isExpression(expr)) {
+            throw new IllegalArgumentException("Command/expression not recognized. Please check the syntax or use $h for help.");
+        }
+        return new LazyTruthTable(ExpressionCache.getShared().getExpression(expr), new String[]{expr}, false);
+    }
+
+    /**
+     * Get the table of an argument (parsed once and then reused from the shared cache)
+     *
+     * @param expr Comma separated premises followed by the conclusion
+     * @throws IllegalArgumentException If the argument is invalid, with a user-facing message
+     * @return Table
+     */
+    public static LazyTruthTable ofArgument(String expr) {
+        if (!TruthTabler.isArgument(expr)) {
+            throw new IllegalArgumentException("Command/expression not recognized. Please check the syntax or use $h for help. Note that the premises and the conclusion must each be separated by commas and the conclusion is the last item.");
+        }
+        return new LazyTruthTable(ExpressionCache.getShared().getArgument(expr), expr.split(","), true);
+    }
+
+    /**
+     * Get the number of rows
+     *
+     * @return 2^n for n propositions
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the number of columns
+     *
+     * @return Number of propositions plus expressions
+     */
+    public int getColumnCount() {
+        return propCount + expressions.length;
+    }
+
+    /**
+     * Get the column headers: the propositions in index order, then the expressions (premises then conclusion
+     * for arguments)
+     *
+     * @return Headers
+     */
+    public String[] getHeaders() {
+        String[] res = new String[getColumnCount()];
+        for (int i=0; i<propCount; i++) {
+            res[i] = String.valueOf(program.propositions[i]);
+        }
+        System.arraycopy(expressions, 0, res, propCount, expressions.length);
+        return res;
+    }
+
+    /**
+     * Determine whether this is the table of an argument
+     *
+     * @return True if the last expression column is a conclusion
+     */
+    public boolean isArgument() {
+        return argument;
+    }
+
+    /**
+     * Get one row, evaluated on its own
+     *
+     * @param row Row index (0 is the row where every proposition is true; the last proposition alternates fastest)
+     * @throws IndexOutOfBoundsException If row is not in the table
+     * @return Truth value of each column, in the order of getHeaders()
+     */
+    public boolean[] getRow(long row) {
+        checkRange(row, row + 1);
+        long assignment = propCount == 0 ? 0 : Long.reverse(~row) >>> (64 - propCount); //Bit i is proposition i (true where the row bit is 0)
+        boolean[] registers = program.newRegisters();
+        program.evaluate(assignment, registers);
+        boolean[] res = new boolean[getColumnCount()];
+        for (int i=0; i<propCount; i++) {
+            res[i] = (assignment >>> i & 1L) != 0;
+        }
+        for (int j=0; j<expressions.length; j++) {
+            res[propCount + j] = program.result(j, registers);
+        }
+        return res;
+    }
+
+    /**
+     * Determine whether a row of an argument is a counterexample (every premise true and the conclusion false)
+     *
+     * @param row Row index
+     * @throws IndexOutOfBoundsException If row is not in the table
+     * @throws IllegalStateException If this is not the table of an argument
+     * @return True if a counterexample
+     */
+    public boolean isCounterexample(long row) {
+        if (!argument) {
+            throw new IllegalStateException("Only arguments have counterexamples");
+        }
+        boolean[] values = getRow(row);
+        for (int j=propCount; j<values.length-1; j++) {
+            if (!values[j]) {
+                return false;
+            }
+        }
+        return !values[values.length-1];
+    }
+
+    /**
+     * Get a spliterator over a range of rows. Rows are evaluated 64 at a time as they are reached, and splits fall
+     * on word boundaries so that each half evaluates only its own words
+     *
+     * @param from Index of the first row
+     * @param to Index after the last row
+     * @throws IndexOutOfBoundsException If the range is not in the table
+     * @return Spliterator of rows, as returned by getRow
+     */
+    public Spliterator<boolean[]> spliterator(long from, long to) {
+        checkRange(from, to);
+        return new RowSpliterator(from, to);
+    }
+
+    /**
+     * Get a spliterator over every row
+     *
+     * @return Spliterator of rows, as returned by getRow
+     */
+    @Override
+    public Spliterator<boolean[]> spliterator() {
+        return spliterator(0, rowCount);
+    }
+
+    /**
+     * Get an iterator over every row
+     *
+     * @return Iterator of rows, as returned by getRow
+     */
+    @Override
+    public Iterator<boolean[]> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Get a stream of a range of rows
+     *
+     * @param from Index of the first row
+     * @param to Index after the last row
+     * @param parallel Whether the stream is parallel
+     * @throws IndexOutOfBoundsException If the range is not in the table
+     * @return Stream of rows, as returned by getRow
+     */
+    public Stream<boolean[]> rows(long from, long to, boolean parallel) {
+        return StreamSupport.stream(spliterator(from, to), parallel);
+    }
+
+    /**
+     * Write a page of the table in the same format as the full table (without the validity line)
+     *
+     * @param out Output to write to
+     * @param from Index of the first row
+     * @param to Index after the last row
+     * @throws IndexOutOfBoundsException If the range is not in the table
+     * @throws IOException If writing to out fails
+     */
+    public void render(Appendable out, long from, long to) throws IOException {
+        checkRange(from, to);
+        new TableRenderer(program, expressions, argument).render(out, from, to);
+    }
+
+    /**
+     * Check that a range of rows is in the table
+     *
+     * @param from Index of the first row
+     * @param to Index after the last row
+     * @throws IndexOutOfBoundsException If the range is not in the table
+     */
+    private void checkRange(long from, long to) {
+        if (from < 0 || to > rowCount || from > to) {
+            throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " are not in a table of " + rowCount + " rows");
+        }
+    }
+
+    private class RowSpliterator implements Spliterator<boolean[]> { //Rows from index to end, evaluated a word at a time
+        private long index;
+        private final long end;
+        private BitSlicedEvaluator evaluator; //Created on the first row, so that splitting is free
+        private long word = -1; //Word held by the evaluator
+
+        RowSpliterator(long index, long end) {
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super boolean[]> action) {
+            if (index >= end) {
+                return false;
+            }
+            if (evaluator == null) {
+                evaluator = new BitSlicedEvaluator(program, 1);
+            }
+            if (index >>> 6 != word) {
+                word = index >>> 6;
+                evaluator.evaluate(word);
+                RuntimeStats.addRows(Math.min(64, rowCount), program.size());
+            }
+            int bit = (int) (index & 63);
+            boolean[] res = new boolean[getColumnCount()];
+            for (int i=0; i<propCount; i++) {
+                res[i] = (index >>> (propCount - 1 - i) & 1L) == 0;
+            }
+            for (int j=0; j<expressions.length; j++) {
+                res[propCount + j] = (evaluator.getResultWord(j, 0) >>> bit & 1L) != 0;
+            }
+            index++;
+            action.accept(res);
+            return true;
+        }
+
+        @Override
+        public Spliterator<boolean[]> trySplit() {
+            long mid = ((index + end) >>> 1) & ~63L; //Split on a word boundary
+            if (mid <= index || mid >= end) {
+                return null;
+            }
+            RowSpliterator prefix = new RowSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
@@ -8,13 +8,15 @@ The above copyright notice and this permission notice shall be included in all c
 THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 */
 
+package truthtabler;
+
 import java.util.Map;
 
 public class LogicNode {
     LogicNode left; //Left node pointer
     LogicNode right; //Right node pointer
     Character val; //Node value - depends on type
-    NodeType type; //Type of node: OPERATOR to run operation on two sub nodes, or PROPOSITION to return the node's value as a proposition ("t"/"f")
+    NodeType type; //Type of node: OPERATOR to run operation on two sub nodes, PROPOSITION to return the node's value as a proposition ("t"/"f"), or CONSTANT to return true
     boolean inverted; //Whether this node is inverted or not. Used for PROPOSITION node
 
     /**
@@ -72,6 +74,8 @@ public class LogicNode {
     public boolean evaluate(Map<Character, Boolean> propMap) {
         if (this.type == NodeType.OPERATOR) { //Run operator on sub nodes
             return this.inverted != this.runOperator(propMap);
+        } else if (this.type == NodeType.CONSTANT) {
+            return !this.inverted;
         } else { //Otherwise, this is a proposition
             if (!propMap.containsKey(this.val)) {
                 throw new IllegalArgumentException("Proposition " + this.val + " is not defined");
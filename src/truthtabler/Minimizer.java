@@ -0,0 +1,702 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+public class Minimizer { //Synthesizes a minimal or near-minimal sum of products or product of sums from the truth table of an expression
+    public static final int EXACT_LIMIT = 12; //Most variables minimized exactly with Quine-McCluskey; larger tables use an Espresso-style heuristic
+    public static final int MAX_VARIABLES = 20; //Most variables of a table minimized (the table and a count per row are held in memory)
+    private static final int PARALLEL_THRESHOLD = 1 << 12; //Implicants of a merge pass above which it runs in parallel
+    private static final int SEARCH_BUDGET = 1 << 14; //Branch-and-bound steps looking for a smaller cover than the greedy one
+    private static final int ESPRESSO_PASSES = 8; //Most expand/irredundant/reduce passes
+
+    //A cube (product of literals) is a long: the high 32 bits are the mask of variables it uses, the low 32 bits their values (bit i is variable i)
+
+    private final char[] variables;
+    private final int n; //Number of variables
+    private final int full; //Mask of every variable
+    private final long[] table; //Rows where the expression is true, 64 per word in truth table row order
+    private final long validMask; //Bits of each word that are rows
+    private int[] counts; //Cubes covering each row (Espresso only)
+    private int budget; //Remaining branch-and-bound steps
+    private List<Long> bestCover; //Best cover found by the search
+    private long bestCost;
+
+    /**
+     * Construct a new minimizer for an expression
+     *
+     * @param root Root node of the expression
+     * @param variables Variables of the result, in the order literals are written (must contain every proposition
+     *                  of the expression)
+     * @throws IllegalArgumentException If there are more than MAX_VARIABLES variables or the expression uses a
+     *                                  proposition not in variables
+     */
+    public Minimizer(LogicNode root, char[] variables) {
+        if (variables.length > MAX_VARIABLES) {
+            throw new IllegalArgumentException("Error: minimization is limited to " + MAX_VARIABLES + " propositions");
+        }
+        this.variables = variables.clone();
+        this.n = variables.length;
+        this.full = (1 << n) - 1;
+        TruthTableSignature signature = TruthTableSignature.exact(root, variables);
+        this.table = new long[signature.getWordCount()];
+        for (int w=0; w<table.length; w++) {
+            table[w] = signature.getWord(w);
+        }
+        this.validMask = BitSlicedEvaluator.getWordMask(n);
+    }
+
+    /**
+     * Get a minimal (up to EXACT_LIMIT variables) or near-minimal disjunction of conjunctions of literals that is
+     * equivalent to the expression. Fewer terms come first, then fewer literals
+     *
+     * @return Root of the sum of products (a constant if the expression is always true or always false)
+     */
+    public LogicNode sumOfProducts() {
+        List<Long> cover = cover(table);
+        if (cover.isEmpty()) {
+            return new NodeFactory().constant(false);
+        }
+        LogicNode res = null;
+        for (long cube: cover) {
+            LogicNode term = build(cube, '&', false);
+            if (term == null) { //Empty product: always true
+                return new NodeFactory().constant(true);
+            }
+            res = res == null ? term : new LogicNode('v', res, term, NodeType.OPERATOR, false);
+        }
+        return res;
+    }
+
+    /**
+     * Get a minimal (up to EXACT_LIMIT variables) or near-minimal conjunction of disjunctions of literals that is
+     * equivalent to the expression, by minimizing the rows where it is false and negating the result
+     *
+     * @return Root of the product of sums (a constant if the expression is always true or always false)
+     */
+    public LogicNode productOfSums() {
+        long[] off = new long[table.length];
+        for (int w=0; w<table.length; w++) {
+            off[w] = ~table[w] & validMask;
+        }
+        List<Long> cover = cover(off);
+        if (cover.isEmpty()) {
+            return new NodeFactory().constant(true);
+        }
+        LogicNode res = null;
+        for (long cube: cover) {
+            LogicNode clause = build(cube, 'v', true);
+            if (clause == null) { //Empty sum: always false
+                return new NodeFactory().constant(false);
+            }
+            res = res == null ? clause : new LogicNode('&', res, clause, NodeType.OPERATOR, false);
+        }
+        return res;
+    }
+
+    /**
+     * Build the term of a cube, with literals in variable order
+     *
+     * @param cube Cube
+     * @param op Operator joining the literals
+     * @param negate Whether to negate every literal (for the clauses of a product of sums)
+     * @return Root of the term, or null if the cube has no literals
+     */
+    private LogicNode build(long cube, char op, boolean negate) {
+        int mask = mask(cube);
+        int value = value(cube);
+        LogicNode res = null;
+        for (int i=0; i<n; i++) {
+            if ((mask >>> i & 1) != 0) {
+                boolean positive = (value >>> i & 1) != 0;
+                LogicNode literal = new LogicNode(variables[i], null, null, NodeType.PROPOSITION, positive == negate);
+                res = res == null ? literal : new LogicNode(op, res, literal, NodeType.OPERATOR, false);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Find a small set of cubes covering exactly the set rows of a table
+     *
+     * @param on Rows to cover
+     * @return Cubes, in output order
+     */
+    private List<Long> cover(long[] on) {
+        boolean empty = true;
+        for (long word: on) {
+            empty &= word == 0;
+        }
+        List<Long> res = empty ? new ArrayList<>() : n <= EXACT_LIMIT ? quineMcCluskey(on) : espresso(on);
+        res.sort(Comparator.comparingInt((Long cube) -> Integer.bitCount(mask(cube))).thenComparing(Minimizer::order));
+        return res;
+    }
+
+    /**
+     * Quine-McCluskey: merge implicants differing in one variable until only prime implicants are left, then
+     * choose a smallest set of primes covering every minterm
+     *
+     * @param on Rows to cover
+     * @return Cubes
+     */
+    private List<Long> quineMcCluskey(long[] on) {
+        List<Integer> minterms = new ArrayList<>();
+        int[] index = new int[1 << n]; //Index of each minterm in minterms, or -1
+        for (int r=0; r<(1 << n); r++) {
+            index[flip(r)] = -1;
+            if ((on[r >>> 6] >>> (r & 63) & 1L) != 0) {
+                minterms.add(flip(r));
+            }
+        }
+        for (int i=0; i<minterms.size(); i++) {
+            index[minterms.get(i)] = i;
+        }
+
+        BitSet present = new BitSet(1 << 2*n); //Implicants found, by mask << n | value (a cube is only compared with cubes of the same mask)
+        long[] level = new long[minterms.size()];
+        for (int i=0; i<level.length; i++) {
+            level[i] = cube(full, minterms.get(i));
+            present.set(index(level[i]));
+        }
+        List<Long> primes = new ArrayList<>();
+        while (level.length > 0) { //Each pass only reads present, so large levels are merged in parallel
+            boolean parallel = level.length >= PARALLEL_THRESHOLD;
+            LongStream cubes = parallel ? Arrays.stream(level).parallel() : Arrays.stream(level);
+            for (long c: cubes.filter(c -> !hasNeighbour(c, present)).toArray()) {
+                primes.add(c);
+            }
+            cubes = parallel ? Arrays.stream(level).parallel() : Arrays.stream(level);
+            long[] merged = cubes.flatMap(c -> merge(c, present)).toArray();
+            int count = 0;
+            for (long c: merged) { //Drop the copies of cubes formed from more than one pair
+                if (!present.get(index(c))) {
+                    present.set(index(c));
+                    merged[count++] = c;
+                }
+            }
+            level = Arrays.copyOf(merged, count);
+        }
+
+        BitSet[] covers = new BitSet[primes.size()]; //Minterms covered by each prime
+        for (int p=0; p<primes.size(); p++) {
+            covers[p] = new BitSet(minterms.size());
+            int mask = mask(primes.get(p));
+            int value = value(primes.get(p));
+            int free = full & ~mask;
+            int s = 0;
+            do {
+                covers[p].set(index[value | s]);
+                s = (s - free) & free;
+            } while (s != 0);
+        }
+        List<Long> res = new ArrayList<>();
+        for (int p: selectCover(primes, covers, minterms.size())) {
+            res.add(primes.get(p));
+        }
+        return res;
+    }
+
+    /**
+     * Determine whether an implicant differs in one variable from another implicant with the same mask, so that
+     * it is not prime
+     *
+     * @param c Implicant
+     * @param present Implicants found
+     * @return True if it merges with another implicant
+     */
+    private boolean hasNeighbour(long c, BitSet present) {
+        for (int bits = mask(c); bits != 0; bits &= bits - 1) {
+            if (present.get(index(cube(mask(c), value(c) ^ (bits & -bits))))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merge an implicant with each implicant that differs from it only by having a variable true instead of false
+     *
+     * @param c Implicant
+     * @param present Implicants found
+     * @return Merged implicants, without that variable
+     */
+    private LongStream merge(long c, BitSet present) {
+        LongStream.Builder res = LongStream.builder();
+        int mask = mask(c);
+        int value = value(c);
+        for (int bits = mask & ~value; bits != 0; bits &= bits - 1) {
+            int b = bits & -bits;
+            if (present.get(index(cube(mask, value | b)))) {
+                res.add(cube(mask & ~b, value));
+            }
+        }
+        return res.build();
+    }
+
+    /**
+     * Get the position of an implicant in the table of implicants found
+     *
+     * @param c Implicant
+     * @return mask << n | value
+     */
+    private int index(long c) {
+        return mask(c) << n | value(c);
+    }
+
+    /**
+     * Choose a set of primes covering every minterm: essential primes first, then a greedy cover improved by a
+     * bounded branch-and-bound search
+     *
+     * @param primes Prime implicants
+     * @param covers Minterms covered by each prime
+     * @param mintermCount Number of minterms
+     * @return Indices of the chosen primes
+     */
+    private List<Integer> selectCover(List<Long> primes, BitSet[] covers, int mintermCount) {
+        List<List<Integer>> coveredBy = new ArrayList<>(); //Primes covering each minterm
+        for (int m=0; m<mintermCount; m++) {
+            coveredBy.add(new ArrayList<>());
+        }
+        for (int p=0; p<covers.length; p++) {
+            for (int m = covers[p].nextSetBit(0); m >= 0; m = covers[p].nextSetBit(m + 1)) {
+                coveredBy.get(m).add(p);
+            }
+        }
+        BitSet uncovered = new BitSet(mintermCount);
+        uncovered.set(0, mintermCount);
+        List<Integer> chosen = new ArrayList<>();
+        for (int m=0; m<mintermCount; m++) { //Essential primes: the only ones covering some minterm
+            if (coveredBy.get(m).size() == 1 && uncovered.get(m)) {
+                int p = coveredBy.get(m).get(0);
+                chosen.add(p);
+                uncovered.andNot(covers[p]);
+            }
+        }
+
+        List<Long> greedy = new ArrayList<>(); //Upper bound for the search
+        BitSet left = (BitSet) uncovered.clone();
+        while (!left.isEmpty()) {
+            int best = -1;
+            int bestGain = 0;
+            for (int p=0; p<covers.length; p++) {
+                BitSet gain = (BitSet) covers[p].clone();
+                gain.and(left);
+                int g = gain.cardinality();
+                if (g > bestGain || (g == bestGain && g > 0 && Integer.bitCount(mask(primes.get(p))) < Integer.bitCount(mask(primes.get(best))))) {
+                    best = p;
+                    bestGain = g;
+                }
+            }
+            greedy.add((long) best);
+            left.andNot(covers[best]);
+        }
+        bestCover = greedy;
+        bestCost = cost(greedy, primes);
+        budget = SEARCH_BUDGET;
+        search(uncovered, new ArrayList<>(), 0, primes, covers, coveredBy);
+        for (long p: bestCover) {
+            chosen.add((int) p);
+        }
+        return chosen;
+    }
+
+    /**
+     * Branch and bound over the primes covering the uncovered minterm with the fewest choices
+     *
+     * @param uncovered Minterms still to cover
+     * @param picked Primes picked so far (beyond the essential ones)
+     * @param literals Literals in the picked primes
+     * @param primes Prime implicants
+     * @param covers Minterms covered by each prime
+     * @param coveredBy Primes covering each minterm
+     */
+    private void search(BitSet uncovered, List<Long> picked, int literals, List<Long> primes, BitSet[] covers, List<List<Integer>> coveredBy) {
+        if (budget-- <= 0) {
+            return;
+        }
+        if (uncovered.isEmpty()) {
+            long cost = (long) picked.size() << 32 | literals;
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestCover = new ArrayList<>(picked);
+            }
+            return;
+        }
+        if ((long) (picked.size() + 1) << 32 > bestCost) { //At least one more term is needed
+            return;
+        }
+        int pivot = -1;
+        for (int m = uncovered.nextSetBit(0); m >= 0; m = uncovered.nextSetBit(m + 1)) {
+            if (pivot < 0 || coveredBy.get(m).size() < coveredBy.get(pivot).size()) {
+                pivot = m;
+            }
+        }
+        for (int p: coveredBy.get(pivot)) {
+            BitSet next = (BitSet) uncovered.clone();
+            next.andNot(covers[p]);
+            picked.add((long) p);
+            search(next, picked, literals + Integer.bitCount(mask(primes.get(p))), primes, covers, coveredBy);
+            picked.remove(picked.size() - 1);
+        }
+    }
+
+    /**
+     * Get the cost of a set of primes: terms first, then literals
+     *
+     * @param chosen Indices of the primes
+     * @param primes Prime implicants
+     * @return Cost
+     */
+    private static long cost(List<Long> chosen, List<Long> primes) {
+        long literals = 0;
+        for (long p: chosen) {
+            literals += Integer.bitCount(mask(primes.get((int) p)));
+        }
+        return (long) chosen.size() << 32 | literals;
+    }
+
+    /**
+     * Espresso-style heuristic: starting from a cover split on each variable in turn, repeatedly expand every cube
+     * as far as the table allows, drop cubes covered by the others, and reduce cubes to the rows only they cover,
+     * keeping the cheapest cover seen
+     *
+     * @param on Rows to cover
+     * @return Cubes
+     */
+    private List<Long> espresso(long[] on) {
+        List<Long> cover = new ArrayList<>();
+        split(on, 0, 0, 0, cover);
+        counts = new int[1 << n];
+        List<Long> best = null;
+        long bestCost = Long.MAX_VALUE;
+        for (int pass=0; pass<ESPRESSO_PASSES; pass++) {
+            cover = irredundant(expand(on, cover, pass));
+            long cost = cost(cover);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = new ArrayList<>(cover);
+            } else if (pass > 1) { //No longer improving
+                break;
+            }
+            cover = reduce(cover);
+        }
+        counts = null;
+        return best;
+    }
+
+    /**
+     * Build an initial cover by splitting the table on each variable until every part is all true or all false
+     *
+     * @param on Rows to cover
+     * @param var Next variable to split on
+     * @param mask Variables fixed so far
+     * @param value Their values
+     * @param cover Cubes found (added to)
+     */
+    private void split(long[] on, int var, int mask, int value, List<Long> cover) {
+        long c = cube(mask, value);
+        int state = state(on, c);
+        if (state == 1) {
+            cover.add(c);
+        } else if (state == 2) {
+            split(on, var + 1, mask | 1 << var, value | 1 << var, cover);
+            split(on, var + 1, mask | 1 << var, value, cover);
+        }
+    }
+
+    /**
+     * Expand each cube by dropping literals while it stays inside the table, largest cubes first, skipping cubes
+     * already covered by an expanded one
+     *
+     * @param on Rows that may be covered
+     * @param cover Cubes
+     * @param pass Pass number, which rotates the order literals are tried in
+     * @return Expanded cubes
+     */
+    private List<Long> expand(long[] on, List<Long> cover, int pass) {
+        List<Long> sorted = new ArrayList<>(cover);
+        sorted.sort(Comparator.comparingInt(c -> Integer.bitCount(mask(c))));
+        List<Long> res = new ArrayList<>();
+        for (long c: sorted) {
+            boolean covered = false;
+            for (long e: res) {
+                covered |= contains(e, c);
+            }
+            if (covered) {
+                continue;
+            }
+            for (int k=0; k<n; k++) {
+                int i = (k + pass) % n;
+                int mask = mask(c);
+                if ((mask >>> i & 1) != 0) {
+                    long expanded = cube(mask & ~(1 << i), value(c) & ~(1 << i));
+                    if (state(on, expanded) == 1) {
+                        c = expanded;
+                    }
+                }
+            }
+            res.add(c);
+        }
+        return res;
+    }
+
+    /**
+     * Remove cubes whose rows are all covered by other cubes, smallest cubes first
+     *
+     * @param cover Cubes
+     * @return Cubes that are left
+     */
+    private List<Long> irredundant(List<Long> cover) {
+        Arrays.fill(counts, 0);
+        for (long c: cover) {
+            addCounts(c, 1);
+        }
+        List<Long> sorted = new ArrayList<>(cover);
+        sorted.sort(Comparator.comparingInt((Long c) -> Integer.bitCount(mask(c))).reversed());
+        List<Long> res = new ArrayList<>();
+        for (long c: sorted) {
+            if (minCount(c) >= 2) {
+                addCounts(c, -1);
+            } else {
+                res.add(c);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Shrink each cube to the smallest cube containing the rows that no other cube covers, so that the next
+     * expansion can grow it in another direction
+     *
+     * @param cover Irredundant cubes
+     * @return Reduced cubes
+     */
+    private List<Long> reduce(List<Long> cover) {
+        Arrays.fill(counts, 0);
+        for (long c: cover) {
+            addCounts(c, 1);
+        }
+        List<Long> res = new ArrayList<>();
+        for (long c: cover) {
+            int and = full;
+            int or = 0;
+            int[] rows = rows(c);
+            for (int r: rows) {
+                if (counts[r] == 1) {
+                    int m = flip(r);
+                    and &= m;
+                    or |= m;
+                }
+            }
+            addCounts(c, -1);
+            if (or == 0 && and == full) { //Every row is covered by another cube
+                continue;
+            }
+            int agree = full & ~(and ^ or); //Variables with the same value in every unique row
+            long reduced = cube(agree, and & agree);
+            addCounts(reduced, 1);
+            res.add(reduced);
+        }
+        return res;
+    }
+
+    /**
+     * Get the total cost of a cover: terms first, then literals
+     *
+     * @param cover Cubes
+     * @return Cost
+     */
+    private static long cost(List<Long> cover) {
+        long literals = 0;
+        for (long c: cover) {
+            literals += Integer.bitCount(mask(c));
+        }
+        return (long) cover.size() << 32 | literals;
+    }
+
+    /**
+     * Determine whether the rows of a cube are all set, all clear or mixed in a table
+     *
+     * @param on Table
+     * @param c Cube
+     * @return 0 if all clear, 1 if all set, 2 if mixed
+     */
+    private int state(long[] on, long c) {
+        long low = lowBits(c);
+        int highMask = highMask(c);
+        int highValue = highValue(c);
+        int free = (table.length - 1) & ~highMask;
+        boolean anySet = false;
+        boolean anyClear = false;
+        int s = 0;
+        do {
+            long bits = on[highValue | s] & low;
+            anySet |= bits != 0;
+            anyClear |= bits != low;
+            if (anySet && anyClear) {
+                return 2;
+            }
+            s = (s - free) & free;
+        } while (s != 0);
+        return anySet ? 1 : 0;
+    }
+
+    /**
+     * Add to the cover count of every row of a cube
+     *
+     * @param c Cube
+     * @param delta Amount to add
+     */
+    private void addCounts(long c, int delta) {
+        for (int r: rows(c)) {
+            counts[r] += delta;
+        }
+    }
+
+    /**
+     * Get the smallest cover count of the rows of a cube
+     *
+     * @param c Cube
+     * @return Smallest count
+     */
+    private int minCount(long c) {
+        int res = Integer.MAX_VALUE;
+        for (int r: rows(c)) {
+            res = Math.min(res, counts[r]);
+        }
+        return res;
+    }
+
+    /**
+     * Get the rows of a cube
+     *
+     * @param c Cube
+     * @return Row indices
+     */
+    private int[] rows(long c) {
+        long low = lowBits(c);
+        int highMask = highMask(c);
+        int highValue = highValue(c);
+        int free = (table.length - 1) & ~highMask;
+        int[] res = new int[Long.bitCount(low) << Integer.bitCount(free)];
+        int k = 0;
+        int s = 0;
+        do {
+            int w = highValue | s;
+            for (long bits = low; bits != 0; bits &= bits - 1) {
+                res[k++] = w << 6 | Long.numberOfTrailingZeros(bits);
+            }
+            s = (s - free) & free;
+        } while (s != 0);
+        return res;
+    }
+
+    /**
+     * Get the bits of a word (rows within it) that match the literals of a cube on the last six variables
+     *
+     * @param c Cube
+     * @return Row bits
+     */
+    private long lowBits(long c) {
+        long res = validMask;
+        int mask = mask(c);
+        for (int i=Math.max(0, n-6); i<n; i++) {
+            if ((mask >>> i & 1) != 0) {
+                long column = BitSlicedEvaluator.getColumnWord(n, i, 0);
+                res &= (value(c) >>> i & 1) != 0 ? column : ~column;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get the bits of a word index fixed by the literals of a cube on the other variables
+     *
+     * @param c Cube
+     * @return Word index mask
+     */
+    private int highMask(long c) {
+        int res = 0;
+        for (int i=0; i<n-6; i++) {
+            if ((mask(c) >>> i & 1) != 0) {
+                res |= 1 << (n - 7 - i);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get the value of the word index bits fixed by a cube (a bit is clear where its variable is true)
+     *
+     * @param c Cube
+     * @return Word index bits
+     */
+    private int highValue(long c) {
+        int res = 0;
+        for (int i=0; i<n-6; i++) {
+            if ((mask(c) >>> i & 1) != 0 && (value(c) >>> i & 1) == 0) {
+                res |= 1 << (n - 7 - i);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Convert between a row index and a minterm (bit i set when variable i is true). Row bit n-1-i is clear when
+     * variable i is true, so the conversion is its own inverse
+     *
+     * @param x Row or minterm
+     * @return Minterm or row
+     */
+    private int flip(int x) {
+        return n == 0 ? 0 : Integer.reverse(~x & full) >>> (32 - n);
+    }
+
+    private static long cube(int mask, int value) {
+        return (long) mask << 32 | (value & 0xFFFFFFFFL);
+    }
+
+    private static int mask(long cube) {
+        return (int) (cube >>> 32);
+    }
+
+    private static int value(long cube) {
+        return (int) cube;
+    }
+
+    /**
+     * Determine whether one cube contains another
+     *
+     * @param outer Larger cube
+     * @param inner Smaller cube
+     * @return True if every row of inner is in outer
+     */
+    private static boolean contains(long outer, long inner) {
+        int mask = mask(outer);
+        return (mask(inner) & mask) == mask && (value(inner) & mask) == value(outer);
+    }
+
+    /**
+     * Order cubes with the same number of literals by their literals in variable order
+     *
+     * @param cube Cube
+     * @return Sort key
+     */
+    private static long order(long cube) {
+        return (long) Integer.reverse(mask(cube)) << 32 | (Integer.reverse(~value(cube)) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,522 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class NodeArena { //Formula nodes held in parallel primitive arrays and referred to by int handles, so a node costs 9 bytes instead of an object graph and formulas are traversed by a linear scan
+    public static final byte PROPOSITION = 0;
+    public static final byte CONSTANT = 1;
+    public static final byte OR = 2;
+    public static final byte AND = 3;
+    public static final byte CONDITIONAL = 4; //Written '>'
+    public static final byte CONDITIONAL_SYMBOL = 5; //Written '⊃'
+    public static final byte BICONDITIONAL = 6; //Written ':'
+    public static final byte BICONDITIONAL_SYMBOL = 7; //Written '≡'
+    private static final char[] OPERATORS = {0, 0, 'v', '&', '>', '⊃', ':', '≡'}; //Operator character of each opcode
+
+    //A node's children are always added before it, so handles are in topological order: every pass is a loop over
+    //the handles up to the root, with no recursion or pointer chasing
+
+    private byte[] opcodes;
+    private int[] lefts; //Left child, or the proposition character of a PROPOSITION node
+    private int[] rights; //Right child
+    private long[] inverted; //Inversion flag of each node, one bit per node
+    private int size = 0;
+
+    /**
+     * Construct a new arena with room for a number of nodes (it grows as needed)
+     *
+     * @param capacity Initial number of nodes
+     */
+    public NodeArena(int capacity) {
+        capacity = Math.max(capacity, 16);
+        this.opcodes = new byte[capacity];
+        this.lefts = new int[capacity];
+        this.rights = new int[capacity];
+        this.inverted = new long[(capacity + 63) >>> 6];
+    }
+
+    /**
+     * Construct a new empty arena
+     */
+    public NodeArena() {
+        this(16);
+    }
+
+    /**
+     * Add a proposition node
+     *
+     * @param prop Proposition character
+     * @param inverted Whether the proposition is negated
+     * @return Handle of the node
+     */
+    public int proposition(char prop, boolean inverted) {
+        return add(PROPOSITION, prop, 0, inverted);
+    }
+
+    /**
+     * Add a constant node
+     *
+     * @param value Truth value
+     * @return Handle of the node
+     */
+    public int constant(boolean value) {
+        return add(CONSTANT, 0, 0, !value);
+    }
+
+    /**
+     * Add an operator node
+     *
+     * @param op Operator character: v, &, ⊃, >, ≡ or :
+     * @param left Handle of the left operand
+     * @param right Handle of the right operand
+     * @param inverted Whether the result is negated
+     * @throws UnsupportedOperationException If the operator is not supported
+     * @throws IndexOutOfBoundsException If an operand is not a node of this arena
+     * @return Handle of the node
+     */
+    public int operator(char op, int left, int right, boolean inverted) {
+        checkHandle(left);
+        checkHandle(right);
+        return add(getOpcode(op), left, right, inverted);
+    }
+
+    /**
+     * Add the negation of a node (a copy of it with the inversion flipped)
+     *
+     * @param node Handle of the node
+     * @throws IndexOutOfBoundsException If node is not a node of this arena
+     * @return Handle of the negated node
+     */
+    public int not(int node) {
+        checkHandle(node);
+        return add(opcodes[node], lefts[node], rights[node], !negated(node));
+    }
+
+    /**
+     * Flip the inversion of a node in place. Only for nodes that nothing else refers to yet, such as a group the
+     * parser has just closed
+     *
+     * @param node Handle of the node
+     */
+    void invert(int node) {
+        inverted[node >>> 6] ^= 1L << node;
+    }
+
+    /**
+     * Add a node, growing the arrays if they are full
+     *
+     * @param opcode Opcode
+     * @param left Left child or proposition character
+     * @param right Right child
+     * @param negated Inversion flag
+     * @return Handle of the node
+     */
+    private int add(byte opcode, int left, int right, boolean negated) {
+        if (size == opcodes.length) {
+            int capacity = Math.max(16, opcodes.length + (opcodes.length >> 1));
+            opcodes = Arrays.copyOf(opcodes, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            inverted = Arrays.copyOf(inverted, (capacity + 63) >>> 6);
+        }
+        opcodes[size] = opcode;
+        lefts[size] = left;
+        rights[size] = right;
+        if (negated) {
+            inverted[size >>> 6] |= 1L << size;
+        }
+        return size++;
+    }
+
+    /**
+     * Get the number of nodes
+     *
+     * @return Number of nodes (handles are 0 to size() - 1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the opcode of a node
+     *
+     * @param node Handle of the node
+     * @return One of PROPOSITION, CONSTANT, OR, AND, CONDITIONAL(_SYMBOL) or BICONDITIONAL(_SYMBOL)
+     */
+    public byte getOpcode(int node) {
+        checkHandle(node);
+        return opcodes[node];
+    }
+
+    /**
+     * Get the left operand of an operator node
+     *
+     * @param node Handle of the node
+     * @return Handle of the left operand
+     */
+    public int getLeft(int node) {
+        checkHandle(node);
+        return lefts[node];
+    }
+
+    /**
+     * Get the right operand of an operator node
+     *
+     * @param node Handle of the node
+     * @return Handle of the right operand
+     */
+    public int getRight(int node) {
+        checkHandle(node);
+        return rights[node];
+    }
+
+    /**
+     * Get the proposition of a proposition node
+     *
+     * @param node Handle of the node
+     * @return Proposition character
+     */
+    public char getProposition(int node) {
+        checkHandle(node);
+        return (char) lefts[node];
+    }
+
+    /**
+     * Get the operator character of an operator node
+     *
+     * @param node Handle of the node
+     * @return v, &, ⊃, >, ≡ or :
+     */
+    public char getOperator(int node) {
+        checkHandle(node);
+        return OPERATORS[opcodes[node]];
+    }
+
+    /**
+     * Get whether a node is negated
+     *
+     * @param node Handle of the node
+     * @return Inversion flag
+     */
+    public boolean isInverted(int node) {
+        checkHandle(node);
+        return negated(node);
+    }
+
+    private boolean negated(int node) {
+        return (inverted[node >>> 6] >>> node & 1L) != 0;
+    }
+
+    /**
+     * Shrink the arrays to the number of nodes, once a formula is complete
+     */
+    public void trimToSize() {
+        opcodes = Arrays.copyOf(opcodes, size);
+        lefts = Arrays.copyOf(lefts, size);
+        rights = Arrays.copyOf(rights, size);
+        inverted = Arrays.copyOf(inverted, (size + 63) >>> 6);
+    }
+
+    /**
+     * Get the approximate memory used by the node arrays
+     *
+     * @return Bytes allocated
+     */
+    public long getMemoryBytes() {
+        return opcodes.length + 8L * opcodes.length + 8L * inverted.length;
+    }
+
+    /**
+     * Prepare a formula for evaluating many assignments. The nodes the root uses and the index of each proposition
+     * are found once, and every evaluation then reuses the evaluator's arrays
+     *
+     * @param root Handle of the root node
+     * @param propositions Proposition characters in index order
+     * @throws IllegalArgumentException If the formula uses a proposition not in propositions
+     * @return Evaluator (each thread evaluating the formula needs its own)
+     */
+    public Evaluator prepare(int root, char[] propositions) {
+        checkHandle(root);
+        return new Evaluator(root, propositions);
+    }
+
+    /**
+     * Evaluate a formula for one assignment. To evaluate many assignments, prepare the formula once instead
+     *
+     * @param root Handle of the root node
+     * @param propositions Proposition characters in index order
+     * @param assignment Truth value of each proposition (bit i is proposition i)
+     * @throws IllegalArgumentException If the formula uses a proposition not in propositions
+     * @return Truth value of the root
+     */
+    public boolean evaluate(int root, char[] propositions, long assignment) {
+        return prepare(root, propositions).evaluate(assignment);
+    }
+
+    /**
+     * Evaluate a formula for 64 assignments at once. To evaluate many words, prepare the formula once instead
+     *
+     * @param root Handle of the root node
+     * @param propositions Proposition characters in index order
+     * @param columns Truth values of each proposition, one bit per assignment (such as a word of
+     *                BitSlicedEvaluator.getColumnWord)
+     * @throws IllegalArgumentException If the formula uses a proposition not in propositions
+     * @return Truth value of the root, one bit per assignment
+     */
+    public long evaluateWord(int root, char[] propositions, long[] columns) {
+        return prepare(root, propositions).evaluateWord(columns);
+    }
+
+    /**
+     * Find the nodes a root depends on, with one pass down the handles
+     *
+     * @param root Handle of the root node
+     * @return Whether each handle up to root is used
+     */
+    private boolean[] reachable(int root) {
+        boolean[] res = new boolean[root + 1];
+        res[root] = true;
+        for (int node=root; node>=0; node--) {
+            if (res[node] && opcodes[node] >= OR) {
+                res[lefts[node]] = true;
+                res[rights[node]] = true;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Count the nodes a root depends on
+     *
+     * @param root Handle of the root node
+     * @return Number of nodes
+     */
+    public int count(int root) {
+        checkHandle(root);
+        int res = 0;
+        for (boolean used: reachable(root)) {
+            res += used ? 1 : 0;
+        }
+        return res;
+    }
+
+    /**
+     * Add a LogicNode tree to the arena. Nodes shared within the tree (as interned trees share them) are added once
+     *
+     * @param root Root of the tree
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Handle of the root
+     */
+    public int addTree(LogicNode root) {
+        Map<LogicNode, Integer> handles = new IdentityHashMap<>();
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) { //Post-order, on an explicit stack so that deep trees can't overflow the call stack
+            LogicNode node = stack.peek();
+            if (handles.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            if (node.type == NodeType.OPERATOR) {
+                Integer left = handles.get(node.left);
+                Integer right = handles.get(node.right);
+                if (left == null || right == null) {
+                    if (right == null) {
+                        stack.push(node.right);
+                    }
+                    if (left == null) {
+                        stack.push(node.left);
+                    }
+                    continue;
+                }
+                handles.put(node, add(getOpcode(node.val), left, right, node.inverted));
+            } else if (node.type == NodeType.CONSTANT) {
+                handles.put(node, add(CONSTANT, 0, 0, node.inverted));
+            } else {
+                handles.put(node, add(PROPOSITION, node.val, 0, node.inverted));
+            }
+            stack.pop();
+        }
+        return handles.get(root);
+    }
+
+    /**
+     * Convert a formula back into LogicNode objects. Nodes shared in the arena are shared in the result
+     *
+     * @param root Handle of the root node
+     * @return Root of the tree
+     */
+    public LogicNode toLogicNode(int root) {
+        checkHandle(root);
+        boolean[] used = reachable(root);
+        LogicNode[] nodes = new LogicNode[root + 1];
+        for (int node=0; node<=root; node++) {
+            if (!used[node]) {
+                continue;
+            }
+            switch (opcodes[node]) {
+                case PROPOSITION:
+                    nodes[node] = new LogicNode((char) lefts[node], null, null, NodeType.PROPOSITION, negated(node));
+                    break;
+                case CONSTANT:
+                    nodes[node] = new LogicNode(null, null, null, NodeType.CONSTANT, negated(node));
+                    break;
+                default:
+                    nodes[node] = new LogicNode(OPERATORS[opcodes[node]], nodes[lefts[node]], nodes[rights[node]], NodeType.OPERATOR, negated(node));
+                    break;
+            }
+        }
+        return nodes[root];
+    }
+
+    public class Evaluator { //Formula prepared for repeated evaluation with a linear scan over the nodes it uses (12 bytes per node up to the root). Not thread-safe, since the node values are kept between calls
+        private final int[] order; //Handles the root uses, in increasing order (so the root is last)
+        private final int[] slots = new int[128]; //Index of each proposition character
+        private final long[] values; //Value of each handle up to the root
+        private final long[] assignmentColumns; //Proposition columns of a single assignment
+
+        /**
+         * Construct a new evaluator
+         *
+         * @param root Handle of the root node
+         * @param propositions Proposition characters in index order
+         * @throws IllegalArgumentException If the formula uses a proposition not in propositions
+         */
+        private Evaluator(int root, char[] propositions) {
+            Arrays.fill(slots, -1);
+            for (int i=0; i<propositions.length; i++) {
+                if (propositions[i] < 128) {
+                    slots[propositions[i]] = i;
+                }
+            }
+            boolean[] used = reachable(root);
+            int count = 0;
+            for (int node=0; node<=root; node++) {
+                if (!used[node]) {
+                    continue;
+                }
+                if (opcodes[node] == PROPOSITION && (lefts[node] >= 128 || slots[lefts[node]] < 0)) {
+                    throw new IllegalArgumentException("Proposition " + (char) lefts[node] + " is not defined");
+                }
+                count++;
+            }
+            order = new int[count];
+            for (int node=0, i=0; node<=root; node++) {
+                if (used[node]) {
+                    order[i++] = node;
+                }
+            }
+            values = new long[root + 1];
+            assignmentColumns = new long[propositions.length];
+        }
+
+        /**
+         * Evaluate the formula for one assignment
+         *
+         * @param assignment Truth value of each proposition (bit i is proposition i)
+         * @return Truth value of the root
+         */
+        public boolean evaluate(long assignment) {
+            for (int i=0; i<assignmentColumns.length; i++) {
+                assignmentColumns[i] = (assignment >>> i & 1L) != 0 ? -1L : 0L;
+            }
+            return evaluateWord(assignmentColumns) != 0;
+        }
+
+        /**
+         * Evaluate the formula for 64 assignments at once
+         *
+         * @param propositionColumns Truth values of each proposition, one bit per assignment (such as a word of
+         *                           BitSlicedEvaluator.getColumnWord)
+         * @return Truth value of the root, one bit per assignment
+         */
+        public long evaluateWord(long[] propositionColumns) {
+            for (int node: order) {
+                long value;
+                switch (opcodes[node]) {
+                    case PROPOSITION:
+                        value = propositionColumns[slots[lefts[node]]];
+                        break;
+                    case CONSTANT:
+                        value = -1L;
+                        break;
+                    case OR:
+                        value = values[lefts[node]] | values[rights[node]];
+                        break;
+                    case AND:
+                        value = values[lefts[node]] & values[rights[node]];
+                        break;
+                    case CONDITIONAL:
+                    case CONDITIONAL_SYMBOL:
+                        value = ~values[lefts[node]] | values[rights[node]];
+                        break;
+                    default: //Biconditional
+                        value = ~(values[lefts[node]] ^ values[rights[node]]);
+                        break;
+                }
+                values[node] = negated(node) ? ~value : value; //Constants are true unless inverted
+            }
+            return values[order[order.length - 1]];
+        }
+
+        /**
+         * Get the number of nodes the formula uses
+         *
+         * @return Number of nodes evaluated per call
+         */
+        public int size() {
+            return order.length;
+        }
+    }
+
+    /**
+     * Get the opcode of an operator character
+     *
+     * @param op Operator character
+     * @throws UnsupportedOperationException If the operator is not supported
+     * @return Opcode
+     */
+    private static byte getOpcode(char op) {
+        switch (op) {
+            case 'v':
+                return OR;
+            case '&':
+                return AND;
+            case '>':
+                return CONDITIONAL;
+            case '⊃':
+                return CONDITIONAL_SYMBOL;
+            case ':':
+                return BICONDITIONAL;
+            case '≡':
+                return BICONDITIONAL_SYMBOL;
+            default:
+                throw new UnsupportedOperationException("Logical operator " + op + " is not supported");
+        }
+    }
+
+    /**
+     * Check that a handle refers to a node of this arena
+     *
+     * @param node Handle
+     * @throws IndexOutOfBoundsException If it doesn't
+     */
+    private void checkHandle(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Node " + node + " is not in an arena of " + size + " nodes");
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class NodeFactory { //Hash-consing factory: structurally equal sub-trees become one shared node, turning trees into a DAG
+    private final Map<Long, LogicNode> nodes = new HashMap<>(); //Canonical node for each structural key
+    private final Map<LogicNode, Integer> ids = new IdentityHashMap<>(); //Id of each canonical node
+
+    /**
+     * Get the canonical node for a proposition
+     *
+     * @param prop Proposition character
+     * @param inverted Whether the proposition is negated
+     * @return Shared node
+     */
+    public LogicNode proposition(char prop, boolean inverted) {
+        long key = (long) prop << 1 | (inverted ? 1 : 0);
+        LogicNode node = nodes.get(key);
+        if (node == null) {
+            node = new LogicNode(prop, null, null, NodeType.PROPOSITION, inverted);
+            add(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Get the canonical node for a constant
+     *
+     * @param value Truth value
+     * @return Shared node
+     */
+    public LogicNode constant(boolean value) {
+        long key = 1L << 62 | (value ? 0 : 1);
+        LogicNode node = nodes.get(key);
+        if (node == null) {
+            node = new LogicNode(null, null, null, NodeType.CONSTANT, !value);
+            add(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Get the canonical negation of a canonical node (the same node with its inversion flipped)
+     *
+     * @param node Canonical node
+     * @return Shared node
+     */
+    public LogicNode negate(LogicNode node) {
+        switch (node.type) {
+            case OPERATOR:
+                return operator(node.val, node.left, node.right, !node.inverted);
+            case CONSTANT:
+                return constant(node.inverted);
+            default: //PROPOSITION
+                return proposition(node.val, !node.inverted);
+        }
+    }
+
+    /**
+     * Get the canonical node for an operator over two canonical nodes. Alternate operator symbols are normalized,
+     * and the operands of commutative operators (v, & and ≡) are put in a fixed order so that AvB and BvA share
+     *
+     * @param op Operator character
+     * @param left Left canonical node
+     * @param right Right canonical node
+     * @param inverted Whether the result is negated
+     * @throws UnsupportedOperationException If the operator is not supported
+     * @return Shared node
+     */
+    public LogicNode operator(char op, LogicNode left, LogicNode right, boolean inverted) {
+        byte opcode = CompiledExpression.getOpcode(op);
+        int leftId = ids.get(left);
+        int rightId = ids.get(right);
+        if (opcode != CompiledExpression.IMPLIES && leftId > rightId) { //Canonical operand order
+            LogicNode tmp = left;
+            left = right;
+            right = tmp;
+            leftId = ids.get(left);
+            rightId = ids.get(right);
+        }
+        long key = 1L << 63 | (long) leftId << 33 | (long) rightId << 4 | (long) opcode << 1 | (inverted ? 1 : 0);
+        LogicNode node = nodes.get(key);
+        if (node == null) {
+            node = new LogicNode(getSymbol(opcode), left, right, NodeType.OPERATOR, inverted);
+            add(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Get the canonical version of a tree. Nodes of the result are shared with every other tree interned by this
+     * factory and must not be modified
+     *
+     * @param root Root node of the tree
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Canonical root node
+     */
+    public LogicNode intern(LogicNode root) {
+        if (root == null) {
+            return null;
+        }
+        Map<LogicNode, LogicNode> canonical = new IdentityHashMap<>(); //Canonical node of each input node
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>(); //Explicit post-order stack so that deep trees can't overflow the call stack
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            LogicNode node = stack.peek();
+            if (canonical.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            if (node.type == NodeType.OPERATOR && (!canonical.containsKey(node.left) || !canonical.containsKey(node.right))) { //Intern children first
+                if (!canonical.containsKey(node.right)) {
+                    stack.push(node.right);
+                }
+                if (!canonical.containsKey(node.left)) {
+                    stack.push(node.left);
+                }
+                continue;
+            }
+            stack.pop();
+            if (node.type == NodeType.OPERATOR) {
+                canonical.put(node, operator(node.val, canonical.get(node.left), canonical.get(node.right), node.inverted));
+            } else if (node.type == NodeType.CONSTANT) {
+                canonical.put(node, constant(!node.inverted));
+            } else {
+                canonical.put(node, proposition(node.val, node.inverted));
+            }
+        }
+        return canonical.get(root);
+    }
+
+    /**
+     * Get the number of distinct nodes created by this factory
+     *
+     * @return Number of nodes
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Register a new canonical node
+     *
+     * @param key Structural key
+     * @param node Node
+     */
+    private void add(long key, LogicNode node) {
+        nodes.put(key, node);
+        ids.put(node, ids.size());
+    }
+
+    /**
+     * Get the normalized symbol of an opcode
+     *
+     * @param opcode Opcode from CompiledExpression
+     * @return Operator character
+     */
+    static char getSymbol(byte opcode) {
+        switch (opcode) {
+            case CompiledExpression.OR:
+                return 'v';
+            case CompiledExpression.AND:
+                return '&';
+            case CompiledExpression.IMPLIES:
+                return '⊃';
+            default: //IFF
+                return '≡';
+        }
+    }
+}
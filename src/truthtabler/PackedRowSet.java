@@ -0,0 +1,286 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class PackedRowSet { //Set of truth table rows packed 64 to a long word, addressed by long row index and stored on the heap, off-heap or in a mapped file
+    static final int SEGMENT_SHIFT = 27; //Words per segment as a power of two (1GB segments, under the 2GB limit of a buffer)
+    static final int SEGMENT_WORDS = 1 << SEGMENT_SHIFT;
+
+    private final long rowCount;
+    private final long wordCount;
+    private final LongBuffer[] segments; //Words split into segments, all of SEGMENT_WORDS words except the last
+    private final MappedByteBuffer[] mapped; //Mapped segments to force to disk, or null if not file backed
+
+    /**
+     * Construct a new row set over existing segments
+     *
+     * @param rowCount Number of rows
+     * @param segments Segments of words
+     * @param mapped Mapped segments, or null
+     */
+    private PackedRowSet(long rowCount, LongBuffer[] segments, MappedByteBuffer[] mapped) {
+        this.rowCount = rowCount;
+        this.wordCount = getWordCount(rowCount);
+        this.segments = segments;
+        this.mapped = mapped;
+    }
+
+    /**
+     * Create an empty row set on the heap
+     *
+     * @param rowCount Number of rows
+     * @throws IllegalArgumentException If rowCount is negative
+     * @return Row set
+     */
+    public static PackedRowSet onHeap(long rowCount) {
+        LongBuffer[] segments = new LongBuffer[getSegmentCount(rowCount)];
+        for (int i=0; i<segments.length; i++) {
+            segments[i] = LongBuffer.wrap(new long[getSegmentWords(rowCount, i)]);
+        }
+        return new PackedRowSet(rowCount, segments, null);
+    }
+
+    /**
+     * Create an empty row set in direct (off-heap) memory, which the garbage collector never scans or copies
+     *
+     * @param rowCount Number of rows
+     * @throws IllegalArgumentException If rowCount is negative
+     * @return Row set
+     */
+    public static PackedRowSet offHeap(long rowCount) {
+        LongBuffer[] segments = new LongBuffer[getSegmentCount(rowCount)];
+        for (int i=0; i<segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(getSegmentWords(rowCount, i) * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+        return new PackedRowSet(rowCount, segments, null);
+    }
+
+    /**
+     * Create a row set backed by a memory-mapped file, so that sets larger than memory are paged by the operating
+     * system. The file is created or grown to fit, and rows already in it are kept (bits past the last row in its
+     * last word, such as those of a larger set mapped from the same file before, are cleared)
+     *
+     * @param rowCount Number of rows
+     * @param file File to map
+     * @throws IllegalArgumentException If rowCount is negative
+     * @throws IOException If the file can't be opened or mapped
+     * @return Row set
+     */
+    public static PackedRowSet mapped(long rowCount, Path file) throws IOException {
+        LongBuffer[] segments = new LongBuffer[getSegmentCount(rowCount)];
+        MappedByteBuffer[] mapped = new MappedByteBuffer[segments.length];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i=0; i<segments.length; i++) { //Mappings stay valid after the channel is closed
+                mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, ((long) i << SEGMENT_SHIFT) * 8, getSegmentWords(rowCount, i) * 8L);
+                segments[i] = mapped[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+        }
+        PackedRowSet res = new PackedRowSet(rowCount, segments, mapped);
+        if (res.wordCount > 0) { //Clear bits past the last row in the last word
+            res.setWord(res.wordCount - 1, res.getWord(res.wordCount - 1));
+        }
+        return res;
+    }
+
+    /**
+     * Get the number of words needed to hold a number of rows
+     *
+     * @param rowCount Number of rows
+     * @return Number of words
+     */
+    public static long getWordCount(long rowCount) {
+        return (rowCount + 63) >>> 6;
+    }
+
+    /**
+     * Get the number of segments needed to hold a number of rows
+     *
+     * @param rowCount Number of rows
+     * @throws IllegalArgumentException If rowCount is negative
+     * @return Number of segments
+     */
+    private static int getSegmentCount(long rowCount) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("Row count must not be negative: " + rowCount);
+        }
+        return (int) ((getWordCount(rowCount) + SEGMENT_WORDS - 1) >>> SEGMENT_SHIFT);
+    }
+
+    /**
+     * Get the number of words in a segment
+     *
+     * @param rowCount Number of rows
+     * @param segment Index of the segment
+     * @return Number of words
+     */
+    private static int getSegmentWords(long rowCount, int segment) {
+        return (int) Math.min(SEGMENT_WORDS, getWordCount(rowCount) - ((long) segment << SEGMENT_SHIFT));
+    }
+
+    /**
+     * Get the number of rows
+     *
+     * @return Number of rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the number of words
+     *
+     * @return Number of words
+     */
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Get a word of rows (bit t is row word*64 + t)
+     *
+     * @param word Index of the word
+     * @return Row bits
+     */
+    public long getWord(long word) {
+        return segments[(int) (word >>> SEGMENT_SHIFT)].get((int) word & (SEGMENT_WORDS - 1));
+    }
+
+    /**
+     * Replace a word of rows. Bits past the last row are dropped. Different threads may set different words
+     * concurrently
+     *
+     * @param word Index of the word
+     * @param bits Row bits (bit t is row word*64 + t)
+     */
+    public void setWord(long word, long bits) {
+        if (word == wordCount - 1) { //Mask off bits past the last row
+            bits &= getLastWordMask();
+        }
+        segments[(int) (word >>> SEGMENT_SHIFT)].put((int) word & (SEGMENT_WORDS - 1), bits);
+    }
+
+    /**
+     * Get whether a row is in the set
+     *
+     * @param row Row index
+     * @throws IndexOutOfBoundsException If row is out of range
+     * @return True if the row is in the set
+     */
+    public boolean get(long row) {
+        checkRow(row);
+        return (getWord(row >>> 6) >>> row & 1L) != 0;
+    }
+
+    /**
+     * Add a row to the set
+     *
+     * @param row Row index
+     * @throws IndexOutOfBoundsException If row is out of range
+     */
+    public void set(long row) {
+        checkRow(row);
+        setWord(row >>> 6, getWord(row >>> 6) | 1L << row);
+    }
+
+    /**
+     * Remove a row from the set
+     *
+     * @param row Row index
+     * @throws IndexOutOfBoundsException If row is out of range
+     */
+    public void clear(long row) {
+        checkRow(row);
+        setWord(row >>> 6, getWord(row >>> 6) & ~(1L << row));
+    }
+
+    /**
+     * Count the rows in the set
+     *
+     * @return Number of rows
+     */
+    public long cardinality() {
+        long res = 0;
+        for (LongBuffer segment: segments) {
+            for (int i=0, n=segment.capacity(); i<n; i++) {
+                res += Long.bitCount(segment.get(i));
+            }
+        }
+        if (wordCount > 0) { //Don't count bits past the last row
+            res -= Long.bitCount(getWord(wordCount - 1) & ~getLastWordMask());
+        }
+        return res;
+    }
+
+    /**
+     * Get the bits of the last word that are rows
+     *
+     * @return Mask of the rows in the last word
+     */
+    private long getLastWordMask() {
+        return (rowCount & 63) == 0 ? -1L : (1L << (rowCount & 63)) - 1;
+    }
+
+    /**
+     * Find the first row in the set at or after a row
+     *
+     * @param from Row to start at
+     * @return Row index, or -1 if there is none
+     */
+    public long nextSetBit(long from) {
+        if (from < 0) {
+            from = 0;
+        }
+        if (from >= rowCount) {
+            return -1;
+        }
+        long word = from >>> 6;
+        long bits = getWord(word) & (-1L << from); //Ignore rows before from
+        while (bits == 0) {
+            if (++word == wordCount) {
+                return -1;
+            }
+            bits = getWord(word);
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Write changes to a memory-mapped set back to its file (does nothing for other sets)
+     */
+    public void force() {
+        if (mapped != null) {
+            for (MappedByteBuffer segment: mapped) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Check that a row is in range
+     *
+     * @param row Row index
+     * @throws IndexOutOfBoundsException If row is out of range
+     */
+    private void checkRow(long row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of range for " + rowCount + " rows");
+        }
+    }
+}
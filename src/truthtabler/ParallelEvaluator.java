@@ -0,0 +1,231 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ParallelEvaluator { //Evaluates truth table rows of a compiled program on a ForkJoinPool, split into contiguous row ranges
+    static final long LEAF_WORDS = 1024; //Words (of 64 rows) evaluated by each leaf task
+
+    private final CompiledExpression program;
+    private final ForkJoinPool pool;
+    private final long wordCount;
+    private long deadline = 0; //System.nanoTime() for findCounterexample to give up at
+    private boolean timed = false; //Whether there is a deadline
+
+    /**
+     * Construct a new parallel evaluator
+     *
+     * @param program Compiled program
+     * @param pool Pool to run the row ranges on
+     */
+    public ParallelEvaluator(CompiledExpression program, ForkJoinPool pool) {
+        this.program = program;
+        this.pool = pool;
+        this.wordCount = BitSlicedEvaluator.getWordCount(program.propositions.length);
+    }
+
+    /**
+     * Construct a new parallel evaluator on the common pool
+     *
+     * @param program Compiled program
+     */
+    public ParallelEvaluator(CompiledExpression program) {
+        this(program, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Make later searches for a counterexample give up at a deadline, which each worker checks between words
+     *
+     * @param deadline System.nanoTime() value to give up at
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        this.timed = true;
+    }
+
+    /**
+     * Find the first counterexample row of an argument (the last root is the conclusion). Workers stop as soon as
+     * every row before them is known to contain a counterexample, so an invalid argument returns early
+     *
+     * @throws TimeLimitExceededException If the deadline passes first
+     * @return Row index of the first counterexample, or -1 if the argument is valid
+     */
+    public long findCounterexample() {
+        long start = System.nanoTime();
+        AtomicLong first = new AtomicLong(Long.MAX_VALUE); //Lowest counterexample row found by any worker
+        pool.invoke(new CounterexampleTask(0, wordCount, first));
+        RuntimeStats.record(RuntimeStats.Phase.EVALUATION, start);
+        return first.get() == Long.MAX_VALUE ? -1 : first.get();
+    }
+
+    /**
+     * Determine whether an argument is valid
+     *
+     * @return True if no row has all premises true and the conclusion false
+     */
+    public boolean isValid() {
+        return findCounterexample() < 0;
+    }
+
+    /**
+     * Count the rows where a root is true
+     *
+     * @param root Index of the root
+     * @return Number of satisfying rows
+     */
+    public long countSatisfying(int root) {
+        long start = System.nanoTime();
+        long res = pool.invoke(new CountTask(0, wordCount, root));
+        RuntimeStats.record(RuntimeStats.Phase.EVALUATION, start);
+        return res;
+    }
+
+    /**
+     * Store the rows where a root is true. Each worker fills its own range of words
+     *
+     * @param root Index of the root
+     * @param rows Row set to fill, with one row per truth table row
+     * @throws IllegalArgumentException If rows has the wrong number of rows
+     */
+    public void collectSatisfying(int root, PackedRowSet rows) {
+        BitSlicedEvaluator.checkRows(rows, program.propositions.length);
+        long start = System.nanoTime();
+        pool.invoke(new CollectTask(0, wordCount, root, rows));
+        RuntimeStats.record(RuntimeStats.Phase.EVALUATION, start);
+    }
+
+    private class CounterexampleTask extends RecursiveTask<Void> { //Searches words [from, to) for a counterexample
+        private static final long serialVersionUID = 1L;
+        private final long from;
+        private final long to;
+        private final AtomicLong first;
+
+        CounterexampleTask(long from, long to, AtomicLong first) {
+            this.from = from;
+            this.to = to;
+            this.first = first;
+        }
+
+        @Override
+        protected Void compute() {
+            if ((from << 6) > first.get()) { //An earlier counterexample has already been found
+                return null;
+            }
+            if (to - from > LEAF_WORDS) { //Split the range in half
+                long mid = (from + to) >>> 1;
+                CounterexampleTask right = new CounterexampleTask(mid, to, first);
+                right.fork();
+                new CounterexampleTask(from, mid, first).compute();
+                right.join();
+                return null;
+            }
+            BitSlicedEvaluator evaluator = new BitSlicedEvaluator(program);
+            long evaluated = 0; //Words evaluated, for the statistics
+            try {
+                for (long word=from; word<to && (word << 6) < first.get(); ) {
+                    if (timed) {
+                        TimeLimitExceededException.check(deadline);
+                    }
+                    int count = (int) Math.min(evaluator.evaluate(word), to - word);
+                    evaluated += count;
+                    for (int w=0; w<count; w++) {
+                        long bits = evaluator.getCounterexampleWord(w);
+                        if (bits != 0) {
+                            long row = ((word + w) << 6) + Long.numberOfTrailingZeros(bits);
+                            first.accumulateAndGet(row, Math::min); //Keep the lowest row
+                            return null;
+                        }
+                    }
+                    word += count;
+                }
+                return null;
+            } finally {
+                RuntimeStats.addRows(BitSlicedEvaluator.getRowCount(program.propositions.length, evaluated), program.size());
+            }
+        }
+    }
+
+    private class CountTask extends RecursiveTask<Long> { //Counts satisfying rows of a root in words [from, to)
+        private static final long serialVersionUID = 1L;
+        private final long from;
+        private final long to;
+        private final int root;
+
+        CountTask(long from, long to, int root) {
+            this.from = from;
+            this.to = to;
+            this.root = root;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > LEAF_WORDS) { //Split the range in half
+                long mid = (from + to) >>> 1;
+                CountTask right = new CountTask(mid, to, root);
+                right.fork();
+                long res = new CountTask(from, mid, root).compute();
+                return res + right.join();
+            }
+            BitSlicedEvaluator evaluator = new BitSlicedEvaluator(program);
+            long mask = BitSlicedEvaluator.getWordMask(program.propositions.length);
+            long res = 0;
+            for (long word=from; word<to; ) {
+                int count = (int) Math.min(evaluator.evaluate(word), to - word);
+                for (int w=0; w<count; w++) {
+                    res += Long.bitCount(evaluator.getResultWord(root, w) & mask);
+                }
+                word += count;
+            }
+            RuntimeStats.addRows(BitSlicedEvaluator.getRowCount(program.propositions.length, to - from), program.size());
+            return res;
+        }
+    }
+
+    private class CollectTask extends RecursiveTask<Void> { //Stores satisfying rows of a root in words [from, to)
+        private static final long serialVersionUID = 1L;
+        private final long from;
+        private final long to;
+        private final int root;
+        private final PackedRowSet rows;
+
+        CollectTask(long from, long to, int root, PackedRowSet rows) {
+            this.from = from;
+            this.to = to;
+            this.root = root;
+            this.rows = rows;
+        }
+
+        @Override
+        protected Void compute() {
+            if (to - from > LEAF_WORDS) { //Split the range in half
+                long mid = (from + to) >>> 1;
+                CollectTask right = new CollectTask(mid, to, root, rows);
+                right.fork();
+                new CollectTask(from, mid, root, rows).compute();
+                right.join();
+                return null;
+            }
+            BitSlicedEvaluator evaluator = new BitSlicedEvaluator(program);
+            for (long word=from; word<to; ) {
+                int count = (int) Math.min(evaluator.evaluate(word), to - word);
+                for (int w=0; w<count; w++) {
+                    rows.setWord(word + w, evaluator.getResultWord(root, w));
+                }
+                word += count;
+            }
+            RuntimeStats.addRows(BitSlicedEvaluator.getRowCount(program.propositions.length, to - from), program.size());
+            return null;
+        }
+    }
+}
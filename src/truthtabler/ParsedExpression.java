@@ -0,0 +1,200 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+public class ParsedExpression { //Parsed and compiled form of an expression or argument, safe to share between threads
+    private final LogicNode[] roots; //Interned and simplified root of each expression (premises then conclusion for arguments)
+    private final char[] propositions; //Proposition characters in order of first appearance
+    private final CompiledExpression program; //Program with one root per expression
+    private final CompiledExpression reducedProgram; //Program over only the propositions the simplified roots still use
+
+    /**
+     * Construct a new parsed expression
+     *
+     * @param roots Interned root nodes
+     * @param propositions Proposition characters in index order
+     * @param program Compiled program of the roots
+     */
+    public ParsedExpression(LogicNode[] roots, char[] propositions, CompiledExpression program) {
+        this(roots, propositions, program, program);
+    }
+
+    /**
+     * Construct a new parsed expression
+     *
+     * @param roots Interned root nodes
+     * @param propositions Proposition characters in index order
+     * @param program Compiled program of the roots
+     * @param reducedProgram Compiled program of the roots over the propositions they use
+     */
+    public ParsedExpression(LogicNode[] roots, char[] propositions, CompiledExpression program, CompiledExpression reducedProgram) {
+        this.roots = roots;
+        this.propositions = propositions;
+        this.program = program;
+        this.reducedProgram = reducedProgram;
+    }
+
+    /**
+     * Parse, intern and compile an expression or a comma separated argument
+     *
+     * @param expr Expression or argument
+     * @param argument Whether expr is a comma separated argument
+     * @throws IllegalArgumentException If the expression can't be parsed or compiled, with a user-facing "Error: ..." message
+     * @return Parsed expression
+     */
+    public static ParsedExpression parse(String expr, boolean argument) {
+        long start = System.nanoTime();
+        try {
+            return build(expr, argument);
+        } finally {
+            RuntimeStats.record(RuntimeStats.Phase.PARSE, start);
+        }
+    }
+
+    /**
+     * Parse, intern, simplify and compile an expression or a comma separated argument
+     *
+     * @param expr Expression or argument
+     * @param argument Whether expr is a comma separated argument
+     * @throws IllegalArgumentException If the expression can't be parsed or compiled, with a user-facing "Error: ..." message
+     * @return Parsed expression
+     */
+    private static ParsedExpression build(String expr, boolean argument) {
+        String[] parts = argument ? expr.split(",") : new String[]{expr};
+        char[] propositions = TruthTabler.getPropositions(expr);
+        LogicNode[] roots = new LogicNode[parts.length];
+        NodeFactory factory = new NodeFactory(); //Shares sub-expressions repeated across the premises and conclusion
+        for (int i=0; i<parts.length; i++) {
+            try {
+                roots[i] = factory.intern(TruthTabler.buildTree(parts[i])); //Parse expression into a form of binary tree
+            } catch (Exception e) {
+                throw new IllegalArgumentException(argument ? "Error: (at expression: " + parts[i] + ")" + e.getMessage() : "Error: " + e.getMessage(), e);
+            }
+            if (roots[i] == null) { //Ensure that the expression evaluated correctly
+                throw new IllegalArgumentException(argument ? "Error: invalid expression: " + parts[i] + ". Please try again." : "Error: invalid expression. Please try again.");
+            }
+        }
+        try {
+            roots = new Simplifier(factory).simplify(roots); //Drop redundant work (such as X&X or Xv~X) from every row
+            CompiledExpression program = CompiledExpression.compile(roots, propositions); //Flatten the trees so that rows are evaluated without map lookups
+            char[] used = getUsedPropositions(roots, propositions);
+            return new ParsedExpression(roots, propositions, program, used.length == propositions.length ? program : CompiledExpression.compile(roots, used));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the propositions that appear in some trees
+     *
+     * @param roots Root nodes
+     * @param propositions Proposition characters in index order
+     * @return Propositions that appear, in index order
+     */
+    static char[] getUsedPropositions(LogicNode[] roots, char[] propositions) {
+        Set<Character> used = new HashSet<>();
+        Set<LogicNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>();
+        for (LogicNode root: roots) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            LogicNode node = stack.pop();
+            if (!visited.add(node)) {
+                continue;
+            }
+            if (node.type == NodeType.OPERATOR) {
+                stack.push(node.left);
+                stack.push(node.right);
+            } else if (node.type == NodeType.PROPOSITION) {
+                used.add(node.val);
+            }
+        }
+        StringBuilder res = new StringBuilder();
+        for (char prop: propositions) {
+            if (used.contains(prop)) {
+                res.append(prop);
+            }
+        }
+        return res.toString().toCharArray();
+    }
+
+    /**
+     * Get the interned and simplified root nodes. These are shared and must not be modified
+     *
+     * @return Root node of each expression
+     */
+    public LogicNode[] getRoots() {
+        return roots.clone();
+    }
+
+    /**
+     * Get the root node of one expression. This is shared and must not be modified
+     *
+     * @param i Index of the expression
+     * @return Root node
+     */
+    public LogicNode getRoot(int i) {
+        return roots[i];
+    }
+
+    /**
+     * Get the number of expressions (premises plus conclusion for arguments)
+     *
+     * @return Number of roots
+     */
+    public int getRootCount() {
+        return roots.length;
+    }
+
+    /**
+     * Get the proposition characters in index order
+     *
+     * @return Copy of the propositions
+     */
+    public char[] getPropositions() {
+        return propositions.clone();
+    }
+
+    /**
+     * Get the compiled program
+     *
+     * @return Program with one root per expression
+     */
+    public CompiledExpression getProgram() {
+        return program;
+    }
+
+    /**
+     * Get a program over only the propositions the simplified expressions still use, for engines whose cost
+     * grows with the number of rows. Its propositions are a subset of getPropositions(), in the same order
+     *
+     * @return Program with one root per expression (the same as getProgram() if no proposition was dropped)
+     */
+    public CompiledExpression getReducedProgram() {
+        return reducedProgram;
+    }
+
+    /**
+     * Get the cache weight of this expression
+     *
+     * @return Number of compiled instructions plus roots
+     */
+    public int getWeight() {
+        return program.size() + roots.length;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RuntimeStats implements RuntimeStatsMBean { //Process-wide phase timers and counters. Each is a LongAdder updated once per phase or pass (never per row), so recording stays on under load
+    public static final String OBJECT_NAME = "truthtabler:type=RuntimeStats";
+    private static final RuntimeStats INSTANCE = new RuntimeStats();
+
+    public enum Phase {
+        VALIDATION, //Syntax check of the raw input
+        PARSE, //Parsing, interning and compiling (cache misses only)
+        EVALUATION, //Passes of the bit-sliced evaluator
+        RENDER, //Formatting tables (including the evaluation of the rows printed)
+        VALIDITY, //SAT, BDD or parallel validity checks
+        QUERY, //Count, tautology, satisfiability and model queries
+        GENERATION //Translating hot programs to bytecode
+    }
+
+    private final LongAdder[] counts = new LongAdder[Phase.values().length];
+    private final LongAdder[] nanos = new LongAdder[Phase.values().length];
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private volatile long cacheHitsBase = 0; //Shared cache counters at the last reset
+    private volatile long cacheMissesBase = 0;
+    private volatile long cacheEvictionsBase = 0;
+
+    /**
+     * Construct a new set of counters
+     */
+    private RuntimeStats() {
+        for (int i=0; i<counts.length; i++) {
+            counts[i] = new LongAdder();
+            nanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Get the process-wide counters
+     *
+     * @return Shared instance
+     */
+    public static RuntimeStats get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register the counters with the platform MBean server (does nothing if already registered)
+     *
+     * @return True if the MBean is registered
+     */
+    public static boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+            return true;
+        } catch (JMException | SecurityException e) { //JMX is optional, so keep running without it
+            return false;
+        }
+    }
+
+    /**
+     * Record the end of a phase
+     *
+     * @param phase Phase
+     * @param start Value of System.nanoTime() at the start of the phase
+     */
+    public static void record(Phase phase, long start) {
+        long elapsed = System.nanoTime() - start;
+        INSTANCE.counts[phase.ordinal()].increment();
+        INSTANCE.nanos[phase.ordinal()].add(elapsed);
+    }
+
+    /**
+     * Record rows evaluated by a compiled program
+     *
+     * @param rowCount Number of rows
+     * @param programSize Instructions run per row
+     */
+    public static void addRows(long rowCount, int programSize) {
+        addEvaluatedRows(rowCount, rowCount * programSize);
+    }
+
+    /**
+     * Record rows evaluated by visiting a number of nodes (for evaluators that skip unchanged nodes)
+     *
+     * @param rowCount Number of rows
+     * @param nodeCount Number of nodes (instructions) evaluated
+     */
+    public static void addEvaluatedRows(long rowCount, long nodeCount) {
+        INSTANCE.rows.add(rowCount);
+        INSTANCE.nodes.add(nodeCount);
+    }
+
+    /**
+     * Record characters written by a table
+     *
+     * @param count Number of characters
+     */
+    public static void addCharacters(long count) {
+        INSTANCE.characters.add(count);
+    }
+
+    /**
+     * Get the number of times a phase ran
+     *
+     * @param phase Phase
+     * @return Count
+     */
+    public long getCount(Phase phase) {
+        return counts[phase.ordinal()].sum();
+    }
+
+    /**
+     * Get the total time spent in a phase
+     *
+     * @param phase Phase
+     * @return Nanoseconds
+     */
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()].sum();
+    }
+
+    @Override
+    public long getValidations() {
+        return getCount(Phase.VALIDATION);
+    }
+
+    @Override
+    public long getValidationNanos() {
+        return getNanos(Phase.VALIDATION);
+    }
+
+    @Override
+    public long getParses() {
+        return getCount(Phase.PARSE);
+    }
+
+    @Override
+    public long getParseNanos() {
+        return getNanos(Phase.PARSE);
+    }
+
+    @Override
+    public long getEvaluations() {
+        return getCount(Phase.EVALUATION);
+    }
+
+    @Override
+    public long getEvaluationNanos() {
+        return getNanos(Phase.EVALUATION);
+    }
+
+    @Override
+    public long getRowsEvaluated() {
+        return rows.sum();
+    }
+
+    @Override
+    public long getNodesVisited() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getRenders() {
+        return getCount(Phase.RENDER);
+    }
+
+    @Override
+    public long getRenderNanos() {
+        return getNanos(Phase.RENDER);
+    }
+
+    @Override
+    public long getCharactersRendered() {
+        return characters.sum();
+    }
+
+    @Override
+    public long getValidityChecks() {
+        return getCount(Phase.VALIDITY);
+    }
+
+    @Override
+    public long getValidityNanos() {
+        return getNanos(Phase.VALIDITY);
+    }
+
+    @Override
+    public long getQueries() {
+        return getCount(Phase.QUERY);
+    }
+
+    @Override
+    public long getQueryNanos() {
+        return getNanos(Phase.QUERY);
+    }
+
+    @Override
+    public long getGenerations() {
+        return getCount(Phase.GENERATION);
+    }
+
+    @Override
+    public long getGenerationNanos() {
+        return getNanos(Phase.GENERATION);
+    }
+
+    @Override
+    public long getCacheHits() {
+        return ExpressionCache.getShared().getHits() - cacheHitsBase;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return ExpressionCache.getShared().getMisses() - cacheMissesBase;
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return ExpressionCache.getShared().getEvictions() - cacheEvictionsBase;
+    }
+
+    @Override
+    public int getCacheSize() {
+        return ExpressionCache.getShared().size();
+    }
+
+    /**
+     * Reset every counter to zero
+     */
+    @Override
+    public void reset() {
+        for (int i=0; i<counts.length; i++) {
+            counts[i].reset();
+            nanos[i].reset();
+        }
+        rows.reset();
+        nodes.reset();
+        characters.reset();
+        ExpressionCache cache = ExpressionCache.getShared();
+        cacheHitsBase = cache.getHits();
+        cacheMissesBase = cache.getMisses();
+        cacheEvictionsBase = cache.getEvictions();
+    }
+
+    /**
+     * Get a human-readable summary of the counters
+     *
+     * @return Summary with one line per phase
+     */
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder("Statistics:\n");
+        for (Phase phase: Phase.values()) {
+            res.append(String.format("\t%-11s %10d calls %12.3f ms%n", phase.name().toLowerCase(), getCount(phase), getNanos(phase) / 1e6));
+        }
+        res.append(String.format("\tRows evaluated: %d (%d nodes visited)%n", getRowsEvaluated(), getNodesVisited()));
+        res.append(String.format("\tCharacters rendered: %d%n", getCharactersRendered()));
+        res.append(String.format("\tShared expression cache: %d hits, %d misses, %d evictions, %d entries", getCacheHits(), getCacheMisses(), getCacheEvictions(), getCacheSize()));
+        return res.toString();
+    }
+}
@@ -0,0 +1,530 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class SatSolver { //CDCL satisfiability solver with watched literals, first-UIP clause learning and Luby restarts
+    private static final byte UNDEF = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = -1;
+    private static final int RESTART_BASE = 100; //Conflicts per Luby restart unit
+    private static final double VAR_DECAY = 0.95;
+
+    private int varCount;
+    private final ArrayList<int[]> clauses = new ArrayList<>(); //Clauses as internal literals (2*var for positive, 2*var+1 for negative)
+    private int[][] watches = new int[2][]; //Clause indices watching each literal
+    private int[] watchSizes = new int[2];
+    private byte[] assigns = new byte[1]; //Value of each variable
+    private int[] levels = new int[1]; //Decision level each variable was assigned at
+    private int[] reasons = new int[1]; //Clause that implied each variable, or -1 for decisions
+    private boolean[] phases = new boolean[1]; //Last value of each variable (phase saving)
+    private double[] activity = new double[1]; //VSIDS activity of each variable
+    private boolean[] seen = new boolean[1]; //Scratch for conflict analysis
+    private int[] trail = new int[1]; //Assigned literals in order
+    private int trailSize = 0;
+    private int[] trailLimits = new int[1]; //Trail size at the start of each decision level
+    private int decisionLevel = 0;
+    private int propagateHead = 0; //Next trail position to propagate
+    private double varIncrement = 1;
+    private boolean conflicting = false; //Whether an empty clause has been derived
+    private long conflicts = 0;
+    private long decisions = 0;
+    private long deadline = 0; //System.nanoTime() to give up at
+    private boolean timed = false; //Whether there is a deadline
+    private int[] heap = new int[1]; //Binary max-heap of variables by activity
+    private int heapSize = 0;
+    private int[] heapIndex = new int[1]; //Position of each variable in the heap, or -1
+
+    /**
+     * Construct a new solver with a number of variables (numbered 1 to varCount)
+     *
+     * @param varCount Initial number of variables
+     */
+    public SatSolver(int varCount) {
+        Arrays.fill(heapIndex, -1);
+        while (this.varCount < varCount) {
+            newVariable();
+        }
+    }
+
+    /**
+     * Add a new variable
+     *
+     * @return Number of the new variable (starting at 1)
+     */
+    public int newVariable() {
+        int var = ++varCount;
+        if (var >= assigns.length) { //Grow the per-variable arrays
+            int size = Math.max(var + 1, assigns.length * 2);
+            assigns = Arrays.copyOf(assigns, size);
+            levels = Arrays.copyOf(levels, size);
+            reasons = Arrays.copyOf(reasons, size);
+            phases = Arrays.copyOf(phases, size);
+            activity = Arrays.copyOf(activity, size);
+            seen = Arrays.copyOf(seen, size);
+            trail = Arrays.copyOf(trail, size);
+            trailLimits = Arrays.copyOf(trailLimits, size);
+            heap = Arrays.copyOf(heap, size);
+            int oldSize = heapIndex.length;
+            heapIndex = Arrays.copyOf(heapIndex, size);
+            Arrays.fill(heapIndex, oldSize, size, -1);
+            watches = Arrays.copyOf(watches, size * 2);
+            watchSizes = Arrays.copyOf(watchSizes, size * 2);
+        }
+        watches[2*var] = new int[4];
+        watches[2*var+1] = new int[4];
+        heapInsert(var);
+        return var;
+    }
+
+    /**
+     * Get the number of variables
+     *
+     * @return Number of variables
+     */
+    public int getVariableCount() {
+        return varCount;
+    }
+
+    /**
+     * Add a clause. Literals are variable numbers, negated for negative literals (as in DIMACS)
+     *
+     * @param literals Literals of the clause
+     * @throws IllegalArgumentException If a literal refers to an unknown variable
+     */
+    public void addClause(int... literals) {
+        cancelUntil(0); //Discard the model of any previous search
+        if (conflicting) {
+            return;
+        }
+        int[] clause = new int[literals.length];
+        int size = 0;
+        for (int literal: literals) {
+            int var = Math.abs(literal);
+            if (var == 0 || var > varCount) {
+                throw new IllegalArgumentException("Unknown variable " + literal);
+            }
+            int lit = 2*var + (literal < 0 ? 1 : 0);
+            byte val = value(lit);
+            if (val == TRUE) { //Clause is already satisfied
+                return;
+            } else if (val == FALSE) { //Literal can never be satisfied
+                continue;
+            }
+            boolean duplicate = false;
+            for (int i=0; i<size; i++) {
+                if (clause[i] == lit) {
+                    duplicate = true;
+                } else if (clause[i] == (lit ^ 1)) { //Tautology
+                    return;
+                }
+            }
+            if (!duplicate) {
+                clause[size++] = lit;
+            }
+        }
+        if (size == 0) {
+            conflicting = true;
+        } else if (size == 1) {
+            enqueue(clause[0], -1);
+            conflicting = propagate() >= 0;
+        } else {
+            attach(Arrays.copyOf(clause, size));
+        }
+    }
+
+    /**
+     * Make later searches give up at a deadline. It is checked at every conflict, and a search without conflicts
+     * ends after at most one decision per variable
+     *
+     * @param deadline System.nanoTime() value to give up at
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        this.timed = true;
+    }
+
+    /**
+     * Search for a satisfying assignment of all clauses
+     *
+     * @throws TimeLimitExceededException If the deadline passes first (the solver can be searched again later)
+     * @return True if satisfiable (use getValue for the model), false if unsatisfiable
+     */
+    public boolean solve() {
+        cancelUntil(0);
+        if (conflicting) {
+            return false;
+        }
+        for (int restart=1; ; restart++) {
+            byte res = search(luby(restart) * RESTART_BASE);
+            if (res != UNDEF) {
+                if (res == FALSE) {
+                    conflicting = true;
+                    return false;
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Get the value of a variable in the model found by the last successful solve()
+     *
+     * @param var Variable number
+     * @return Value of the variable (unconstrained variables are false)
+     */
+    public boolean getValue(int var) {
+        return assigns[var] == TRUE;
+    }
+
+    /**
+     * Get the number of conflicts encountered so far
+     *
+     * @return Number of conflicts
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Get the number of decisions made so far
+     *
+     * @return Number of decisions
+     */
+    public long getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * Run CDCL until a result is found or the conflict budget runs out
+     *
+     * @param budget Conflicts allowed before restarting
+     * @return TRUE if satisfiable, FALSE if unsatisfiable, UNDEF to restart
+     */
+    private byte search(long budget) {
+        long startConflicts = conflicts;
+        int[] learnt = new int[varCount + 1];
+        while (true) {
+            int conflict = propagate();
+            if (conflict >= 0) {
+                conflicts++;
+                if (timed) {
+                    TimeLimitExceededException.check(deadline);
+                }
+                if (decisionLevel == 0) {
+                    return FALSE;
+                }
+                int size = analyze(conflict, learnt);
+                int backtrackLevel = 0;
+                if (size > 1) { //Watch the literal with the highest level as the second literal
+                    int max = 1;
+                    for (int i=2; i<size; i++) {
+                        if (levels[learnt[i] >> 1] > levels[learnt[max] >> 1]) {
+                            max = i;
+                        }
+                    }
+                    int tmp = learnt[1];
+                    learnt[1] = learnt[max];
+                    learnt[max] = tmp;
+                    backtrackLevel = levels[learnt[1] >> 1];
+                }
+                cancelUntil(backtrackLevel);
+                if (size == 1) {
+                    enqueue(learnt[0], -1);
+                } else {
+                    int[] clause = Arrays.copyOf(learnt, size);
+                    attach(clause);
+                    enqueue(clause[0], clauses.size() - 1);
+                }
+                varIncrement /= VAR_DECAY;
+            } else {
+                if (conflicts - startConflicts >= budget) { //Restart
+                    cancelUntil(0);
+                    return UNDEF;
+                }
+                int var = pickBranchVariable();
+                if (var == 0) { //All variables assigned without conflict
+                    return TRUE;
+                }
+                decisions++;
+                trailLimits[decisionLevel++] = trailSize;
+                enqueue(2*var + (phases[var] ? 0 : 1), -1);
+            }
+        }
+    }
+
+    /**
+     * Derive a first-UIP learnt clause from a conflict
+     *
+     * @param conflict Index of the conflicting clause
+     * @param learnt Output array for the learnt clause (asserting literal first)
+     * @return Size of the learnt clause
+     */
+    private int analyze(int conflict, int[] learnt) {
+        int size = 1; //Slot 0 is reserved for the asserting literal
+        int pathCount = 0; //Literals of the current level still to resolve
+        int lit = -1;
+        int index = trailSize - 1;
+        int clauseIndex = conflict;
+        do {
+            int[] clause = clauses.get(clauseIndex);
+            for (int i=(lit == -1 ? 0 : 1); i<clause.length; i++) {
+                int q = clause[i];
+                int var = q >> 1;
+                if (!seen[var] && levels[var] > 0) {
+                    bumpActivity(var);
+                    seen[var] = true;
+                    if (levels[var] >= decisionLevel) {
+                        pathCount++;
+                    } else {
+                        learnt[size++] = q;
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) { //Find the next literal on the trail to resolve on
+                index--;
+            }
+            lit = trail[index--];
+            clauseIndex = reasons[lit >> 1];
+            seen[lit >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt[0] = lit ^ 1;
+        for (int i=1; i<size; i++) {
+            seen[learnt[i] >> 1] = false;
+        }
+        return size;
+    }
+
+    /**
+     * Propagate all enqueued assignments through the watched literals
+     *
+     * @return Index of a conflicting clause, or -1 if there is no conflict
+     */
+    private int propagate() {
+        while (propagateHead < trailSize) {
+            int falseLit = trail[propagateHead++] ^ 1;
+            int[] watchList = watches[falseLit];
+            int count = watchSizes[falseLit];
+            int kept = 0;
+            for (int w=0; w<count; w++) {
+                int clauseIndex = watchList[w];
+                int[] clause = clauses.get(clauseIndex);
+                if (clause[0] == falseLit) { //Make sure the false literal is in slot 1
+                    clause[0] = clause[1];
+                    clause[1] = falseLit;
+                }
+                if (value(clause[0]) == TRUE) { //Clause already satisfied
+                    watchList[kept++] = clauseIndex;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k=2; k<clause.length; k++) { //Look for a new literal to watch
+                    if (value(clause[k]) != FALSE) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLit;
+                        addWatch(clause[1], clauseIndex);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                watchList[kept++] = clauseIndex;
+                if (value(clause[0]) == FALSE) { //Conflict - keep the remaining watches and stop
+                    for (w++; w<count; w++) {
+                        watchList[kept++] = watchList[w];
+                    }
+                    watchSizes[falseLit] = kept;
+                    propagateHead = trailSize;
+                    return clauseIndex;
+                }
+                enqueue(clause[0], clauseIndex); //Unit clause
+            }
+            watchSizes[falseLit] = kept;
+        }
+        return -1;
+    }
+
+    /**
+     * Store a clause and watch its first two literals
+     *
+     * @param clause Clause of at least two literals
+     */
+    private void attach(int[] clause) {
+        clauses.add(clause);
+        addWatch(clause[0], clauses.size() - 1);
+        addWatch(clause[1], clauses.size() - 1);
+    }
+
+    /**
+     * Add a clause to the watch list of a literal
+     *
+     * @param lit Watched literal
+     * @param clauseIndex Index of the clause
+     */
+    private void addWatch(int lit, int clauseIndex) {
+        if (watchSizes[lit] == watches[lit].length) {
+            watches[lit] = Arrays.copyOf(watches[lit], watchSizes[lit] * 2);
+        }
+        watches[lit][watchSizes[lit]++] = clauseIndex;
+    }
+
+    /**
+     * Assign a literal true
+     *
+     * @param lit Literal to assign
+     * @param reason Clause implying it, or -1 for decisions and units
+     */
+    private void enqueue(int lit, int reason) {
+        int var = lit >> 1;
+        assigns[var] = (lit & 1) == 0 ? TRUE : FALSE;
+        levels[var] = decisionLevel;
+        reasons[var] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Undo all assignments above a decision level
+     *
+     * @param level Level to keep
+     */
+    private void cancelUntil(int level) {
+        if (decisionLevel > level) {
+            for (int i=trailSize-1; i>=trailLimits[level]; i--) {
+                int var = trail[i] >> 1;
+                phases[var] = assigns[var] == TRUE;
+                assigns[var] = UNDEF;
+                if (heapIndex[var] < 0) {
+                    heapInsert(var);
+                }
+            }
+            trailSize = trailLimits[level];
+            propagateHead = trailSize;
+            decisionLevel = level;
+        }
+    }
+
+    /**
+     * Get the value of a literal
+     *
+     * @param lit Literal
+     * @return TRUE, FALSE or UNDEF
+     */
+    private byte value(int lit) {
+        byte val = assigns[lit >> 1];
+        return (lit & 1) == 0 ? val : (byte) -val;
+    }
+
+    /**
+     * Pick the unassigned variable with the highest activity
+     *
+     * @return Variable, or 0 if all variables are assigned
+     */
+    private int pickBranchVariable() {
+        while (heapSize > 0) {
+            int var = heapRemoveMax();
+            if (assigns[var] == UNDEF) {
+                return var;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Increase the activity of a variable involved in a conflict
+     *
+     * @param var Variable
+     */
+    private void bumpActivity(int var) {
+        activity[var] += varIncrement;
+        if (activity[var] > 1e100) { //Rescale to avoid overflow
+            for (int i=1; i<=varCount; i++) {
+                activity[i] *= 1e-100;
+            }
+            varIncrement *= 1e-100;
+        }
+        if (heapIndex[var] >= 0) {
+            heapUp(heapIndex[var]);
+        }
+    }
+
+    /**
+     * Get the value of the Luby restart sequence (1, 1, 2, 1, 1, 2, 4, ...)
+     *
+     * @param i Position in the sequence (starting at 1)
+     * @return Sequence value
+     */
+    static long luby(int i) {
+        int k = 1;
+        while ((1 << k) - 1 < i) {
+            k++;
+        }
+        while (i != (1 << k) - 1) {
+            i -= (1 << (k - 1)) - 1;
+            k = 1;
+            while ((1 << k) - 1 < i) {
+                k++;
+            }
+        }
+        return 1L << (k - 1);
+    }
+
+    private void heapInsert(int var) {
+        heapIndex[var] = heapSize;
+        heap[heapSize++] = var;
+        heapUp(heapSize - 1);
+    }
+
+    private int heapRemoveMax() {
+        int var = heap[0];
+        heapIndex[var] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            heapDown(0);
+        }
+        return var;
+    }
+
+    private void heapUp(int i) {
+        int var = heap[i];
+        while (i > 0 && activity[heap[(i - 1) / 2]] < activity[var]) {
+            heap[i] = heap[(i - 1) / 2];
+            heapIndex[heap[i]] = i;
+            i = (i - 1) / 2;
+        }
+        heap[i] = var;
+        heapIndex[var] = i;
+    }
+
+    private void heapDown(int i) {
+        int var = heap[i];
+        while (2*i + 1 < heapSize) {
+            int child = 2*i + 1;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[var]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = var;
+        heapIndex[var] = i;
+    }
+}
@@ -0,0 +1,533 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class Simplifier { //Equivalence-preserving rewrites of interned trees: constant folding, idempotence, complement and absorption, plus negation normal form and CNF/DNF
+    public static final int DEFAULT_CLAUSE_LIMIT = 4096; //Largest CNF/DNF produced by default, since distribution can grow exponentially
+
+    public enum Form { //Output form of rewrite()
+        SIMPLE, //Simplified, keeping the original operators
+        NNF, //Negation normal form: only v and &, with negation on propositions only
+        CNF, //Conjunction of disjunctions of literals
+        DNF //Disjunction of conjunctions of literals
+    }
+
+    private final NodeFactory factory;
+    private final Map<LogicNode, LogicNode> simplified = new IdentityHashMap<>(); //Simplified version of each canonical node
+    private final Map<LogicNode, LogicNode> nnf = new IdentityHashMap<>(); //Negation normal form of each simplified node
+    private final LogicNode constantTrue;
+    private final LogicNode constantFalse;
+
+    /**
+     * Construct a new simplifier over the nodes of a factory. Results are canonical nodes of the same factory
+     *
+     * @param factory Factory the input trees were interned with
+     */
+    public Simplifier(NodeFactory factory) {
+        this.factory = factory;
+        this.constantTrue = factory.constant(true);
+        this.constantFalse = factory.constant(false);
+    }
+
+    /**
+     * Simplify a tree bottom-up: constants are folded away (so the result is either a constant or has none),
+     * double negations cancel, and X&X, Xv~X, X&(XvY), Xv(~X&Y) and similar patterns are reduced
+     *
+     * @param root Canonical root node from the factory
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Equivalent canonical node
+     */
+    public LogicNode simplify(LogicNode root) {
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>(); //Explicit post-order stack so that deep trees can't overflow the call stack
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            LogicNode node = stack.peek();
+            if (simplified.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            if (node.type == NodeType.OPERATOR && (!simplified.containsKey(node.left) || !simplified.containsKey(node.right))) { //Simplify children first
+                if (!simplified.containsKey(node.right)) {
+                    stack.push(node.right);
+                }
+                if (!simplified.containsKey(node.left)) {
+                    stack.push(node.left);
+                }
+                continue;
+            }
+            stack.pop();
+            LogicNode res = node;
+            if (node.type == NodeType.OPERATOR) {
+                LogicNode a = simplified.get(node.left);
+                LogicNode b = simplified.get(node.right);
+                res = combine(CompiledExpression.getOpcode(node.val), a, b);
+                if (node.inverted) {
+                    res = factory.negate(res);
+                }
+            }
+            simplified.put(node, res);
+        }
+        return simplified.get(root);
+    }
+
+    /**
+     * Simplify several trees
+     *
+     * @param roots Canonical root nodes from the factory
+     * @throws UnsupportedOperationException If a tree uses an unsupported operator
+     * @return Simplified root of each tree
+     */
+    public LogicNode[] simplify(LogicNode[] roots) {
+        LogicNode[] res = new LogicNode[roots.length];
+        for (int i=0; i<roots.length; i++) {
+            res[i] = simplify(roots[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Convert a tree to simplified negation normal form: ⊃ and ≡ are rewritten with v and &, and negations are
+     * pushed down to the propositions. Shared sub-trees stay shared, so the result is at most about twice the
+     * size of the input even with nested ≡
+     *
+     * @param root Canonical root node from the factory
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Equivalent canonical node
+     */
+    public LogicNode toNnf(LogicNode root) {
+        root = simplify(root);
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            LogicNode node = stack.peek();
+            if (nnf.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            if (node.type != NodeType.OPERATOR) { //Literals and constants are already in NNF
+                stack.pop();
+                nnf.put(node, node);
+                continue;
+            }
+            //A negated node is the NNF of its operator applied to negated operands (De Morgan), and the
+            //operands of ⊃ and ≡ appear with both polarities, so first make sure every operand needed is done
+            LogicNode left = node.left;
+            LogicNode right = node.right;
+            LogicNode notLeft = factory.negate(left);
+            LogicNode notRight = factory.negate(right);
+            boolean ready = true;
+            for (LogicNode operand: new LogicNode[]{notRight, right, notLeft, left}) {
+                if (!nnf.containsKey(operand) && needs(node, operand == left || operand == notLeft ? left : right, operand)) {
+                    stack.push(operand);
+                    ready = false;
+                }
+            }
+            if (!ready) {
+                continue;
+            }
+            stack.pop();
+            boolean inv = node.inverted;
+            LogicNode res;
+            switch (CompiledExpression.getOpcode(node.val)) {
+                case CompiledExpression.OR: //~(AvB) is ~A&~B
+                    res = inv ? and(nnf.get(notLeft), nnf.get(notRight)) : or(nnf.get(left), nnf.get(right));
+                    break;
+                case CompiledExpression.AND: //~(A&B) is ~Av~B
+                    res = inv ? or(nnf.get(notLeft), nnf.get(notRight)) : and(nnf.get(left), nnf.get(right));
+                    break;
+                case CompiledExpression.IMPLIES: //A⊃B is ~AvB, and ~(A⊃B) is A&~B
+                    res = inv ? and(nnf.get(left), nnf.get(notRight)) : or(nnf.get(notLeft), nnf.get(right));
+                    break;
+                default: //IFF: A≡B is (A&B)v(~A&~B), and ~(A≡B) is (A&~B)v(~A&B)
+                    res = or(and(nnf.get(left), nnf.get(inv ? notRight : right)), and(nnf.get(notLeft), nnf.get(inv ? right : notRight)));
+                    break;
+            }
+            nnf.put(node, res);
+        }
+        return nnf.get(root);
+    }
+
+    /**
+     * Convert a tree to conjunctive normal form by distributing v over &
+     *
+     * @param root Canonical root node from the factory
+     * @param maxClauses Largest number of clauses allowed (in the result and any intermediate step)
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Equivalent canonical node, or null if the CNF would have more than maxClauses clauses
+     */
+    public LogicNode toCnf(LogicNode root, int maxClauses) {
+        Set<BitSet> clauses = getClauses(toNnf(root), maxClauses);
+        return clauses == null ? null : build(clauses, false);
+    }
+
+    /**
+     * Convert a tree to disjunctive normal form by distributing & over v
+     *
+     * @param root Canonical root node from the factory
+     * @param maxTerms Largest number of terms allowed (in the result and any intermediate step)
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Equivalent canonical node, or null if the DNF would have more than maxTerms terms
+     */
+    public LogicNode toDnf(LogicNode root, int maxTerms) {
+        Set<BitSet> clauses = getClauses(toNnf(factory.negate(root)), maxTerms); //The negation of a CNF of ~root is a DNF of root
+        return clauses == null ? null : build(clauses, true);
+    }
+
+    /**
+     * Rewrite a tree into a form
+     *
+     * @param root Canonical root node from the factory
+     * @param form Output form
+     * @param maxClauses Largest number of clauses or terms for CNF and DNF
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Equivalent canonical node, or null if a CNF or DNF would be too large
+     */
+    public LogicNode rewrite(LogicNode root, Form form, int maxClauses) {
+        switch (form) {
+            case NNF:
+                return toNnf(root);
+            case CNF:
+                return toCnf(root, maxClauses);
+            case DNF:
+                return toDnf(root, maxClauses);
+            default: //SIMPLE
+                return simplify(root);
+        }
+    }
+
+    /**
+     * Get whether a node is a constant
+     *
+     * @param node Node
+     * @param value Truth value to check for
+     * @return True if node is the constant value
+     */
+    public static boolean isConstant(LogicNode node, boolean value) {
+        return node.type == NodeType.CONSTANT && node.inverted != value;
+    }
+
+    /**
+     * Get whether the NNF of an operator node uses an operand with a given polarity
+     *
+     * @param node Operator node
+     * @param child Operand (node.left or node.right)
+     * @param operand The operand or its negation
+     * @return True if needed
+     */
+    private static boolean needs(LogicNode node, LogicNode child, LogicNode operand) {
+        boolean negated = operand != child;
+        switch (CompiledExpression.getOpcode(node.val)) {
+            case CompiledExpression.OR:
+            case CompiledExpression.AND:
+                return negated == node.inverted;
+            case CompiledExpression.IMPLIES: //The left operand is negated unless the whole node is
+                return negated == (child == node.left ? !node.inverted : node.inverted);
+            default: //IFF
+                return true;
+        }
+    }
+
+    /**
+     * Combine two simplified operands with an operator, applying the simplification rules
+     *
+     * @param opcode Opcode from CompiledExpression
+     * @param a Simplified left operand
+     * @param b Simplified right operand
+     * @return Simplified canonical node
+     */
+    private LogicNode combine(byte opcode, LogicNode a, LogicNode b) {
+        LogicNode res;
+        switch (opcode) {
+            case CompiledExpression.OR:
+                return or(a, b);
+            case CompiledExpression.AND:
+                return and(a, b);
+            case CompiledExpression.IMPLIES: //Simplify as ~AvB, but keep ⊃ if nothing changes
+                res = reduce(factory.negate(a), b, true);
+                return res != null ? res : factory.operator('⊃', a, b, false);
+            default: //IFF
+                if (isConstant(a, true) || isConstant(b, true)) { //T≡X is X
+                    return isConstant(a, true) ? b : a;
+                }
+                if (isConstant(a, false) || isConstant(b, false)) { //F≡X is ~X
+                    return factory.negate(isConstant(a, false) ? b : a);
+                }
+                if (a == b) {
+                    return constantTrue;
+                }
+                if (a == factory.negate(b)) {
+                    return constantFalse;
+                }
+                if (a.inverted && b.inverted) { //~A≡~B is A≡B
+                    return factory.operator('≡', factory.negate(a), factory.negate(b), false);
+                }
+                return factory.operator('≡', a, b, false);
+        }
+    }
+
+    /**
+     * Get the simplified disjunction of two simplified nodes
+     *
+     * @param a Left operand
+     * @param b Right operand
+     * @return Canonical node
+     */
+    private LogicNode or(LogicNode a, LogicNode b) {
+        LogicNode res = reduce(a, b, true);
+        return res != null ? res : factory.operator('v', a, b, false);
+    }
+
+    /**
+     * Get the simplified conjunction of two simplified nodes
+     *
+     * @param a Left operand
+     * @param b Right operand
+     * @return Canonical node
+     */
+    private LogicNode and(LogicNode a, LogicNode b) {
+        LogicNode res = reduce(a, b, false);
+        return res != null ? res : factory.operator('&', a, b, false);
+    }
+
+    /**
+     * Apply the rules for v (or, dually, for &) to two simplified nodes
+     *
+     * @param a Left operand
+     * @param b Right operand
+     * @param disjunction True for v, false for &
+     * @return Simplified node, or null if no rule applies
+     */
+    private LogicNode reduce(LogicNode a, LogicNode b, boolean disjunction) {
+        if (isConstant(a, disjunction) || isConstant(b, disjunction)) { //TvX is T, and F&X is F
+            return disjunction ? constantTrue : constantFalse;
+        }
+        if (isConstant(a, !disjunction)) { //FvX is X, and T&X is X
+            return b;
+        }
+        if (isConstant(b, !disjunction) || a == b) { //XvX is X
+            return a;
+        }
+        if (a == factory.negate(b)) { //Xv~X is T, and X&~X is F
+            return disjunction ? constantTrue : constantFalse;
+        }
+        LogicNode[] first = getOperands(a, !disjunction);
+        LogicNode[] second = getOperands(b, !disjunction);
+        if (first != null && second != null) { //(X&Y)v(X&~Y) is X
+            for (int i=0; i<2; i++) {
+                for (int j=0; j<2; j++) {
+                    if (first[i] == second[j] && first[1-i] == factory.negate(second[1-j])) {
+                        return first[i];
+                    }
+                }
+            }
+        }
+        for (int side=0; side<2; side++) {
+            LogicNode x = side == 0 ? a : b;
+            LogicNode y = side == 0 ? b : a;
+            LogicNode notX = factory.negate(x);
+            LogicNode[] same = getOperands(y, disjunction); //y is X v ... (or X & ...)
+            if (same != null) {
+                if (same[0] == x || same[1] == x) { //Xv(XvY) is XvY
+                    return y;
+                }
+                if (same[0] == notX || same[1] == notX) { //Xv(~XvY) is T
+                    return disjunction ? constantTrue : constantFalse;
+                }
+            }
+            LogicNode[] dual = getOperands(y, !disjunction); //y is X & ... (or X v ...)
+            if (dual != null) {
+                if (dual[0] == x || dual[1] == x) { //Xv(X&Y) is X (absorption)
+                    return x;
+                }
+                if (dual[0] == notX || dual[1] == notX) { //Xv(~X&Y) is XvY
+                    LogicNode other = dual[0] == notX ? dual[1] : dual[0];
+                    LogicNode res = reduce(x, other, disjunction);
+                    return res != null ? res : factory.operator(disjunction ? 'v' : '&', x, other, false);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * View a node as a disjunction (or conjunction) of two operands, looking through negation and ⊃
+     *
+     * @param node Node
+     * @param disjunction True to view as v, false to view as &
+     * @return The two operands, or null if the node isn't of that form
+     */
+    private LogicNode[] getOperands(LogicNode node, boolean disjunction) {
+        if (node.type != NodeType.OPERATOR) {
+            return null;
+        }
+        byte opcode = CompiledExpression.getOpcode(node.val);
+        boolean isOr = node.inverted ? opcode == CompiledExpression.AND : opcode == CompiledExpression.OR || opcode == CompiledExpression.IMPLIES;
+        boolean isAnd = node.inverted ? opcode == CompiledExpression.OR || opcode == CompiledExpression.IMPLIES : opcode == CompiledExpression.AND;
+        if (disjunction ? !isOr : !isAnd) {
+            return null;
+        }
+        LogicNode left = node.left;
+        LogicNode right = node.right;
+        if (opcode == CompiledExpression.IMPLIES) { //A⊃B is ~AvB, and ~(A⊃B) is A&~B
+            return node.inverted ? new LogicNode[]{left, factory.negate(right)} : new LogicNode[]{factory.negate(left), right};
+        }
+        return node.inverted ? new LogicNode[]{factory.negate(left), factory.negate(right)} : new LogicNode[]{left, right};
+    }
+
+    /**
+     * Get the clauses of a node in NNF. A clause is the set of its literals, where proposition p is literal 2p and
+     * ~p is literal 2p+1. Tautological clauses are dropped
+     *
+     * @param root Root node in NNF
+     * @param maxClauses Largest number of clauses allowed
+     * @return Clauses (none for true, and an empty clause for false), or null if there would be too many
+     */
+    private Set<BitSet> getClauses(LogicNode root, int maxClauses) {
+        Map<LogicNode, Set<BitSet>> clauses = new IdentityHashMap<>();
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            LogicNode node = stack.peek();
+            if (clauses.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            if (node.type == NodeType.OPERATOR && (!clauses.containsKey(node.left) || !clauses.containsKey(node.right))) {
+                if (!clauses.containsKey(node.right)) {
+                    stack.push(node.right);
+                }
+                if (!clauses.containsKey(node.left)) {
+                    stack.push(node.left);
+                }
+                continue;
+            }
+            stack.pop();
+            Set<BitSet> res = new LinkedHashSet<>();
+            if (node.type == NodeType.CONSTANT) {
+                if (node.inverted) { //False is the empty clause
+                    res.add(new BitSet());
+                }
+            } else if (node.type == NodeType.PROPOSITION) {
+                BitSet clause = new BitSet();
+                clause.set(node.val * 2 + (node.inverted ? 1 : 0));
+                res.add(clause);
+            } else {
+                Set<BitSet> a = clauses.get(node.left);
+                Set<BitSet> b = clauses.get(node.right);
+                if (node.val == '&') { //Conjunction of both clause sets
+                    res.addAll(a);
+                    res.addAll(b);
+                } else { //v: every clause of one combined with every clause of the other
+                    if ((long) a.size() * b.size() > maxClauses) {
+                        return null;
+                    }
+                    for (BitSet x: a) {
+                        for (BitSet y: b) {
+                            BitSet clause = (BitSet) x.clone();
+                            clause.or(y);
+                            if (!isTautology(clause)) {
+                                res.add(clause);
+                            }
+                        }
+                    }
+                }
+                if (res.size() > maxClauses) {
+                    return null;
+                }
+            }
+            clauses.put(node, res);
+        }
+        return clauses.get(root);
+    }
+
+    /**
+     * Get whether a clause contains a literal and its negation
+     *
+     * @param clause Clause
+     * @return True if the clause is always true
+     */
+    private static boolean isTautology(BitSet clause) {
+        for (int i=clause.nextSetBit(0); i>=0; i=clause.nextSetBit(i+1)) {
+            if ((i & 1) == 0 && clause.get(i + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove every clause that contains all the literals of another clause, since it is implied by it
+     *
+     * @param clauses Clauses
+     */
+    private static void removeSubsumed(Set<BitSet> clauses) {
+        List<BitSet> list = new ArrayList<>(clauses);
+        list.sort((x, y) -> Integer.compare(x.cardinality(), y.cardinality())); //A clause can only be subsumed by a smaller one
+        for (int i=0; i<list.size(); i++) {
+            BitSet smaller = list.get(i);
+            if (!clauses.contains(smaller)) {
+                continue;
+            }
+            for (int j=i+1; j<list.size(); j++) {
+                BitSet larger = list.get(j);
+                if (larger.cardinality() > smaller.cardinality()) {
+                    BitSet common = (BitSet) smaller.clone();
+                    common.and(larger);
+                    if (common.equals(smaller)) {
+                        clauses.remove(larger);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Build a conjunction of disjunctions (or, with negated literals, a disjunction of conjunctions)
+     *
+     * @param clauses Clauses from getClauses
+     * @param dual False for CNF, true to build the DNF whose negation the clauses are
+     * @return Canonical node
+     */
+    private LogicNode build(Set<BitSet> clauses, boolean dual) {
+        removeSubsumed(clauses);
+        char outer = dual ? 'v' : '&';
+        char inner = dual ? '&' : 'v';
+        List<LogicNode> parts = new ArrayList<>();
+        for (BitSet clause: clauses) {
+            if (clause.isEmpty()) { //Empty clause: F (or T for a DNF)
+                return factory.constant(dual);
+            }
+            LogicNode res = null;
+            for (int lit=clause.nextSetBit(0); lit>=0; lit=clause.nextSetBit(lit+1)) {
+                LogicNode literal = factory.proposition((char) (lit >>> 1), ((lit & 1) == 1) != dual);
+                res = res == null ? literal : factory.operator(inner, res, literal, false);
+            }
+            parts.add(res);
+        }
+        if (parts.isEmpty()) { //No clauses: T (or F for a DNF)
+            return factory.constant(!dual);
+        }
+        LogicNode res = parts.get(0);
+        for (int i=1; i<parts.size(); i++) {
+            res = factory.operator(outer, res, parts.get(i), false);
+        }
+        return res;
+    }
+}
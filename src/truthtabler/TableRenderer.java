@@ -0,0 +1,192 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.io.IOException;
+
+public class TableRenderer { //Writes box-drawn truth tables row by row to an Appendable
+    private static final String TRUE_PROP_CELL = " T ║";
+    private static final String FALSE_PROP_CELL = " F ║";
+
+    private final CompiledExpression program;
+    private final boolean argument; //Whether the last expression is a conclusion (adds validity)
+    private final String header; //Top line and column headers
+    private final String middleLine; //Divider between rows
+    private final String bottomLine; //Divider after the last row
+    private final String[] trueCells; //Formatted true cell of each expression column (including leading double bars)
+    private final String[] falseCells; //Formatted false cell of each expression column (including leading double bars)
+
+    /**
+     * Construct a new renderer. Divider lines and cell formats are computed once here and reused for every row
+     *
+     * @param program Compiled program with one root per expression
+     * @param expressions Expression strings used as column headers
+     * @param argument Whether the expressions are premises followed by a conclusion
+     */
+    public TableRenderer(CompiledExpression program, String[] expressions, boolean argument) {
+        this.program = program;
+        this.argument = argument;
+        char[] propositions = program.propositions;
+
+        String[] args = new String[propositions.length+expressions.length]; //Create an array of truth table parts to use in generating decoration for the table
+        for (int i=0; i<propositions.length; i++) {
+            args[i] = String.valueOf(propositions[i]);
+        }
+        System.arraycopy(expressions, 0, args, propositions.length, expressions.length);
+        final int[] dividers = argument ? new int[]{propositions.length-1, propositions.length+expressions.length-2} : new int[]{propositions.length-1}; //Dividers for table
+
+        StringBuilder head = new StringBuilder(TruthTabler.getLine('╔', '╗', '═', '╦', args, dividers));
+        head.append("║");
+        for (char c: propositions) {
+            head.append(" ").append(c).append(" ║");
+        }
+        head.append("║");
+        for (int i=0; i<expressions.length; i++) {
+            head.append(" ").append(expressions[i]);
+            if (argument && i==expressions.length-2) { //Conclusion double bar
+                head.append(" ║║");
+            } else {
+                head.append(" ║");
+            }
+        }
+        head.append("\n");
+        this.middleLine = TruthTabler.getLine('║','║','═','╬', args, dividers);
+        this.bottomLine = TruthTabler.getLine('╚','╝','═','╩', args, dividers);
+        head.append(middleLine);
+        this.header = head.toString();
+
+        this.trueCells = new String[expressions.length];
+        this.falseCells = new String[expressions.length];
+        for (int j=0; j<expressions.length; j++) {
+            String bars = (j == 0 || (argument && j == expressions.length-1)) ? "║" : ""; //Beginning or before conclusion add double bars
+            trueCells[j] = bars + formatCell(expressions[j], "T");
+            falseCells[j] = bars + formatCell(expressions[j], "F");
+        }
+    }
+
+    /**
+     * Format a result cell centered under its expression
+     *
+     * @param expression Expression heading the column
+     * @param value Value to write ("T"/"F")
+     * @return Formatted cell
+     */
+    private static String formatCell(String expression, String value) {
+        if (expression.length() > 1) { //Larger than single letter proposition
+            return String.format(" %" + (expression.length()+1)/2 + "s%" + (expression.length()/2) + "s ║", value, ""); //Pad string correctly so that centered
+        } else {
+            return String.format(" %s ║", value);
+        }
+    }
+
+    /**
+     * Write the full table (and the validity line for arguments). Only one row is held in memory at a time
+     *
+     * @param out Output to write to
+     * @throws IOException If writing to out fails
+     */
+    public void render(Appendable out) throws IOException {
+        long start = System.nanoTime();
+        writeHeader(out);
+        boolean validity = writeRows(out, 0, 1L << program.propositions.length, true); //Possible number of different combinations is 2^n where n is the number of propositions
+        if (argument) {
+            out.append("Validity: ").append(validity ? "Valid" : "Invalid").append("\n");
+        }
+        RuntimeStats.record(RuntimeStats.Phase.RENDER, start);
+    }
+
+    /**
+     * Write the header and a window of rows of the table. Only the words of rows in the window are evaluated,
+     * so the cost doesn't depend on the size of the table
+     *
+     * @param out Output to write to
+     * @param from Index of the first row (0 is the row where every proposition is true)
+     * @param to Index after the last row
+     * @throws IOException If writing to out fails
+     */
+    public void render(Appendable out, long from, long to) throws IOException {
+        long start = System.nanoTime();
+        writeHeader(out);
+        writeRows(out, from, to, true);
+        RuntimeStats.record(RuntimeStats.Phase.RENDER, start);
+    }
+
+    /**
+     * Write the top line and column headers
+     *
+     * @param out Output to write to
+     * @throws IOException If writing to out fails
+     */
+    void writeHeader(Appendable out) throws IOException {
+        out.append(header);
+        RuntimeStats.addCharacters(header.length());
+    }
+
+    /**
+     * Write the divider between two rows, or the bottom line after the last
+     *
+     * @param out Output to write to
+     * @param bottom Whether to write the bottom line
+     * @throws IOException If writing to out fails
+     */
+    void writeDivider(Appendable out, boolean bottom) throws IOException {
+        out.append(bottom ? bottomLine : middleLine);
+    }
+
+    /**
+     * Write rows of the table, each followed by a divider
+     *
+     * @param out Output to write to
+     * @param from Index of the first row
+     * @param to Index after the last row
+     * @param close Whether to write the bottom line after the last row (otherwise nothing follows it, so that more
+     *              rows can be written in another call)
+     * @throws IOException If writing to out fails
+     * @return For arguments, whether no word evaluated has a counterexample
+     */
+    boolean writeRows(Appendable out, long from, long to, boolean close) throws IOException {
+        int propCount = program.propositions.length;
+        int exprCount = trueCells.length;
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(program, 1); //Evaluate 64 rows at a time
+        StringBuilder row = new StringBuilder();
+        boolean validity = true; //Argument validity
+        long characters = 0; //Characters written, recorded once at the end
+
+        for (long i=from; i<to; i++) {
+            int bit = (int) (i & 63);
+            if (bit == 0 || i == from) { //Start of a new word of rows
+                evaluator.evaluate(i >>> 6);
+                if (argument) {
+                    validity &= evaluator.getCounterexampleWord(0) == 0;
+                }
+            }
+            row.setLength(0);
+            row.append("║");
+            for (int k=propCount-1; k>=0; k--) {
+                row.append((i >>> k & 1L) == 0 ? TRUE_PROP_CELL : FALSE_PROP_CELL);
+            }
+            for (int j=0; j<exprCount; j++) {
+                row.append((evaluator.getResultWord(j, 0) >>> bit & 1L) != 0 ? trueCells[j] : falseCells[j]);
+            }
+            row.append("\n");
+            if (i < to-1) {
+                row.append(middleLine);
+            } else if (close) {
+                row.append(bottomLine);
+            }
+            out.append(row);
+            characters += row.length();
+        }
+        RuntimeStats.addRows(Math.max(0, to - from), program.size());
+        RuntimeStats.addCharacters(characters);
+        return validity;
+    }
+}
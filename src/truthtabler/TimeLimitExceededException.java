@@ -0,0 +1,34 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+public class TimeLimitExceededException extends RuntimeException { //Thrown by a validity engine that reaches its deadline before deciding
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Construct a new time limit exception
+     */
+    public TimeLimitExceededException() {
+        super("Error: time limit reached");
+    }
+
+    /**
+     * Check a deadline
+     *
+     * @param deadline System.nanoTime() value to stop at
+     * @throws TimeLimitExceededException If it has passed
+     */
+    static void check(long deadline) {
+        if (System.nanoTime() - deadline >= 0) {
+            throw new TimeLimitExceededException();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.Arrays;
+
+public class TruthTableSignature { //Packed truth table of a formula over a shared variable order: equivalent formulas have equal signatures, so they can be hashed and compared bitwise
+    public static final int MAX_EXACT_VARIABLES = 30; //Most variables of an exact signature (2^24 words)
+    public static final int SAMPLE_WORDS = 8; //Words (64 rows each) of a sampled signature
+
+    private final long[] words; //Result bits, 64 rows per word
+    private final boolean exact; //Whether words is the full table (rather than a sample of rows)
+    private final long mask; //Bits of each word that are rows (all unless a table has fewer than 64 rows)
+    private final int hash;
+
+    private TruthTableSignature(long[] words, boolean exact, long mask) {
+        this.words = words;
+        this.exact = exact;
+        this.mask = mask;
+        long h = exact ? 1 : 0;
+        for (long word: words) { //Mixed rather than Arrays.hashCode, whose folding of the two halves of a word cancels out for tables that don't depend on a variable
+            h = mix(h ^ word);
+        }
+        this.hash = (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Compute the full truth table of a formula over a variable order, in truth table row order. Two formulas
+     * over the same order have equal exact signatures if and only if they are equivalent
+     *
+     * @param root Root node of the formula
+     * @param variables Shared variable order (must contain every proposition of the formula)
+     * @throws IllegalArgumentException If the formula uses a proposition not in variables, or there are more than
+     *                                  MAX_EXACT_VARIABLES variables
+     * @return Exact signature
+     */
+    public static TruthTableSignature exact(LogicNode root, char[] variables) {
+        if (variables.length > MAX_EXACT_VARIABLES) {
+            throw new IllegalArgumentException("Exact signatures are limited to " + MAX_EXACT_VARIABLES + " variables");
+        }
+        CompiledExpression program = CompiledExpression.compile(root, variables);
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(program);
+        long[] words = new long[(int) BitSlicedEvaluator.getWordCount(variables.length)];
+        long mask = BitSlicedEvaluator.getWordMask(variables.length);
+        for (int word=0; word<words.length; ) {
+            int count = evaluator.evaluate(word);
+            for (int w=0; w<count; w++) {
+                words[word+w] = evaluator.getResultWord(0, w) & mask;
+            }
+            word += count;
+        }
+        RuntimeStats.addEvaluatedRows((long) words.length << 6, program.size());
+        return new TruthTableSignature(words, true, mask);
+    }
+
+    /**
+     * Evaluate a formula on a fixed sample of SAMPLE_WORDS * 64 pseudo-random rows. The value of each variable in
+     * each sampled row depends only on the variable's letter, so equivalent formulas have equal sampled
+     * signatures whatever their variables; unequal signatures prove that formulas are not equivalent, but equal
+     * ones need confirming
+     *
+     * @param root Root node of the formula
+     * @param variables Variables the formula may use (must contain every proposition of the formula)
+     * @throws IllegalArgumentException If the formula uses a proposition not in variables
+     * @return Sampled signature
+     */
+    public static TruthTableSignature sampled(LogicNode root, char[] variables) {
+        CompiledExpression program = CompiledExpression.compile(root, variables);
+        long[] columns = new long[variables.length * SAMPLE_WORDS];
+        for (int i=0; i<variables.length; i++) {
+            for (int w=0; w<SAMPLE_WORDS; w++) {
+                columns[i*SAMPLE_WORDS + w] = mix((long) variables[i] << 32 | w);
+            }
+        }
+        long[] registers = program.newWordRegisters(SAMPLE_WORDS);
+        program.runWords(columns, registers, SAMPLE_WORDS);
+        long[] words = new long[SAMPLE_WORDS];
+        for (int w=0; w<SAMPLE_WORDS; w++) {
+            words[w] = program.resultWord(0, registers, SAMPLE_WORDS, w);
+        }
+        RuntimeStats.addEvaluatedRows(SAMPLE_WORDS * 64, program.size());
+        return new TruthTableSignature(words, false, -1L);
+    }
+
+    /**
+     * SplitMix64 finalizer, used to derive sampled column words
+     *
+     * @param x Input
+     * @return Well-mixed bits
+     */
+    private static long mix(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * Determine whether this is a full truth table
+     *
+     * @return True if exact, false if sampled
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Get the number of words
+     *
+     * @return Number of words
+     */
+    public int getWordCount() {
+        return words.length;
+    }
+
+    /**
+     * Get a word of result bits (bit t of word w is row w*64 + t)
+     *
+     * @param word Index of the word
+     * @return Result bits
+     */
+    public long getWord(int word) {
+        return words[word];
+    }
+
+    /**
+     * Get the number of rows where the formula is true
+     *
+     * @return Number of set bits
+     */
+    public long count() {
+        long res = 0;
+        for (long word: words) {
+            res += Long.bitCount(word);
+        }
+        return res;
+    }
+
+    /**
+     * Find the first row where this formula and another over the same order differ
+     *
+     * @param other Signature of the same kind over the same variable order
+     * @return Row index, or -1 if they are equal
+     */
+    public long firstDifference(TruthTableSignature other) {
+        for (int w=0; w<words.length; w++) {
+            long diff = words[w] ^ other.words[w];
+            if (diff != 0) {
+                return ((long) w << 6) + Long.numberOfTrailingZeros(diff);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the first row where every one of a set of formulas is true and another is false. This is the first
+     * counterexample of the argument with premises set and conclusion other
+     *
+     * @param set Signatures of the premises, of the same kind and over the same order as other (may be empty)
+     * @param other Signature of the conclusion
+     * @return Row index, or -1 if the premises entail the conclusion
+     */
+    public static long firstCounterexample(TruthTableSignature[] set, TruthTableSignature other) {
+        for (int w=0; w<other.words.length; w++) {
+            long bits = ~other.words[w] & other.mask;
+            for (int i=0; i<set.length && bits != 0; i++) {
+                bits &= set[i].words[w];
+            }
+            if (bits != 0) {
+                return ((long) w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TruthTableSignature)) {
+            return false;
+        }
+        TruthTableSignature other = (TruthTableSignature) o;
+        return hash == other.hash && exact == other.exact && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,1003 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+public class TruthTabler {
+    private static final String VALID_SYMBOL_REGEX = "^[\\(\\)~&v≡:>⊃(A-Za-z)]+$";
+    private static final String VALID_ARGUMENT_REGEX = "^[\\(\\)\\~\\&v≡:>⊃(A-Za-z),]+$";
+    private static final Pattern VALID_SYMBOL_PATTERN = Pattern.compile(VALID_SYMBOL_REGEX);
+    private static final Pattern VALID_ARGUMENT_PATTERN = Pattern.compile(VALID_ARGUMENT_REGEX);
+
+    public static void main(String[] args) { //Console interaction
+        if (args.length > 0) {
+            runArguments(args);
+        } else {
+            interactivePrompt();
+        }
+    }
+
+    /**
+     * Parse the arguments and run the appropriate commands
+     *
+     * @param args List of string arguments
+     */
+    public static void runArguments(String[] args) {
+        //Parse arguments and run commands accordingly
+        char collecting = '0'; //Flag to use to collect parameters
+        ArrayList<String> premises = new ArrayList<>();
+        String conclusion = null;
+        String expression = null;
+        String batchFile = null; //File of expressions and arguments to evaluate in batch mode
+        String serverAddress = null; //Port or socket path to serve requests on
+        boolean validityOnly = false; //Only determine argument validity (no truth table)
+        int parallelism = 0; //Threads to enumerate rows on (0 to use the SAT solver)
+        char engine = 's'; //Validity engine
+        Simplifier.Form form = null; //Form to rewrite the expression or argument into instead of evaluating it
+        ExpressionQuery.Query query = null; //Question to answer about the expression instead of printing its table
+        long[] rows = null; //First and last row (from 1) of the table to print, or null for every row
+        String equivalent = null; //Expression to compare the expression with instead of printing its table
+        String minimized = null; //Two-level form (dnf or cnf) to synthesize from the expression's truth table instead of printing it
+        boolean stats = false; //Print statistics when done
+        long timeLimit = 0; //Milliseconds to enumerate a table or validity for before stopping with a partial result, or 0 for no limit
+        boolean progress = false; //Report enumeration progress to stderr
+        for (String arg: args) {
+            if (arg.equals("--stats")) { //Statistics
+                stats = true;
+            } else if (arg.equals("--serve")) { //Server mode
+                collecting = 'l';
+            } else if (arg.equals("--rows")) { //Window of the table
+                collecting = 'r';
+            } else if (arg.equals("--equiv")) { //Equivalence
+                collecting = 'i';
+            } else if (arg.equals("--timeout")) { //Time limit
+                collecting = 'o';
+            } else if (arg.equals("--progress")) { //Progress reports
+                progress = true;
+            } else if (arg.charAt(0) == '-' && arg.length() >= 2) {
+                switch (arg.charAt(1)) {
+                    case 'h': //Help
+                        printConsoleHelp();
+                        break;
+                    case 'p': //Premise
+                        collecting = 'p';
+                        break;
+                    case 'c': //Conclusion
+                        collecting = 'c';
+                        break;
+                    case 'e': //Expression
+                        collecting = 'e';
+                        break;
+                    case 'v': //Validity only
+                        validityOnly = true;
+                        break;
+                    case 't': //Threads
+                        collecting = 't';
+                        engine = 't';
+                        break;
+                    case 'b': //BDD validity engine
+                        engine = 'b';
+                        break;
+                    case 'g': //Gray code validity engine
+                        engine = 'g';
+                        break;
+                    case 'f': //Batch file
+                        collecting = 'f';
+                        break;
+                    case 's': //Simplify
+                        collecting = 's';
+                        break;
+                    case 'q': //Query
+                        collecting = 'q';
+                        break;
+                    case 'm': //Minimize
+                        collecting = 'm';
+                        break;
+                    default:
+                        printConsoleHelp();
+                        throw new IllegalArgumentException("Invalid parameter: '" + arg + "'");
+                }
+            } else {
+                switch (collecting) {
+                    case 'p': //Premises
+                        premises.addAll(Arrays.asList(arg.split(","))); //Add each comma separated premise to the list
+                        break;
+                    case 'c': //Conclusion
+                        conclusion = arg;
+                        break;
+                    case 'e':
+                        expression = arg;
+                        break;
+                    case 'f': //Batch file
+                        batchFile = arg;
+                        collecting = '0';
+                        break;
+                    case 'l': //Server address
+                        serverAddress = arg;
+                        collecting = '0';
+                        break;
+                    case 'i': //Expression to compare with
+                        equivalent = arg;
+                        collecting = '0';
+                        break;
+                    case 'o': //Time limit
+                        try {
+                            timeLimit = Math.round(Double.parseDouble(arg) * 1000);
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid timeout: '" + arg + "'");
+                        }
+                        if (timeLimit <= 0) {
+                            throw new IllegalArgumentException("Invalid timeout: '" + arg + "'");
+                        }
+                        collecting = '0';
+                        break;
+                    case 'r': //Rows
+                        String[] range = arg.split(":");
+                        try {
+                            rows = new long[]{Long.parseLong(range[0]), Long.parseLong(range[range.length-1])};
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid rows: '" + arg + "'");
+                        }
+                        collecting = '0';
+                        break;
+                    case 's': //Simplified form
+                        try {
+                            form = Simplifier.Form.valueOf(arg.toUpperCase());
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("Invalid form: '" + arg + "'");
+                        }
+                        collecting = '0';
+                        break;
+                    case 'm': //Minimized form
+                        if (!arg.equalsIgnoreCase("dnf") && !arg.equalsIgnoreCase("cnf")) {
+                            throw new IllegalArgumentException("Invalid form: '" + arg + "'");
+                        }
+                        minimized = arg.toLowerCase();
+                        collecting = '0';
+                        break;
+                    case 'q': //Query
+                        try {
+                            query = ExpressionQuery.Query.valueOf(arg.toUpperCase());
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("Invalid query: '" + arg + "'");
+                        }
+                        collecting = '0';
+                        break;
+                    case 't': //Threads
+                        try {
+                            parallelism = Integer.parseInt(arg);
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid number of threads: '" + arg + "'");
+                        }
+                        collecting = '0';
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Please specify a parameter first: '" + arg + "'");
+                }
+            }
+        }
+        if (stats || batchFile != null || serverAddress != null) { //Publish the statistics over JMX (only for long runs, since starting JMX takes a while)
+            RuntimeStats.register();
+        }
+        if (serverAddress != null) { //Server mode
+            runServer(serverAddress);
+        } else if (batchFile != null) { //Batch mode
+            runBatch(batchFile, parallelism);
+        } else {
+            runCommand(premises, conclusion, expression, validityOnly, engine, parallelism, form, query, rows, equivalent, minimized, timeLimit, progress);
+        }
+        if (stats) { //Summary goes to stderr so that it doesn't mix with tables or JSON on stdout
+            System.err.println(RuntimeStats.get());
+        }
+    }
+
+    /**
+     * Run a single expression or argument command, streaming the result to stdout
+     *
+     * @param premises Argument premises
+     * @param conclusion Argument conclusion, or null
+     * @param expression Expression, or null
+     * @param validityOnly Whether to only determine argument validity
+     * @param engine Validity engine
+     * @param parallelism Number of threads for engine 't'
+     * @param form Form to rewrite into instead of evaluating, or null
+     * @param query Question to answer about the expression instead of printing its table, or null
+     * @param rows First and last row (from 1) of the table to print, or null for every row
+     * @param equivalent Expression to compare the expression with instead of printing its table, or null
+     * @param minimized Two-level form ("dnf" or "cnf") to synthesize from the expression's truth table instead of printing it, or null
+     * @param timeLimit Milliseconds to enumerate a full table or decide validity for before stopping with a partial result, or 0 for no limit
+     * @param progress Whether to report the progress of full tables to stderr
+     */
+    private static void runCommand(List<String> premises, String conclusion, String expression, boolean validityOnly, char engine, int parallelism, Simplifier.Form form, ExpressionQuery.Query query, long[] rows, String equivalent, String minimized, long timeLimit, boolean progress) {
+        boolean bounded = timeLimit > 0 || progress; //Enumerate in blocks with an EvaluationJob
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16); //Stream tables straight to stdout
+            if (form != null && premises.size() > 0 && conclusion != null) { //Rewritten argument
+                out.append(runRewrite(String.join(",", premises) + "," + conclusion, true, form)).append(System.lineSeparator());
+            } else if (form != null && expression != null) { //Rewritten expression
+                out.append(runRewrite(expression, false, form)).append(System.lineSeparator());
+            } else if (minimized != null && expression != null) { //Minimized expression
+                out.append(runMinimize(expression, minimized.equals("cnf"))).append(System.lineSeparator());
+            } else if (equivalent != null && expression != null) { //Equivalence
+                out.append(EquivalenceChecker.describe(expression, equivalent)).append(System.lineSeparator());
+            } else if (query != null && expression != null) { //Query
+                out.append(runQuery(expression, query)).append(System.lineSeparator());
+            } else if (premises.size() > 0 && conclusion != null && validityOnly) { //Argument validity using the chosen engine (within the time limit, if any)
+                out.append(runArgumentValidity(String.join(",", premises) + "," + conclusion, engine, parallelism, timeLimit)).append(System.lineSeparator());
+            } else if (premises.size() > 0 && conclusion != null && rows != null) { //Window of an argument table
+                writeTableRows(String.join(",", premises) + "," + conclusion, true, rows[0], rows[1], out);
+                out.append(System.lineSeparator());
+            } else if (expression != null && rows != null) { //Window of an expression table
+                writeTableRows(expression, false, rows[0], rows[1], out);
+                out.append(System.lineSeparator());
+            } else if (premises.size() > 0 && conclusion != null && bounded) { //Argument with a time limit
+                runJob(String.join(",", premises) + "," + conclusion, true, timeLimit, progress, out);
+            } else if (expression != null && bounded) { //Expression table with a time limit
+                runJob(expression, false, timeLimit, progress, out);
+            } else if (premises.size() > 0 && conclusion != null) { //Argument
+                writeArgument(premises, conclusion, out);
+                out.append(System.lineSeparator());
+            } else if (expression != null) {
+                writeExpressionTable(expression, out);
+                out.append(System.lineSeparator());
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the truth table of an expression or argument, enumerating the rows in blocks until done or out of time. A
+     * table stopped at the time limit ends after the last row written, with a note of how to print the rest
+     *
+     * @param expr Expression or comma separated argument
+     * @param argument Whether expr is an argument
+     * @param timeLimit Milliseconds to enumerate for, or 0 for no limit
+     * @param progress Whether to report progress to stderr about once a second
+     * @param out Output to write the table or message to
+     * @throws IOException If writing to out fails
+     */
+    private static void runJob(String expr, boolean argument, long timeLimit, boolean progress, Appendable out) throws IOException {
+        EvaluationJob job;
+        try {
+            job = argument ? EvaluationJob.ofArgument(expr) : EvaluationJob.ofExpression(expr);
+        } catch (IllegalArgumentException e) {
+            out.append(e.getMessage()).append(System.lineSeparator());
+            return;
+        }
+        if (timeLimit > 0) {
+            job.setTimeLimit(timeLimit);
+        }
+        if (progress) {
+            job.setProgressListener(j -> System.err.println("Progress: " + j.getProgress()), 1000);
+        }
+        EvaluationJob.Result result = job.render(out, 0);
+        out.append(System.lineSeparator());
+        if (progress) {
+            System.err.println("Done: " + job.getProgress());
+        }
+        if (result.getStatus() == EvaluationJob.Status.TIMED_OUT) {
+            out.append("Stopped at the time limit after ").append(String.valueOf(result.getNextRow())).append(" of ").append(String.valueOf(job.getRowCount()))
+                    .append(" rows; print the rest with --rows ").append(String.valueOf(result.getNextRow() + 1)).append(":").append(String.valueOf(job.getRowCount())).append(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Serve evaluate, validate and table requests on a local socket until the process is stopped
+     *
+     * @param address Port number (on the loopback interface) or Unix domain socket path
+     */
+    public static void runServer(String address) {
+        try {
+            EvaluationServer server = new EvaluationServer(address);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) { //Exiting anyway
+                }
+                System.err.println("Answered " + server.getRequests() + " requests (" + server.getBatchedRequests() + " shared the evaluation of an identical request in flight)");
+            }));
+            System.err.println("Listening on " + server.getAddress());
+            server.join();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Evaluate every expression and argument in a file (one per line) and write the results to stdout as JSON Lines
+     *
+     * @param file Path of the file, or - for stdin
+     * @param parallelism Number of worker threads, or 0 for one per processor
+     */
+    public static void runBatch(String file, int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        try (BufferedReader in = file.equals("-") ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16) : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            new BatchProcessor(threads).process(in, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Evaluate an argument for all possible inputs and return it's truth table and validity in a human-readable string
+     *
+     * @param premises ArrayList of argument premises
+     * @param conclusion String of argument conclusion
+     * @return Human-readable string of truth table and validity
+     */
+    public static String evaluateArgument(ArrayList<String> premises, String conclusion) {
+        return runArgumentTable(String.join(",", premises) + "," + conclusion);
+    }
+
+    /**
+     * Evaluate an argument for all possible inputs and write it's truth table and validity to out
+     *
+     * @param premises List of argument premises
+     * @param conclusion String of argument conclusion
+     * @param out Output to write the table to
+     * @throws IOException If writing to out fails
+     */
+    public static void writeArgument(List<String> premises, String conclusion, Appendable out) throws IOException {
+        writeArgumentTable(String.join(",", premises) + "," + conclusion, out);
+    }
+
+    /**
+     * Evaluate an expression for all possible inputs and return it's truth table in a human-readable string
+     *
+     * @param expression String of expression
+     * @return Human-readable string of truth table
+     */
+    public static String evaluateExpression(String expression) {
+        return runExpressionTable(expression);
+    }
+
+    /**
+     * Interactive console prompt mode
+     */
+    public static void interactivePrompt() {
+        RuntimeStats.register(); //Publish the statistics over JMX
+        Scanner stdin = new Scanner(System.in);
+        CalculatorSession session = new CalculatorSession(); //Propositions and watched expressions (used in c mode)
+        char mode = 'c'; //Default to calculator mode
+        ExpressionQuery.Query query = ExpressionQuery.Query.COUNT; //Question asked in query mode
+        printConsoleInfo();
+        printHelp(mode); //Print out help for default mode
+        while (true) {
+            System.out.print("(" + mode + ") > ");
+            String expr = stdin.next();
+            if (expr.equalsIgnoreCase("$q")) { //Exit on q
+                break;
+            } else if (expr.equalsIgnoreCase("$h")) { //Print help
+                printHelp(mode); //Print out mode help
+                printHelp('\0'); //Then, print out default help
+            } else if (expr.equalsIgnoreCase("$c")) { //Expression calculator mode
+                mode = 'c';
+                printHelp(mode);
+                session = new CalculatorSession(); //Reset the propositions and watched expressions
+            } else if (expr.equalsIgnoreCase("$e")) { //Expression truth table mode
+                mode = 'e';
+                printHelp(mode);
+            } else if (expr.equalsIgnoreCase("$a")) { //Argument evaluation/truth table mode
+                mode = 'a';
+                printHelp(mode);
+            } else if (expr.equalsIgnoreCase("$s")) { //Query mode
+                mode = 's';
+                printHelp(mode);
+            } else if (mode == 's' && expr.startsWith("?")) { //Select the query
+                try {
+                    query = ExpressionQuery.Query.valueOf(expr.substring(1).toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Error: unknown query " + expr + ". Use ?count, ?tautology, ?contradiction, ?satisfiable or ?model");
+                }
+            } else { //Run appropriate function based on mode
+                switch (mode) {
+                    case 'a': //Argument
+                        printTable(expr, true);
+                        break;
+                    case 'e': //Evaluation of expression truth table
+                        printTable(expr, false);
+                        break;
+                    case 'c': //Expression calculator mode
+                        System.out.println(session.run(expr));
+                        break;
+                    case 's': //Query mode
+                        System.out.println(runQuery(expr, query));
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream an expression or argument truth table to stdout
+     *
+     * @param expr Expression or argument
+     * @param argument Whether expr is an argument
+     */
+    private static void printTable(String expr, boolean argument) {
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+            if (argument) {
+                writeArgumentTable(expr, out);
+            } else {
+                writeExpressionTable(expr, out);
+            }
+            out.append(System.lineSeparator());
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Run a command for expression truth table mode
+     *
+     * @param expr Expression
+     * @return String message
+     */
+    public static String runExpressionTable(String expr) {
+        StringBuilder res = new StringBuilder(); //Resulting table
+        try {
+            writeExpressionTable(expr, res);
+        } catch (IOException e) { //Not thrown by StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return res.toString();
+    }
+
+    /**
+     * Run a command for expression truth table mode, writing the table to out row by row
+     *
+     * @param expr Expression
+     * @param out Output to write the table or message to
+     * @throws IOException If writing to out fails
+     */
+    public static void writeExpressionTable(String expr, Appendable out) throws IOException {
+        if (matches(expr, VALID_SYMBOL_PATTERN)) { //Otherwise, test that the expression matches a logical one and evaluate it
+            //First, parse and compile the expression (or reuse it from the cache)
+            CompiledExpression program;
+            try {
+                program = ExpressionCache.getShared().getExpression(expr).getProgram();
+            } catch (IllegalArgumentException e) {
+                out.append(e.getMessage());
+                return;
+            }
+            //Then, evaluate the expression for possible proposition combination
+            new TableRenderer(program, new String[]{expr}, false).render(out);
+        } else {
+            out.append("Command/expression not recognized. Please check the syntax or use $h for help.");
+        }
+    }
+
+    /**
+     * Write a window of rows of an expression or argument truth table. Only the rows in the window are evaluated,
+     * so any page of a large table is quick
+     *
+     * @param expr Expression or comma separated argument
+     * @param argument Whether expr is an argument
+     * @param first First row to write, counting from 1
+     * @param last Last row to write (clamped to the end of the table)
+     * @param out Output to write the rows or message to
+     * @throws IOException If writing to out fails
+     */
+    public static void writeTableRows(String expr, boolean argument, long first, long last, Appendable out) throws IOException {
+        LazyTruthTable table;
+        try {
+            table = argument ? LazyTruthTable.ofArgument(expr) : LazyTruthTable.ofExpression(expr);
+        } catch (IllegalArgumentException e) {
+            out.append(e.getMessage());
+            return;
+        }
+        long to = Math.min(last, table.getRowCount());
+        if (first < 1 || first > to) {
+            out.append("Error: rows must be between 1 and ").append(String.valueOf(table.getRowCount()));
+            return;
+        }
+        table.render(out, first - 1, to);
+    }
+
+    /**
+     * Run a command for argument truth table mode
+     *
+     * @param expr Expression
+     * @return String message
+     */
+    public static String runArgumentTable(String expr) {
+        StringBuilder res = new StringBuilder(); //Resulting table
+        try {
+            writeArgumentTable(expr, res);
+        } catch (IOException e) { //Not thrown by StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return res.toString();
+    }
+
+    /**
+     * Run a command for argument truth table mode, writing the table and validity to out row by row
+     *
+     * @param expr Expression
+     * @param out Output to write the table or message to
+     * @throws IOException If writing to out fails
+     */
+    public static void writeArgumentTable(String expr, Appendable out) throws IOException {
+        if (matches(expr, VALID_ARGUMENT_PATTERN)){ //Otherwise, test that the expression matches a logical one and evaluate it
+            String[] argument = expr.split(",");
+
+            //First, parse and compile the premises and conclusion (or reuse them from the cache)
+            CompiledExpression program;
+            try {
+                program = ExpressionCache.getShared().getArgument(expr).getProgram();
+            } catch (IllegalArgumentException e) {
+                out.append(e.getMessage());
+                return;
+            }
+            //Then, evaluate the argument for possible proposition combination and determine validity
+            new TableRenderer(program, argument, true).render(out);
+        } else {
+            out.append("Command/expression not recognized. Please check the syntax or use $h for help. Note that the premises and the conclusion must each be separated by commas and the conclusion is the last item.");
+        }
+    }
+
+    /**
+     * Run a command to determine argument validity without generating a truth table
+     *
+     * @param expr Comma separated premises followed by the conclusion
+     * @return String message with the validity and a counterexample if invalid
+     */
+    public static String runArgumentValidity(String expr) {
+        return runArgumentValidity(expr, 0);
+    }
+
+    /**
+     * Run a command to determine argument validity without generating a truth table
+     *
+     * @param expr Comma separated premises followed by the conclusion
+     * @param parallelism Number of threads to enumerate the rows on, or 0 to use the SAT solver instead
+     * @return String message with the validity and a counterexample if invalid
+     */
+    public static String runArgumentValidity(String expr, int parallelism) {
+        return runArgumentValidity(expr, parallelism > 0 ? 't' : 's', parallelism);
+    }
+
+    /**
+     * Run a command to determine argument validity without generating a truth table
+     *
+     * @param expr Comma separated premises followed by the conclusion
+     * @param engine Validity engine: 's' for the SAT solver, 'b' for a BDD, 't' to enumerate the truth table rows, or 'g' to enumerate them incrementally in Gray code order
+     * @param parallelism Number of threads to enumerate the rows on (for engine 't')
+     * @return String message with the validity and a counterexample if invalid
+     */
+    public static String runArgumentValidity(String expr, char engine, int parallelism) {
+        return runArgumentValidity(expr, engine, parallelism, 0);
+    }
+
+    /**
+     * Run a command to determine argument validity without generating a truth table, giving up at a time limit
+     *
+     * @param expr Comma separated premises followed by the conclusion
+     * @param engine Validity engine: 's' for the SAT solver, 'b' for a BDD, 't' to enumerate the truth table rows, or 'g' to enumerate them incrementally in Gray code order
+     * @param parallelism Number of threads to enumerate the rows on (for engine 't')
+     * @param timeLimit Milliseconds the decomposition and engine may take before the validity is reported as unknown, or 0 for no limit
+     * @return String message with the validity and a counterexample if invalid
+     */
+    public static String runArgumentValidity(String expr, char engine, int parallelism, long timeLimit) {
+        if (matches(expr, VALID_ARGUMENT_PATTERN)){ //Test that the expression matches a logical one and evaluate it
+            ParsedExpression parsed;
+            try {
+                parsed = ExpressionCache.getShared().getArgument(expr); //Parse the premises and conclusion (or reuse them from the cache)
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+            char[] propositions = parsed.getPropositions();
+            LogicNode[] rootNodes = parsed.getRoots();
+            long start = System.nanoTime();
+            Long deadline = timeLimit > 0 ? start + timeLimit * 1000000L : null; //Shared by every component
+            try {
+                LogicNode[] premises = Arrays.copyOf(rootNodes, rootNodes.length-1);
+                LogicNode conclusion = rootNodes[rootNodes.length-1];
+                ArgumentDecomposition decomposition = new ArgumentDecomposition(premises, conclusion, propositions); //Check groups of premises that share no propositions separately
+                return decomposition.check((componentPremises, componentConclusion, componentPropositions) -> checkValidity(componentPremises, componentConclusion, componentPropositions, engine, parallelism, deadline)).toString();
+            } catch (TimeLimitExceededException e) {
+                return "Validity: unknown (stopped at the time limit)";
+            } catch (Exception e) {
+                return "Error: " + e.getMessage();
+            } finally {
+                RuntimeStats.record(RuntimeStats.Phase.VALIDITY, start);
+            }
+        } else {
+            return "Command/expression not recognized. Please check the syntax or use $h for help. Note that the premises and the conclusion must each be separated by commas and the conclusion is the last item.";
+        }
+    }
+
+    /**
+     * Determine the validity of an argument with one of the validity engines
+     *
+     * @param premises Root nodes of the premises
+     * @param conclusion Root node of the conclusion
+     * @param propositions Propositions the argument uses, in index order
+     * @param engine Validity engine: 's' for the SAT solver, 'b' for a BDD, 't' to enumerate the truth table rows, or 'g' to enumerate them incrementally in Gray code order
+     * @param parallelism Number of threads to enumerate the rows on (for engine 't')
+     * @param deadline System.nanoTime() value for the engine to give up at, or null for none
+     * @throws TimeLimitExceededException If the deadline passes first
+     * @return Validity result over propositions
+     */
+    private static ValidityResult checkValidity(LogicNode[] premises, LogicNode conclusion, char[] propositions, char engine, int parallelism, Long deadline) {
+        if (engine == 'b') { //Build the premises and conclusion into a BDD
+            Bdd bdd = new Bdd(propositions);
+            if (deadline != null) {
+                bdd.setDeadline(deadline);
+            }
+            int counterexamples = bdd.not(bdd.build(conclusion)); //Rows where every premise is true and the conclusion false
+            for (LogicNode premise: premises) {
+                counterexamples = bdd.and(counterexamples, bdd.build(premise));
+            }
+            return new ValidityResult(propositions, bdd.anySat(counterexamples));
+        } else if (engine == 'g' || engine == 't') {
+            LogicNode[] roots = Arrays.copyOf(premises, premises.length+1);
+            roots[premises.length] = conclusion;
+            CompiledExpression program = CompiledExpression.compile(roots, propositions);
+            if (engine == 'g') { //Enumerate the rows in Gray code order, re-evaluating only what each flipped proposition affects
+                IncrementalEvaluator evaluator = new IncrementalEvaluator(program);
+                if (deadline != null) {
+                    evaluator.setDeadline(deadline);
+                }
+                return ValidityResult.fromRow(propositions, evaluator.findCounterexample());
+            }
+            ForkJoinPool pool = new ForkJoinPool(Math.max(parallelism, 1)); //Enumerate the rows on a fork/join pool
+            try {
+                ParallelEvaluator evaluator = new ParallelEvaluator(program, pool);
+                if (deadline != null) {
+                    evaluator.setDeadline(deadline);
+                }
+                return ValidityResult.fromRow(propositions, evaluator.findCounterexample());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return deadline != null ? ValidityChecker.checkArgument(premises, conclusion, propositions, deadline) : ValidityChecker.checkArgument(premises, conclusion, propositions);
+    }
+
+    /**
+     * Run a command to answer a question about an expression without generating its truth table
+     *
+     * @param expr Expression
+     * @param query Question to answer
+     * @return String message with the answer
+     */
+    public static String runQuery(String expr, ExpressionQuery.Query query) {
+        if (matches(expr, VALID_SYMBOL_PATTERN)) {
+            ParsedExpression parsed;
+            try {
+                parsed = ExpressionCache.getShared().getExpression(expr); //Parse the expression (or reuse it from the cache)
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+            try {
+                return new ExpressionQuery(parsed).run(query);
+            } catch (Exception e) {
+                return "Error: " + e.getMessage();
+            }
+        } else {
+            return "Command/expression not recognized. Please check the syntax or use $h for help.";
+        }
+    }
+
+    /**
+     * Run a command to rewrite an expression or argument into a simpler or normal form
+     *
+     * @param expr Expression, or comma separated premises followed by the conclusion
+     * @param argument Whether expr is an argument
+     * @param form Form to rewrite each expression into
+     * @return Rewritten expression or argument (constants are written as ⊤ and ⊥), or an error message
+     */
+    public static String runRewrite(String expr, boolean argument, Simplifier.Form form) {
+        if (!matches(expr, argument ? VALID_ARGUMENT_PATTERN : VALID_SYMBOL_PATTERN)) {
+            return "Command/expression not recognized. Please check the syntax or use $h for help.";
+        }
+        String[] parts = argument ? expr.split(",") : new String[]{expr};
+        NodeFactory factory = new NodeFactory();
+        Simplifier simplifier = new Simplifier(factory);
+        LogicNode[] roots = new LogicNode[parts.length];
+        for (int i=0; i<parts.length; i++) {
+            try {
+                LogicNode tree = buildTree(parts[i]);
+                if (tree == null) {
+                    return "Error: invalid expression: " + parts[i] + ". Please try again.";
+                }
+                roots[i] = simplifier.rewrite(factory.intern(tree), form, Simplifier.DEFAULT_CLAUSE_LIMIT);
+            } catch (Exception e) {
+                return "Error: " + e.getMessage();
+            }
+            if (roots[i] == null) {
+                return "Error: the " + form + " of " + parts[i] + " has more than " + Simplifier.DEFAULT_CLAUSE_LIMIT + " clauses";
+            }
+        }
+        return ExpressionFormatter.format(roots);
+    }
+
+    /**
+     * Run a command to synthesize a minimal two-level form of an expression from its truth table
+     *
+     * @param expr Expression
+     * @param productOfSums Whether to write a product of sums (CNF) rather than a sum of products (DNF)
+     * @return Minimized expression (constants are written as ⊤ and ⊥), or an error message
+     */
+    public static String runMinimize(String expr, boolean productOfSums) {
+        if (!isExpression(expr)) {
+            return "Command/expression not recognized. Please check the syntax or use $h for help.";
+        }
+        try {
+            ParsedExpression parsed = ExpressionCache.getShared().getExpression(expr);
+            Minimizer minimizer = new Minimizer(parsed.getRoot(0), parsed.getReducedProgram().getPropositions());
+            return ExpressionFormatter.format(productOfSums ? minimizer.productOfSums() : minimizer.sumOfProducts());
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Check whether raw input only contains valid expression symbols
+     *
+     * @param expr Raw input
+     * @return True if the input may be an expression
+     */
+    static boolean isExpression(String expr) {
+        return matches(expr, VALID_SYMBOL_PATTERN);
+    }
+
+    /**
+     * Check whether raw input only contains valid argument symbols
+     *
+     * @param expr Raw input
+     * @return True if the input may be a comma separated argument
+     */
+    static boolean isArgument(String expr) {
+        return matches(expr, VALID_ARGUMENT_PATTERN);
+    }
+
+    /**
+     * Check raw input against a syntax pattern, recording the time taken
+     *
+     * @param expr Raw input
+     * @param pattern Pattern of valid input
+     * @return True if the whole input matches
+     */
+    private static boolean matches(String expr, Pattern pattern) {
+        long start = System.nanoTime();
+        boolean res = pattern.matcher(expr).matches();
+        RuntimeStats.record(RuntimeStats.Phase.VALIDATION, start);
+        return res;
+    }
+
+    /**
+     * Get the propositions of an expression or argument in order of first appearance
+     *
+     * @param expr Expression or comma separated argument
+     * @return Array of proposition characters
+     */
+    public static char[] getPropositions(String expr) {
+        Set<Character> props = new LinkedHashSet<>(); //Linked hash set to preserve order
+        for (char c: expr.toCharArray()) { //Iterate over each character
+            if (((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) && c != 'v') { //Add letter propositions
+                props.add(c);
+            }
+        }
+        char[] res = new char[props.size()];
+        int i = 0;
+        for (char c: props) {
+            res[i++] = c;
+        }
+        return res;
+    }
+
+    /**
+     * Get a line divider for a truth table
+     *
+     * @param start Start char
+     * @param end End char
+     * @param filler Filler char
+     * @param divider Divider char
+     * @param props Parts in table
+     * @param specialDivider Special divider index in props
+     * @return String of dividers
+     */
+    public static String getLine(char start, char end, char filler, char divider, String[] props, int[] specialDivider) {
+        StringBuilder res = new StringBuilder().append(start);
+        int j = 0;
+        for (String prop: props) {
+            res.append(filler);
+            for (int i=0; i<prop.length(); i++) {
+                res.append(filler);
+            }
+            res.append(filler).append(divider);
+            for (int dividerVal: specialDivider) {
+                if (dividerVal == j) {
+                    res.append(divider);
+                }
+            }
+            j++;
+        }
+        res.setLength(res.length()-1); //Remove redundant divider
+        res.append(end).append("\n");
+        return res.toString();
+    }
+
+    /**
+     * Run a command for expression calculator mode based on the expression
+     *
+     * @param expr Expression
+     * @param propMap Proposition map
+     * @return String message
+     */
+    public static String runExpressionCalculator(String expr, Map<Character, Boolean> propMap) {
+        if (expr.length() == 3 && expr.charAt(1) == '=') { //Set propositions if "=" used
+            if (expr.toLowerCase().charAt(2) != 't' && expr.toLowerCase().charAt(2) != 'f') { //Ensure that value is either t or f
+                return "Error: propositions must be either true or false (T/F)";
+            }
+            propMap.put(expr.charAt(0), expr.toLowerCase().charAt(2) == 't');
+            return "";
+        } else if (matches(expr, VALID_SYMBOL_PATTERN)){ //Otherwise, test that the expression matches a logical one and evaluate it
+            ParsedExpression parsed;
+            try {
+                parsed = ExpressionCache.getShared().getExpression(expr); //Parse expression into a form of binary tree (or reuse it from the cache)
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+            char[] propositions = parsed.getPropositions();
+            boolean[] values = new boolean[propositions.length];
+            for (int i=0; i<propositions.length; i++) {
+                if (!propMap.containsKey(propositions[i])) {
+                    return "Error: Proposition " + propositions[i] + " is not defined";
+                }
+                values[i] = propMap.get(propositions[i]);
+            }
+            CompiledExpression program = parsed.getProgram();
+            RuntimeStats.addRows(1, program.size());
+            return "Expression evaluation: " + program.evaluate(values, program.newRegisters()); //Then evaluate the tree
+        } else {
+            return "Command/expression not recognized. Please check the syntax or use $h for help.";
+        }
+    }
+
+    /**
+     * Print out the console help page
+     */
+    public static void printConsoleHelp() {
+        System.out.println("TruthTabler - Formal Logic Expression and Argument Truth Table Evaluator\n" +
+                "Version 1.1.0\n\n" +
+                "Options:\n" +
+                "\t-e EXPR (print the truth table of an expression)\n" +
+                "\t-p PREMISES -c CONCLUSION (print the truth table and validity of an argument, premises comma separated)\n" +
+                "\t-v (with -p/-c, only determine validity using a SAT solver, without a truth table)\n" +
+                "\t-t THREADS (with -v, enumerate the truth table rows in parallel on THREADS threads instead of using the SAT solver)\n" +
+                "\t-b (with -v, decide validity with a binary decision diagram instead of the SAT solver)\n" +
+                "\t-g (with -v, enumerate the truth table rows in Gray code order, re-evaluating only the parts of the argument that use the changed proposition)\n" +
+                "\t-q QUERY (with -e, answer QUERY without printing the truth table: count, tautology, contradiction, satisfiable or model)\n" +
+                "\t-m FORM (with -e, print a minimal sum of products (dnf) or product of sums (cnf) with the same truth table as the expression)\n" +
+                "\t--equiv EXPR2 (with -e, determine whether the expression is equivalent to EXPR2, and print a row where they differ if not)\n" +
+                "\t--rows FIRST:LAST (with -e or -p/-c, print only rows FIRST to LAST of the truth table, counting from 1; only those rows are evaluated)\n" +
+                "\t--timeout SECONDS (with -e or -p/-c, stop enumerating the truth table after SECONDS and print how far it got, or with -v stop the validity engine and report unknown)\n" +
+                "\t--progress (with -e or -p/-c but not -v, report the rows enumerated and the rate to stderr about once a second)\n" +
+                "\t-s FORM (with -e or -p/-c, print the expression or argument rewritten into FORM instead of evaluating it: simple, nnf, cnf or dnf)\n" +
+                "\t-f FILE (batch mode: evaluate each expression or argument in FILE, one per line or - for stdin, and print one JSON result per line; use -t to set the number of worker threads)\n" +
+                "\t--serve ADDRESS (server mode: answer line-delimited requests 'evaluate EXPR', 'validate ARGUMENT' and 'table EXPR_OR_ARGUMENT' with one JSON line each, on a loopback TCP port or, if ADDRESS isn't a number, a Unix domain socket path)\n" +
+                "\t--stats (print timings and counters of each phase to stderr when done; they are also published over JMX as " + RuntimeStats.OBJECT_NAME + ")\n" +
+                "\t-h (this help)\n");
+        printHelp('\0');
+    }
+
+    /**
+     * Print out the help information
+     */
+    public static void printHelp(char mode) {
+        switch (mode) {
+            case 'c':
+                System.out.println("Expression calculator mode. Calculate expression truth values using defined propositons. Usage:\n" +
+                        "\tSet propositions using the syntax [A-Z]=[T/F] to set a proposition letter A to Z to either True or False\n" +
+                        "\tEvaluate expressions (only containing propositions set with above method and valid symbols), such as 'Av(B&C)'\n" +
+                        "\tWatch an expression with +EXPR (such as '+Av(B&C)') to print its value whenever a proposition change affects it, stop with -EXPR, and list watched expressions with ?");
+                break;
+            case 'a':
+                System.out.println("Argument calculator mode. Print argument truth tables and determine validity. Usage:\n" +
+                        "\tEnter premises and conclusion as a comma-separated list, such as 'AvB,B>A,B&A'");
+                break;
+            case 's':
+                System.out.println("Query mode. Answer questions about an expression without printing its truth table. Usage:\n" +
+                        "\tSelect the question with ?count (rows where the expression is true, the default), ?tautology, ?contradiction, ?satisfiable or ?model (first row where it is true)\n" +
+                        "\tThen enter expressions only containing proposition letters and valid symbols, such as 'Av(B&C)'");
+                break;
+            case 'e':
+                System.out.println("Expression table mode. Print expression truth table. Usage:\n" +
+                        "\tEnter expressions only containing proposition letters and valid symbols, such as 'Av(B&C)'");
+                break;
+            default: //Default help
+                System.out.println(
+                        "Usage:\n\t" +
+                                "Enter an expression, command, argument, or proposition\n" +
+                                "\tCommands:\n" +
+                                "\t\t$h (this help)\n" +
+                                "\t\t$q (quit)\n" +
+                                "\tExpressions:\n" +
+                                "\t\tMust only contain defined propositions and valid logical symbols\n" +
+                                "\t\tValid logical symbols are limited to ( and ) for grouping, v for OR, & for AND, ≡ or : for biconditional, ⊃ or > for conditional, and ~ for NOT\n" +
+                                "\t\tGrouping symbols ( and ) must be used so that each operator (excluding ~) has no more and no less than two operands (for example, (P&Q)&R is valid, but P&Q&R is not)\n" +
+                                "\t\tNegation ~ may be used before groups or propositions, but never before another operator (for example, ~P&Q and ~(PvQ)&R are valid, but P~&Q is not)\n" +
+                                "\tArguments:\n" +
+                                "\t\tEnter a list of premises (expressions as detailed above) separated by commas. Append the conclusion to this list with another comma as a separator following the same principles for expressions as above\n" +
+                                "\tPropositions:\n" +
+                                "\t\tUse '=' to defined a proposition to T/F\n" +
+                                "\t\tPropositions must be single letters (such as p or Q), and are case sensitive" +
+                                "\t\tPropositions may be redeclared later on during runtime"
+                );
+        }
+
+    }
+
+    /**
+     * Print out the information for the interactive console
+     */
+    public static void printConsoleInfo() {
+        System.out.println(
+            "TruthTabler - Formal Logic Expression and Argument Truth Table Evaluator\n" +
+            "Version 1.2.0\n\n" +
+            "Copyright 2020 Alex Mous\n" +
+            "Permission is hereby granted, free of charge, to any person obtaining a copy\n" +
+            "of this software and associated documentation files (the \"Software\"), to deal\n" +
+            "in the Software without restriction, including without limitation the rights\n" +
+            "to use, copy, modify, merge, publish, distribute, sublicense, and/or sell\n" +
+            "copies of the Software, and to permit persons to whom the Software is\n" +
+            "furnished to do so, subject to the following conditions:\n" +
+            "\n" +
+            "The above copyright notice and this permission notice shall be included in all\n" +
+            "copies or substantial portions of the Software.\n" +
+            "\n" +
+            "THE SOFTWARE IS PROVIDED \"AS IS\", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR\n" +
+            "IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,\n" +
+            "FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE\n" +
+            "AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER\n" +
+            "LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,\n" +
+            "OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE\n" +
+            "SOFTWARE.\n\n" +
+            "*** Interactive Prompt ***" +
+                    "\nCommands:\n\t$h for help\n\t$q to quit\n" +
+                    "\t$c for expression calculator mode (default)\n" +
+                    "\t$a for argument evaluation mode\n" +
+                    "\t$e for expression table mode\n" +
+                    "\t$s for query mode (count, tautology, satisfiability and first model)\n\n" +
+                    "Valid symbols:\n\tGrouping: '(' and ')'\n\tNegation: '~'\n" +
+                    "\tConjunction: '&'\n\tConditional: '⊃' or '>'\n\tDisjunction: 'v'\n" +
+                    "\tBiconditional: '≡' or ':'\n\tPropositions: letters 'A'-'Z'\n"
+        );
+    }
+
+    /**
+     * Build a tree from the raw input string and return the root node
+     *
+     * @param raw Raw input string
+     * @throws IllegalStateException If the expression is unable to be parsed fully (an ExpressionSyntaxException with the error position)
+     * @return Root node of the output tree
+     */
+    public static LogicNode buildTree(String raw) {
+        return ExpressionParser.parse(raw);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class TseitinEncoder { //Encodes LogicNode trees into CNF clauses of a SatSolver, one gate variable per operator node
+    private final SatSolver solver;
+    private final char[] propositions;
+    private final Map<LogicNode, Integer> literals = new IdentityHashMap<>(); //Literal encoding each node (shared nodes are encoded once)
+    private int trueLiteral = 0; //Variable forced true, used for constant nodes (0 until first needed)
+
+    /**
+     * Construct a new encoder. Proposition i is solver variable i+1
+     *
+     * @param solver Solver to add variables and clauses to (must have no variables yet)
+     * @param propositions Proposition characters in index order
+     */
+    public TseitinEncoder(SatSolver solver, char[] propositions) {
+        this.solver = solver;
+        this.propositions = propositions;
+        for (int i=solver.getVariableCount(); i<propositions.length; i++) {
+            solver.newVariable();
+        }
+    }
+
+    /**
+     * Encode a tree and get the literal that is true exactly when the tree is true
+     *
+     * @param root Root node of the tree
+     * @throws IllegalArgumentException If the tree uses a proposition not in propositions
+     * @throws UnsupportedOperationException If the tree uses an unsupported operator
+     * @return Literal of the root (DIMACS style)
+     */
+    public int encode(LogicNode root) {
+        ArrayDeque<LogicNode> stack = new ArrayDeque<>(); //Explicit post-order stack so that deep trees can't overflow the call stack
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            LogicNode node = stack.peek();
+            if (literals.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            if (node.type == NodeType.OPERATOR && (!literals.containsKey(node.left) || !literals.containsKey(node.right))) { //Encode children first
+                if (!literals.containsKey(node.right)) {
+                    stack.push(node.right);
+                }
+                if (!literals.containsKey(node.left)) {
+                    stack.push(node.left);
+                }
+                continue;
+            }
+            stack.pop();
+            int lit;
+            if (node.type == NodeType.OPERATOR) {
+                lit = encodeGate(node.val, literals.get(node.left), literals.get(node.right));
+            } else if (node.type == NodeType.CONSTANT) {
+                if (trueLiteral == 0) {
+                    trueLiteral = solver.newVariable();
+                    solver.addClause(trueLiteral);
+                }
+                lit = trueLiteral;
+            } else {
+                lit = CompiledExpression.indexOf(propositions, node.val) + 1;
+            }
+            literals.put(node, node.inverted ? -lit : lit);
+        }
+        return literals.get(root);
+    }
+
+    /**
+     * Assert that a tree is true (or false)
+     *
+     * @param root Root node of the tree
+     * @param value Value to assert
+     */
+    public void assertValue(LogicNode root, boolean value) {
+        int lit = encode(root);
+        solver.addClause(value ? lit : -lit);
+    }
+
+    /**
+     * Add a gate variable defined by an operator over two literals
+     *
+     * @param op Operator character
+     * @param a Left literal
+     * @param b Right literal
+     * @return Literal of the gate
+     */
+    private int encodeGate(char op, int a, int b) {
+        int x = solver.newVariable();
+        switch (CompiledExpression.getOpcode(op)) {
+            case CompiledExpression.IMPLIES: //a ⊃ b is ~a v b
+                encodeOr(x, -a, b);
+                break;
+            case CompiledExpression.OR:
+                encodeOr(x, a, b);
+                break;
+            case CompiledExpression.AND:
+                solver.addClause(-x, a);
+                solver.addClause(-x, b);
+                solver.addClause(x, -a, -b);
+                break;
+            default: //IFF
+                solver.addClause(-x, -a, b);
+                solver.addClause(-x, a, -b);
+                solver.addClause(x, a, b);
+                solver.addClause(x, -a, -b);
+                break;
+        }
+        return x;
+    }
+
+    /**
+     * Add the clauses defining a gate variable as the disjunction of two literals
+     *
+     * @param x Gate variable
+     * @param a Left literal
+     * @param b Right literal
+     */
+    private void encodeOr(int x, int a, int b) {
+        solver.addClause(x, -a);
+        solver.addClause(x, -b);
+        solver.addClause(-x, a, b);
+    }
+
+    /**
+     * Read the assignment of the propositions from the solver's model
+     *
+     * @return Truth value of each proposition by index
+     */
+    public boolean[] getModel() {
+        boolean[] res = new boolean[propositions.length];
+        for (int i=0; i<propositions.length; i++) {
+            res[i] = solver.getValue(i + 1);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+public class ValidityChecker { //Decides argument validity with a SAT solver instead of enumerating every row
+    /**
+     * Check the validity of an argument. The premises and the negated conclusion are encoded into CNF; the argument
+     * is valid exactly when that is unsatisfiable, otherwise the model is a counterexample
+     *
+     * @param premises Root nodes of the premises
+     * @param conclusion Root node of the conclusion
+     * @param propositions Proposition characters in index order
+     * @throws IllegalArgumentException If a tree uses a proposition not in propositions
+     * @throws UnsupportedOperationException If a tree uses an unsupported operator
+     * @return Validity result
+     */
+    public static ValidityResult checkArgument(LogicNode[] premises, LogicNode conclusion, char[] propositions) {
+        return checkArgument(premises, conclusion, propositions, new SatSolver(propositions.length));
+    }
+
+    /**
+     * Check the validity of an argument, giving up at a deadline
+     *
+     * @param premises Root nodes of the premises
+     * @param conclusion Root node of the conclusion
+     * @param propositions Proposition characters in index order
+     * @param deadline System.nanoTime() value to give up at (checked by the solver at every conflict)
+     * @throws IllegalArgumentException If a tree uses a proposition not in propositions
+     * @throws UnsupportedOperationException If a tree uses an unsupported operator
+     * @throws TimeLimitExceededException If the deadline passes first
+     * @return Validity result
+     */
+    public static ValidityResult checkArgument(LogicNode[] premises, LogicNode conclusion, char[] propositions, long deadline) {
+        SatSolver solver = new SatSolver(propositions.length);
+        solver.setDeadline(deadline);
+        return checkArgument(premises, conclusion, propositions, solver);
+    }
+
+    private static ValidityResult checkArgument(LogicNode[] premises, LogicNode conclusion, char[] propositions, SatSolver solver) {
+        TseitinEncoder encoder = new TseitinEncoder(solver, propositions);
+        for (LogicNode premise: premises) {
+            encoder.assertValue(premise, true);
+        }
+        encoder.assertValue(conclusion, false);
+        if (solver.solve()) {
+            return new ValidityResult(propositions, encoder.getModel());
+        }
+        return new ValidityResult(propositions, null);
+    }
+
+    /**
+     * Check whether an expression is satisfiable
+     *
+     * @param root Root node of the expression
+     * @param propositions Proposition characters in index order
+     * @return Satisfying assignment of each proposition by index, or null if unsatisfiable
+     */
+    public static boolean[] findModel(LogicNode root, char[] propositions) {
+        return findModel(root, true, propositions);
+    }
+
+    /**
+     * Find an assignment where an expression has a value
+     *
+     * @param root Root node of the expression
+     * @param value Truth value to find (false to look for a row that shows it isn't a tautology)
+     * @param propositions Proposition characters in index order
+     * @return Assignment of each proposition by index, or null if the expression never has that value
+     */
+    public static boolean[] findModel(LogicNode root, boolean value, char[] propositions) {
+        SatSolver solver = new SatSolver(propositions.length);
+        TseitinEncoder encoder = new TseitinEncoder(solver, propositions);
+        encoder.assertValue(root, value);
+        return solver.solve() ? encoder.getModel() : null;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+Copyright 2020 Alex Mous
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package truthtabler;
+
+public class ValidityResult { //Validity of an argument, with a counterexample row if it is invalid
+    private final char[] propositions;
+    private final boolean[] counterexample; //Truth value of each proposition in the counterexample, or null if valid
+
+    /**
+     * Construct a new validity result
+     *
+     * @param propositions Proposition characters in index order
+     * @param counterexample Assignment with all premises true and the conclusion false, or null if the argument is valid
+     */
+    public ValidityResult(char[] propositions, boolean[] counterexample) {
+        this.propositions = propositions.clone();
+        this.counterexample = counterexample == null ? null : counterexample.clone();
+    }
+
+    /**
+     * Construct a new validity result from a truth table row index
+     *
+     * @param propositions Proposition characters in index order
+     * @param row Truth table row of a counterexample, or -1 if the argument is valid
+     * @return Validity result
+     */
+    public static ValidityResult fromRow(char[] propositions, long row) {
+        if (row < 0) {
+            return new ValidityResult(propositions, null);
+        }
+        boolean[] values = new boolean[propositions.length];
+        for (int i=0; i<propositions.length; i++) {
+            values[i] = (row >>> (propositions.length - 1 - i) & 1L) == 0;
+        }
+        return new ValidityResult(propositions, values);
+    }
+
+    /**
+     * Extend the result to more propositions, such as those a simplified argument no longer uses. A counterexample
+     * stays one whatever the values of propositions the argument doesn't depend on, so they are set to true
+     *
+     * @param propositions Proposition characters in index order (a superset of this result's)
+     * @return Validity result over propositions
+     */
+    public ValidityResult extend(char[] propositions) {
+        if (counterexample == null) {
+            return new ValidityResult(propositions, null);
+        }
+        boolean[] values = new boolean[propositions.length];
+        for (int i=0; i<propositions.length; i++) {
+            values[i] = true;
+            for (int j=0; j<this.propositions.length; j++) {
+                if (this.propositions[j] == propositions[i]) {
+                    values[i] = counterexample[j];
+                    break;
+                }
+            }
+        }
+        return new ValidityResult(propositions, values);
+    }
+
+    /**
+     * Get whether the argument is valid
+     *
+     * @return True if valid
+     */
+    public boolean isValid() {
+        return counterexample == null;
+    }
+
+    /**
+     * Get the counterexample assignment
+     *
+     * @return Truth value of each proposition by index, or null if the argument is valid
+     */
+    public boolean[] getCounterexample() {
+        return counterexample == null ? null : counterexample.clone();
+    }
+
+    /**
+     * Get the truth table row of the counterexample (the first row is all true)
+     *
+     * @return Row index, or -1 if the argument is valid
+     */
+    public long getCounterexampleRow() {
+        if (counterexample == null) {
+            return -1;
+        }
+        long row = 0;
+        for (int i=0; i<propositions.length; i++) {
+            if (!counterexample[i]) {
+                row |= 1L << (propositions.length - 1 - i);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Get the proposition characters in index order
+     *
+     * @return Copy of the propositions
+     */
+    public char[] getPropositions() {
+        return propositions.clone();
+    }
+
+    /**
+     * Get a human-readable description of the result
+     *
+     * @return Validity, and the counterexample if invalid
+     */
+    @Override
+    public String toString() {
+        if (counterexample == null) {
+            return "Validity: Valid";
+        }
+        StringBuilder res = new StringBuilder("Validity: Invalid\nCounterexample:");
+        for (int i=0; i<propositions.length; i++) {
+            res.append(" ").append(propositions[i]).append("=").append(counterexample[i] ? "T" : "F");
+        }
+        if (propositions.length < 63) {
+            res.append(" (row ").append(getCounterexampleRow() + 1).append(")");
+        }
+        return res.toString();
+    }
+}